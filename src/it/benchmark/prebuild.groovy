@@ -0,0 +1,118 @@
+// ベンチマーク用のソースコードを生成する.
+// 生成するファイル数と種類の割合は pom.xml の benchmark プロファイルで指定する.
+//   corpusFiles : 生成するファイル数
+//   corpusMix   : 種類ごとの割合 (例: bean=50,enum=10,interface=10,dto=20,nested=10)
+//   corpusSeed  : 乱数の種. 同じ値であれば同じソースコードを生成する
+
+def files = (corpusFiles ?: '10000') as int
+def seed = (corpusSeed ?: '1') as long
+def mix = [:]
+(corpusMix ?: 'bean=50,enum=10,interface=10,dto=20,nested=10').split(',').each {
+    def pair = it.split('=')
+    mix[pair[0].trim()] = pair[1].trim() as int
+}
+def total = mix.values().sum()
+def random = new Random(seed)
+def root = new File(basedir, 'src/main/java')
+
+def types = [
+    ['int', '0'], ['long', '0L'], ['boolean', 'false'], ['String', 'null'],
+    ['java.util.List<String>', 'null'], ['List<Integer>', 'null'], ['double', '0.0'],
+    ['java.math.BigDecimal', 'null'], ['Map<String, Object>', 'null'], ['byte[]', 'null']
+]
+
+def capitalize = { String name -> name.substring(0, 1).toUpperCase() + name.substring(1) }
+
+def fields = { int count ->
+    (0..<count).collect {
+        def type = types[random.nextInt(types.size())]
+        def name = type[0] == 'boolean' && random.nextBoolean() ? "isFlag${it}" : "value${it}"
+        [type: type[0], name: name]
+    }
+}
+
+def accessors = { StringBuilder out, List list, String indent ->
+    list.each { f ->
+        def isBoolean = f.type == 'boolean'
+        def property = isBoolean && f.name.startsWith('is') ? f.name.substring(2) : capitalize(f.name)
+        def getter = (isBoolean ? 'is' : 'get') + property
+        def access = random.nextInt(10) == 0 ? 'protected ' : 'public '
+        out << "\n${indent}/**\n${indent} * Returns ${f.name}.\n${indent} */\n"
+        out << "${indent}${access}${f.type} ${getter}() {\n"
+        out << "${indent}    return ${random.nextBoolean() ? 'this.' : ''}${f.name};\n${indent}}\n"
+        if (random.nextInt(4) != 0) {
+            out << "\n${indent}${access}void set${property}(${f.type} ${f.name}) {\n"
+            out << "${indent}    this.${f.name} = ${f.name};\n${indent}}\n"
+        }
+    }
+}
+
+def declare = { StringBuilder out, List list, String indent ->
+    list.each { f -> out << "${indent}private ${f.type} ${f.name};\n" }
+}
+
+def header = { String pkg ->
+    "package ${pkg};\n\nimport java.util.List;\nimport java.util.Map;\n\n"
+}
+
+def generators = [
+    bean: { String pkg, String name ->
+        def out = new StringBuilder(header(pkg))
+        def list = fields(3 + random.nextInt(12))
+        out << "/**\n * ${name}.\n */\npublic class ${name} implements java.io.Serializable {\n\n"
+        out << "    private static final long serialVersionUID = 1L;\n"
+        declare(out, list, '    ')
+        accessors(out, list, '    ')
+        out << "\n    @Override\n    public String toString() {\n        return \"${name}\";\n    }\n}\n"
+    },
+    enum: { String pkg, String name ->
+        def out = new StringBuilder(header(pkg))
+        out << "public enum ${name} {\n"
+        out << (0..<(5 + random.nextInt(30))).collect { "    CONSTANT_${it}(${it})" }.join(',\n')
+        out << ";\n\n    private final int code;\n\n    ${name}(int code) {\n        this.code = code;\n    }\n"
+        out << "\n    public int getCode() {\n        return code;\n    }\n}\n"
+    },
+    interface: { String pkg, String name ->
+        def out = new StringBuilder(header(pkg))
+        out << "public interface ${name} {\n"
+        (0..<(2 + random.nextInt(8))).each { out << "\n    String getName${it}();\n\n    void setName${it}(String name);\n" }
+        out << "\n    default boolean isEmpty() {\n        return getName0() == null;\n    }\n}\n"
+    },
+    dto: { String pkg, String name ->
+        def out = new StringBuilder("// Generated by corpus generator. Do not edit.\n")
+        out << header(pkg)
+        def list = fields(10 + random.nextInt(40))
+        out << "@javax.annotation.Generated(\"corpus\")\npublic class ${name} {\n\n"
+        declare(out, list, '    ')
+        accessors(out, list, '    ')
+        out << "}\n"
+    },
+    nested: { String pkg, String name ->
+        def out = new StringBuilder(header(pkg))
+        def outer = fields(2 + random.nextInt(4))
+        def inner = fields(2 + random.nextInt(4))
+        out << "public class ${name} {\n\n"
+        declare(out, outer, '    ')
+        accessors(out, outer, '    ')
+        out << "\n    public static class Nested {\n\n"
+        declare(out, inner, '        ')
+        accessors(out, inner, '        ')
+        out << "    }\n\n    public class Inner {\n\n        private int depth;\n\n"
+        out << "        public int getDepth() {\n            return depth;\n        }\n    }\n\n"
+        out << "    private final Runnable task = new Runnable() {\n\n        private int count;\n\n"
+        out << "        @Override\n        public void run() {\n            count++;\n        }\n    };\n}\n"
+    }
+]
+
+def kinds = []
+mix.each { kind, weight -> weight.times { kinds << kind } }
+(0..<files).each { i ->
+    def kind = kinds[random.nextInt(total)]
+    def pkg = "corpus.p${(int) (i / 100)}"
+    def name = "${capitalize(kind)}${i}"
+    def dir = new File(root, pkg.replace('.', '/'))
+    dir.mkdirs()
+    new File(dir, "${name}.java").setText(generators[kind](pkg, name).toString(), 'UTF-8')
+}
+println "Generated ${files} files in ${root} (mix: ${mix}, seed: ${seed})"
+return true
@@ -0,0 +1,42 @@
+// build.log から apply ゴールの計測結果を抽出し、baseline.properties と比較する.
+// 結果は benchmark-result.properties に出力する. benchmarkStrict が true の場合、
+// 基準値から許容範囲を超えて悪化していればビルドを失敗させる.
+
+def log = new File(basedir, 'build.log').getText('UTF-8')
+def processed = log =~ /Processed (\d+) files/
+def elapsed = log =~ /Elapsed (\d+) ms \(([0-9.]+) files\/s\), peak memory (\d+) KB/
+assert processed.find() : 'No summary in build.log'
+assert elapsed.find() : 'No elapsed time in build.log'
+
+def result = new Properties()
+result['files'] = processed.group(1)
+result['elapsedMillis'] = elapsed.group(1)
+result['filesPerSecond'] = elapsed.group(2)
+result['peakMemoryKiloBytes'] = elapsed.group(3)
+new File(basedir, 'benchmark-result.properties').withWriter('UTF-8') { result.store(it, 'lombokize benchmark') }
+
+def baseline = new Properties()
+new File(basedir, 'baseline.properties').withReader('UTF-8') { baseline.load(it) }
+def tolerance = baseline['tolerance'] as double
+def throughput = result['filesPerSecond'] as double
+def peak = result['peakMemoryKiloBytes'] as long
+def baseThroughput = baseline['filesPerSecond'] as double
+def basePeak = baseline['peakMemoryKiloBytes'] as long
+
+println "files            : ${result['files']} (baseline ${baseline['files']})"
+println "wall time        : ${result['elapsedMillis']} ms"
+println "throughput       : ${throughput} files/s (baseline ${baseThroughput}, ${String.format('%+.1f', (throughput / baseThroughput - 1) * 100)}%)"
+println "peak memory      : ${peak} KB (baseline ${basePeak}, ${String.format('%+.1f', (peak / basePeak - 1) * 100)}%)"
+
+def regressions = []
+if (throughput < baseThroughput * (1 - tolerance)) {
+    regressions << 'throughput'
+}
+if (peak > basePeak * (1 + tolerance)) {
+    regressions << 'peak memory'
+}
+if (regressions) {
+    println "Regression beyond ${tolerance * 100}%: ${regressions.join(', ')}"
+    return !Boolean.parseBoolean(benchmarkStrict ?: 'false')
+}
+return true
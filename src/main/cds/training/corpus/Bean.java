@@ -0,0 +1,52 @@
+package corpus;
+
+import java.util.List;
+
+/**
+ * Bean.
+ */
+public class Bean implements java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private int count;
+    private boolean active;
+    private List<String> tags;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    protected void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    @Override
+    public String toString() {
+        return "Bean";
+    }
+}
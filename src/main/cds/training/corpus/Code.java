@@ -0,0 +1,16 @@
+package corpus;
+
+public enum Code {
+    OK(0),
+    FAILED(1);
+
+    private final int value;
+
+    Code(int value) {
+        this.value = value;
+    }
+
+    public int getValue() {
+        return value;
+    }
+}
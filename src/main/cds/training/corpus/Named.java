@@ -0,0 +1,12 @@
+package corpus;
+
+public interface Named {
+
+    String getName();
+
+    void setName(String name);
+
+    default boolean isEmpty() {
+        return getName() == null;
+    }
+}
@@ -0,0 +1,41 @@
+package corpus;
+
+import lombok.Getter;
+
+public class Outer {
+
+    @Getter
+    private long id;
+    private final String label;
+
+    public Outer(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static class Nested {
+
+        private double ratio;
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+    }
+
+    private final Runnable task = new Runnable() {
+
+        private int count;
+
+        @Override
+        public void run() {
+            count++;
+        }
+    };
+}
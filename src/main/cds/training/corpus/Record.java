@@ -0,0 +1,12 @@
+// Generated by training corpus. Do not edit.
+package corpus;
+
+@javax.annotation.Generated("corpus")
+public class Record {
+
+    private String value;
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,278 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.GeneratedJavaParserTokenManager;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.SimpleCharStream;
+import com.github.javaparser.StringProvider;
+import com.github.javaparser.Token;
+import com.github.javaparser.TokenMgrException;
+import com.github.javaparser.UnicodeEscapeProcessingProvider;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 構文木を構築せず、字句解析したトークン列だけで Lombok アノテーションを適用する候補があるか判定する.
+ * フィールド宣言とアクセサ本体は {@link GeneratedGetterPredicate}, {@link GeneratedSetterPredicate}
+ * と同じ観点で認識するが、判定は常に安全側に倒す. すなわち {@link Verdict#NO_CANDIDATES} を返した場合は
+ * {@link CompilationUnitLombokizer} を適用しても変更されないことが保証され、
+ * それ以外は構文木による処理に委ねる.
+ */
+class AccessorTokenScanner {
+
+    /**
+     * 判定結果.
+     */
+    enum Verdict {
+        /**
+         * Lombok アノテーションを適用する候補がない.
+         */
+        NO_CANDIDATES,
+        /**
+         * トークン列だけでは判定できないため、構文木による処理が必要.
+         */
+        NEEDS_AST
+    }
+
+    private final List<JavaToken.Kind> kinds = new ArrayList<>();
+    private final List<String> images = new ArrayList<>();
+
+    private final LombokConfig config;
+
+    private AccessorTokenScanner(LombokConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * ソースコードに Lombok アノテーションを適用する候補があるか判定する.
+     *
+     * @param code ソースコード
+     * @return 判定結果.
+     */
+    static Verdict scan(String code) {
+        return scan(code, LombokConfig.DEFAULT);
+    }
+
+    /**
+     * {@code lombok.config} の設定に従うアクセサの名前で、ソースコードに Lombok アノテーションを
+     * 適用する候補があるか判定する.
+     *
+     * @param code ソースコード
+     * @param config ソースファイルに適用される {@code lombok.config} の設定
+     * @return 判定結果.
+     */
+    static Verdict scan(String code, LombokConfig config) {
+        AccessorTokenScanner scanner = new AccessorTokenScanner(config);
+        try {
+            scanner.tokenize(code);
+        } catch (TokenMgrException ex) {
+            // 字句解析できない場合は構文木による処理でエラーを報告させる
+            return Verdict.NEEDS_AST;
+        }
+        return scanner.hasLombokAnnotation() || scanner.hasAccessor()
+                ? Verdict.NEEDS_AST
+                : Verdict.NO_CANDIDATES;
+    }
+
+    private void tokenize(String code) {
+        GeneratedJavaParserTokenManager tokenManager = new GeneratedJavaParserTokenManager(
+                new SimpleCharStream(new UnicodeEscapeProcessingProvider(new StringProvider(code))));
+        // 空白・コメントは specialToken として扱われるため、ここでは現れない
+        for (Token token = tokenManager.getNextToken(); token.kind != 0; token = tokenManager.getNextToken()) {
+            kinds.add(JavaToken.Kind.valueOf(token.kind));
+            images.add(token.image);
+        }
+    }
+
+    private JavaToken.Kind kind(int index) {
+        return 0 <= index && index < kinds.size() ? kinds.get(index) : JavaToken.Kind.EOF;
+    }
+
+    /**
+     * {@link Getter} または {@link Setter} が付与されているか判定する. 付与されていれば、
+     * クラス単位へのアノテーションの集約が必要となる可能性がある.
+     */
+    private boolean hasLombokAnnotation() {
+        for (int i = 0; i < kinds.size(); i++) {
+            if (kind(i) != JavaToken.Kind.AT || kind(i + 1) != JavaToken.Kind.IDENTIFIER) {
+                continue;
+            }
+            // 完全修飾名の場合は最後の識別子で判定する
+            int last = i + 1;
+            while (kind(last + 1) == JavaToken.Kind.DOT && kind(last + 2) == JavaToken.Kind.IDENTIFIER) {
+                last += 2;
+            }
+            final String name = images.get(last);
+            if (Getter.class.getSimpleName().equals(name)
+                    || Setter.class.getSimpleName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * フィールドのアクセサと同じ形のメソッドがあるか判定する.
+     */
+    private boolean hasAccessor() {
+        final Set<String> fieldNames = fieldNames();
+        if (fieldNames.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < kinds.size(); i++) {
+            // メソッド本体 (throws 句のないもの) の開始位置
+            if (kind(i) != JavaToken.Kind.LBRACE || kind(i - 1) != JavaToken.Kind.RPAREN) {
+                continue;
+            }
+            final String methodName = methodName(i - 1);
+            if (methodName == null) {
+                continue;
+            }
+            final String getterField = returnedName(i + 1);
+            if (getterField != null && fieldNames.contains(getterField)
+                    && isGetterName(methodName, getterField)) {
+                return true;
+            }
+            final String setterField = assignedName(i + 1);
+            if (setterField != null && fieldNames.contains(setterField)
+                    && isSetterName(methodName, setterField)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * フィールド宣言の変数名を返す. 型に続く識別子のうち、{@code ;}, {@code =}, {@code ,},
+     * {@code [} が続くものを変数名とみなす. ローカル変数も含むが、判定は安全側に倒れる.
+     */
+    private Set<String> fieldNames() {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < kinds.size(); i++) {
+            if (kind(i) != JavaToken.Kind.IDENTIFIER || !endsType(kind(i - 1))) {
+                continue;
+            }
+            switch (kind(i + 1)) {
+                case SEMICOLON:
+                case ASSIGN:
+                case COMMA:
+                case LBRACKET:
+                    names.add(images.get(i));
+                    break;
+                default:
+            }
+        }
+        return names;
+    }
+
+    private static boolean endsType(JavaToken.Kind kind) {
+        switch (kind) {
+            case IDENTIFIER:
+            case GT:
+            case RSIGNEDSHIFT:
+            case RUNSIGNEDSHIFT:
+            case RBRACKET:
+            case BOOLEAN:
+            case BYTE:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 引数の閉じ括弧に対応する開き括弧の直前にある識別子をメソッド名として返す.
+     */
+    private String methodName(int rparen) {
+        int depth = 0;
+        for (int i = rparen; i >= 0; i--) {
+            switch (kind(i)) {
+                case RPAREN:
+                    depth++;
+                    break;
+                case LPAREN:
+                    if (--depth == 0) {
+                        return kind(i - 1) == JavaToken.Kind.IDENTIFIER ? images.get(i - 1) : null;
+                    }
+                    break;
+                default:
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@code return name;} だけのメソッド本体であれば、参照しているフィールド名を返す.
+     */
+    private String returnedName(int begin) {
+        if (kind(begin) != JavaToken.Kind.RETURN) {
+            return null;
+        }
+        final int end = nameEnd(begin + 1);
+        return end > begin + 1
+                && kind(end) == JavaToken.Kind.SEMICOLON
+                && kind(end + 1) == JavaToken.Kind.RBRACE
+                ? images.get(end - 1)
+                : null;
+    }
+
+    /**
+     * {@code name = parameter;} だけ (chain の場合は続けて {@code return this;}) のメソッド本体であれば、
+     * 代入先のフィールド名を返す.
+     */
+    private String assignedName(int begin) {
+        final int end = nameEnd(begin);
+        return end > begin
+                && kind(end) == JavaToken.Kind.ASSIGN
+                && kind(end + 1) == JavaToken.Kind.IDENTIFIER
+                && kind(end + 2) == JavaToken.Kind.SEMICOLON
+                && (kind(end + 3) == JavaToken.Kind.RBRACE
+                || kind(end + 3) == JavaToken.Kind.RETURN
+                && kind(end + 4) == JavaToken.Kind.THIS
+                && kind(end + 5) == JavaToken.Kind.SEMICOLON
+                && kind(end + 6) == JavaToken.Kind.RBRACE)
+                ? images.get(end - 1)
+                : null;
+    }
+
+    /**
+     * {@code a.b.this.c} のように {@code .} で連結された名前の終了位置を返す. 名前は識別子で終わる.
+     *
+     * @return 名前の次の位置. 名前でなければ引数の位置.
+     */
+    private int nameEnd(int begin) {
+        int i = begin;
+        while (kind(i) == JavaToken.Kind.IDENTIFIER || kind(i) == JavaToken.Kind.THIS) {
+            if (kind(i + 1) != JavaToken.Kind.DOT) {
+                return kind(i) == JavaToken.Kind.IDENTIFIER ? i + 1 : begin;
+            }
+            i += 2;
+        }
+        return begin;
+    }
+
+    /**
+     * {@link GeneratedGetterPredicate#test} と同じ規則で、Getter となり得るメソッド名か判定する.
+     * トークン列からはフィールドの型が分からないため、boolean 型の規則も常に適用する.
+     */
+    private boolean isGetterName(String methodName, String fieldName) {
+        return config.getterNames(fieldName, true).contains(methodName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * {@link GeneratedSetterPredicate#test} と同じ規則で、Setter となり得るメソッド名か判定する.
+     */
+    private boolean isSetterName(String methodName, String fieldName) {
+        return config.setterNames(fieldName, true).contains(methodName.toLowerCase(Locale.ROOT));
+    }
+}
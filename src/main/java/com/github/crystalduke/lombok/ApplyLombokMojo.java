@@ -3,20 +3,38 @@ package com.github.crystalduke.lombok;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import static com.github.javaparser.ParserConfiguration.LanguageLevel.*;
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.utils.SourceRoot;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import lombok.RequiredArgsConstructor;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -26,10 +44,14 @@ import org.apache.maven.plugins.annotations.Parameter;
 /**
  * Lombok アノテーションを適用する.
  */
-@Mojo(name = "apply", defaultPhase = LifecyclePhase.PROCESS_SOURCES)
+@Mojo(name = "apply", defaultPhase = LifecyclePhase.PROCESS_SOURCES, threadSafe = true)
 public class ApplyLombokMojo extends AbstractMojo implements SourceRoot.Callback {
 
     private static final Logger LOG = Logger.getLogger(ApplyLombokMojo.class.getPackage().getName());
+    /**
+     * 子プロセスに渡す設定のうち、デバッグログを出力するか示すキー.
+     */
+    static final String DEBUG_PROPERTY = "debug";
 
     @Parameter(defaultValue = "${project.basedir}/src", property = "lombokize.sourceDirectory")
     private File sourceDirectory;
@@ -37,25 +59,196 @@ public class ApplyLombokMojo extends AbstractMojo implements SourceRoot.Callback
     private String encoding;
     @Parameter(defaultValue = "${maven.compiler.source}", property = "lombokize.languageLevel")
     private String languageLevel;
+    /**
+     * {@code true} の場合、構文木を構築する前にトークン列だけで判定し、
+     * Lombok アノテーションを適用する候補がないファイルはパースしない.
+     * 候補があるファイルは {@code false} の場合と同じく構文木で処理するため、出力は変わらない.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.prefilter")
+    private boolean prefilter;
+    /**
+     * {@code true} の場合、生成されたソースはパースせずに省略する. {@code generated-sources}
+     * 配下のファイル、{@code package} または {@code import} より前に {@code Generated by} などの
+     * コメントがあるファイル、{@code @Generated} を付与した型を宣言するファイルを生成されたソースとみなす.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.skipGenerated")
+    private boolean skipGenerated;
+    /**
+     * {@code true} の場合、入れ子の型を含む全ての型にクラス単位の {@code @Data}, {@code @Value},
+     * または {@code @Getter} と {@code @Setter} の両方を付与済みのソースはパースせずに省略する.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.skipLombokized")
+    private boolean skipLombokized;
+    /**
+     * {@code true} の場合、フィールドとメソッドの型をシンボルソルバーで完全修飾名に解決して比較する.
+     * このゴールは依存関係を解決しないため、依存関係の JAR の型は解決できない. JAR の型も解決するには
+     * {@code apply-resolved} ゴールを使う.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.resolveTypes")
+    boolean resolveTypes;
+    /**
+     * {@code true} の場合、プロジェクト全体の型階層の索引を作成し、
+     * オーバーライドの関係にあるアクセサは削除しない.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.hierarchyAware")
+    private boolean hierarchyAware;
+    @Parameter(defaultValue = "${project.build.directory}/lombokize/type-hierarchy.idx",
+            property = "lombokize.indexFile")
+    private File indexFile;
+    /**
+     * {@code true} の場合、ソースファイルを書き換えずに、全ての変更を {@link #patchFile} に
+     * unified diff 形式で出力する. 出力したファイルは {@code git apply} で適用できる.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.diff")
+    boolean diff;
+    @Parameter(defaultValue = "${project.build.directory}/lombokize/lombokize.patch",
+            property = "lombokize.patchFile")
+    private File patchFile;
+    /**
+     * 指定した場合、ソースファイルを書き換えずに、このディレクトリに同じ構成で出力する.
+     * 変更しなかったファイルはソースファイルへのハードリンクとし、ハードリンクを作成できない場合は複製する.
+     * 出力済みのファイルより後に更新したソースファイルだけを処理し直すため、
+     * 設定を変えた場合はディレクトリを削除してから実行する.
+     */
+    @Parameter(property = "lombokize.outputDirectory")
+    File outputDirectory;
+    @Parameter(defaultValue = "${project.basedir}", readonly = true)
+    private File basedir;
+    /**
+     * ソースファイルを分割して複数のプロセスで処理する場合の、このプロセスが担当するシャードの番号
+     * (0 から {@link #shardCount} - 1). 分割した場合、処理結果を {@link #reportDirectory} に出力する.
+     */
+    @Parameter(defaultValue = "0", property = "lombokize.shardIndex")
+    private int shardIndex;
+    /**
+     * シャードの数. ソースファイルは {@link #sourceDirectory} からの相対パスのハッシュ値で割り当てる.
+     */
+    @Parameter(defaultValue = "1", property = "lombokize.shardCount")
+    private int shardCount;
+    /**
+     * {@code true} の場合、各シャードのファイルサイズの合計が均等になるように割り当てる.
+     * 割り当ては {@link #reportDirectory} に保存し、同じディレクトリを使う他のプロセスと共有する.
+     * 異なるマシンで分割する場合は、各マシンで保存した割り当てを削除してから実行する.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.shardBySize")
+    private boolean shardBySize;
+    @Parameter(defaultValue = "${project.build.directory}/lombokize", property = "lombokize.reportDirectory")
+    private File reportDirectory;
+    /**
+     * {@code true} の場合、ソースファイルのディレクトリから親ディレクトリを遡って
+     * {@code lombok.config} を読み込み、アクセサの名前と形の設定に従って判定する.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.lombokConfig")
+    private boolean useLombokConfig;
+    /**
+     * ソースファイル 1 つの処理に許す時間 (ミリ秒). 超えたファイルは書き換えずに処理を打ち切り、
+     * 残りのファイルの処理を続ける. 0 の場合は制限しない.
+     */
+    @Parameter(defaultValue = "0", property = "lombokize.timeBudget")
+    long timeBudget;
+    /**
+     * ソースファイルを並行して処理するスレッドの数. 処理結果は、ソースファイルの順に書き込む.
+     * 0 の場合は、利用できるプロセッサの数とする. Java 21 以降で読み書きに仮想スレッドを使うのは、
+     * 並行して処理する場合 (スレッドの数が 2 以上か、{@code timeBudget} を指定した場合) だけである.
+     */
+    @Parameter(defaultValue = "0", property = "lombokize.threads")
+    private int threads;
+    /**
+     * 並行して処理する場合に、パース中のソースファイルに割り当てるヒープの上限 (最大ヒープサイズに対する百分率).
+     * パースに使うヒープはソースファイルのサイズから見積もり、上限を超える場合は他のファイルの処理が終わるまで待つ.
+     */
+    @Parameter(defaultValue = "50", property = "lombokize.heapBudget")
+    private int heapBudget;
+    /**
+     * 並行して処理する場合に、このサイズ (バイト) を超えるソースファイルは専用のスレッドで 1 つずつ処理する.
+     * 0 の場合は、パースに使うヒープの見積もりが、ヒープの上限をスレッド数で割った値を超えるファイルとする.
+     */
+    @Parameter(defaultValue = "0", property = "lombokize.largeFileSize")
+    private long largeFileSize;
+    /**
+     * {@code true} の場合、処理を終えたソースファイルと結果を {@link #reportDirectory} のジャーナルに追記し、
+     * 記録した時点から内容が変わっていないソースファイルは処理しない. {@link #maxDuration} で打ち切った処理や、
+     * 強制終了された処理を、次の実行で続きから再開できる. 出力に影響する設定を変えた場合と、全てのソースファイルを
+     * 処理し終えた場合はジャーナルを破棄する. ソースファイルを書き換える場合にだけ指定できる.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.resume")
+    boolean resume;
+    /**
+     * 処理全体に許す時間 (秒). 超えた場合は新しいソースファイルの処理を始めず、処理中のファイルの結果を
+     * 書き込んでから終了する. 0 の場合は制限しない.
+     */
+    @Parameter(defaultValue = "0", property = "lombokize.maxDuration")
+    long maxDuration;
+    /**
+     * {@code true} の場合、子プロセスの JVM で処理する. 大量のソースファイルを処理する場合に、
+     * Maven と他のプラグインのヒープに影響せずに {@link #jvmArgs} でヒープや GC を調整できる.
+     * 子プロセスのログは、このプラグインのログとして出力する.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.fork")
+    boolean fork;
+    /**
+     * 子プロセスの JVM に渡す空白区切りの引数. 例えば {@code -Xmx4g -XX:+UseParallelGC -XX:ActiveProcessorCount=8}.
+     * {@link #fork} が {@code true} の場合だけ使う.
+     */
+    @Parameter(property = "lombokize.jvmArgs")
+    private String jvmArgs;
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true)
+    private List<String> classpathElements;
+    @Parameter(defaultValue = "${project.compileSourceRoots}", readonly = true)
+    private List<String> compileSourceRoots;
     ParserConfiguration config = new ParserConfiguration();
     Set<ParserConfiguration.LanguageLevel> unsupportedLevels
             = EnumSet.of(JAVA_1_0, JAVA_1_1, JAVA_1_2, JAVA_1_3, JAVA_1_4, JAVA_5, JAVA_6);
-    boolean jdk7;
+    /**
+     * {@link #resolveTypes} が {@code true} の場合に型を解決するインスタンス. 実行を終えたら閉じる.
+     */
+    private CachingTypeSolver typeSolver;
+    TypeMatcher typeMatcher;
+    TypeHierarchyIndex typeHierarchy;
+    final LombokConfigResolver lombokConfigResolver = new LombokConfigResolver();
+    /**
+     * Lombok アノテーションを適用するエンジン. 型階層の索引を更新するたびに構築し直す.
+     */
+    Lombokizer lombokizer;
+    /**
+     * {@code true} の場合、ソースファイルとパッチ、処理結果を書き込まずに、ソースファイルごとに段階ごとの処理時間と
+     * ワーカースレッドで確保したメモリを計測して {@link #completed(Path, LombokizeResult, long[], long)} に渡す.
+     */
+    boolean benchmark;
+    /**
+     * このゴールのログに出力するレベルの下限.
+     */
+    Level logLevel = Level.ALL;
     private MavenPluginLogHandler handler;
-
-    private static ParserConfiguration.LanguageLevel toLanguageLevel(String level) {
-        if (level == null) {
-            return null;
-        }
-        if (level.matches("^1\\.[0-4]$")) {
-            // 例：1.4 -> 1_4
-            level = level.replace('.', '_');
-        } else if (level.matches("1\\.[5-8]$")) {
-            // 例：1.5 -> 5
-            level = level.substring(2);
-        }
-        return ParserConfiguration.LanguageLevel.valueOf("JAVA_" + level);
-    }
+    private Writer patch;
+    private ShardReport report;
+    /**
+     * ソースファイルの読み書きを実行する仮想スレッド. 並行して処理する間だけ保持し、
+     * 仮想スレッドを使えない場合は {@code null}.
+     */
+    private ExecutorService io;
+    /**
+     * パース中のソースファイルに割り当てるヒープ. 並行して処理する間だけ保持する.
+     */
+    private HeapBudget admission;
+    private OutputTree outputTree;
+    private ProgressJournal journal;
+    private boolean terminated;
+    /**
+     * {@link #maxDuration} を過ぎたため、残りのソースファイルを処理せずに終了した場合は {@code true}.
+     */
+    private boolean stopped;
+    /**
+     * {@link #maxDuration} を過ぎる時刻 ({@link System#nanoTime()}). 制限しない場合は {@code null}.
+     */
+    private Long deadline;
+    private final Deque<CompletableFuture<Void>> pendingWrites = new ArrayDeque<>();
+    private int numOfFiles;
+    private int numOfChanged;
+    private int numOfPrefiltered;
+    private int numOfAbandoned;
+    private int numOfGenerated;
+    private int numOfLombokized;
 
     @Override
     public void execute() throws MojoExecutionException {
@@ -63,62 +256,801 @@ public class ApplyLombokMojo extends AbstractMojo implements SourceRoot.Callback
         if (!Files.isDirectory(rootPath)) {
             return;
         }
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new MojoExecutionException("Illegal shard: " + shardIndex + " of " + shardCount);
+        }
+        if (threads < 0) {
+            throw new MojoExecutionException("Illegal threads: " + threads);
+        }
+        if (heapBudget < 1 || heapBudget > 100) {
+            throw new MojoExecutionException("Illegal heap budget: " + heapBudget + "%");
+        }
+        if (diff && outputDirectory != null) {
+            throw new MojoExecutionException("Cannot write a patch and an output directory at the same time");
+        }
+        if (diff && resume) {
+            // パッチにはこの実行で変更したファイルしか含まれない
+            throw new MojoExecutionException("Cannot resume writing a patch");
+        }
+        if (outputDirectory != null && resume) {
+            // 出力ディレクトリは、ソースファイルより古い出力だけを処理し直す
+            throw new MojoExecutionException("Cannot resume writing an output directory; it is always incremental");
+        }
+        if (maxDuration < 0) {
+            throw new MojoExecutionException("Illegal max duration: " + maxDuration + " s");
+        }
+        if (resolveTypes && !resolvesDependencies()) {
+            getLog().warn("Dependencies are not resolved by this goal; "
+                    + "use the apply-resolved goal to resolve types in dependency JARs");
+        }
+        if (fork) {
+            executeForked();
+            return;
+        }
         if (encoding != null) {
             config.setCharacterEncoding(Charset.forName(encoding));
         }
-        config.setLexicalPreservationEnabled(true);
         if (languageLevel != null) {
-            config.setLanguageLevel(toLanguageLevel(languageLevel));
+            config.setLanguageLevel(Lombokizer.toLanguageLevel(languageLevel));
             if (unsupportedLevels.contains(config.getLanguageLevel())) {
                 throw new IllegalStateException("Unsupported language level: " + languageLevel);
             }
         }
-        jdk7 = config.getLanguageLevel().equals(JAVA_7);
-        SourceRoot srcRoot = new SourceRoot(rootPath, config);
-        StaticJavaParser.setConfiguration(config);
+        typeSolver = resolveTypes
+                ? CachingTypeSolver.of(classpathElements, compileSourceRoots, analysisConfiguration())
+                : null;
+        typeMatcher = new TypeMatcher(typeSolver);
         handler = new MavenPluginLogHandler(getLog());
-        boolean useParentHandlers = LOG.getUseParentHandlers();
-        Level logLevel = LOG.getLevel();
+        handler.setLevel(logLevel);
         try {
-            LOG.addHandler(handler);
-            LOG.setLevel(Level.ALL);
-            LOG.setUseParentHandlers(false);
-            srcRoot.parse("", config, this);
+            LogRouter.attach(handler);
+            final long startTime = System.nanoTime();
+            deadline = maxDuration > 0 ? startTime + TimeUnit.SECONDS.toNanos(maxDuration) : null;
+            numOfFiles = numOfChanged = numOfPrefiltered = numOfAbandoned = numOfGenerated = numOfLombokized = 0;
+            lombokConfigResolver.clear();
+            final List<Path> sourceFiles = Lombokizer.collectSourceFiles(rootPath);
+            updateTypeHierarchy(rootPath, sourceFiles);
+            // 計測では割り当てを保存しない
+            List<Path> targetFiles = ShardSelector.select(rootPath, sourceFiles, shardIndex, shardCount,
+                    shardBySize, shardBySize && !benchmark
+                            ? reportDirectory.toPath().resolve(ShardSelector.planFileName(shardCount))
+                            : null);
+            if (shardCount > 1) {
+                report = new ShardReport(shardIndex, shardCount);
+                LOG.log(Level.INFO, "Shard {0} of {1}: {2,number,#} of {3,number,#} files",
+                        new Object[] {shardIndex, shardCount, targetFiles.size(), sourceFiles.size()});
+            }
+            if (outputDirectory != null) {
+                outputTree = new OutputTree(rootPath, outputDirectory.toPath(), config.getCharacterEncoding(),
+                        outputSettings());
+                final int numOfStale = outputTree.deleteStale(sourceFiles);
+                final List<Path> outdated = outputTree.outdated(targetFiles);
+                LOG.log(Level.INFO, "{0,number,#} files up to date in {1}, {2,number,#} stale files deleted",
+                        new Object[] {targetFiles.size() - outdated.size(), outputDirectory, numOfStale});
+                targetFiles = outdated;
+            }
+            if (resume) {
+                journal = ProgressJournal.open(reportDirectory.toPath()
+                        .resolve(ProgressJournal.fileName(shardIndex, shardCount)), rootPath,
+                        config.getCharacterEncoding(), outputSettings());
+                final List<Path> pending = journal.pending(targetFiles);
+                LOG.log(Level.INFO, "Resuming from {0}: {1,number,#} files done in earlier runs, "
+                        + "{2,number,#} files to process",
+                        new Object[] {journal, targetFiles.size() - pending.size(), pending.size()});
+                targetFiles = pending;
+            }
+            if (diff) {
+                Files.createDirectories(patchFile.toPath().toAbsolutePath().getParent());
+                patch = Files.newBufferedWriter(patchFile.toPath(), config.getCharacterEncoding());
+            }
+            if (threads() > 1 || timeBudget > 0) {
+                processConcurrently(rootPath, targetFiles);
+            } else {
+                for (Path absolutePath : targetFiles) {
+                    if (outOfTime()) {
+                        break;
+                    }
+                    numOfFiles++;
+                    Path localPath = rootPath.relativize(absolutePath);
+                    if (process(localPath, absolutePath) == Result.TERMINATE) {
+                        break;
+                    }
+                }
+            }
+            LOG.log(Level.INFO, "Processed {0,number,#} files: {1,number,#} changed, "
+                    + "{2,number,#} skipped by the token prefilter",
+                    new Object[] {numOfFiles, numOfChanged, numOfPrefiltered});
+            if (numOfGenerated + numOfLombokized > 0) {
+                LOG.log(Level.INFO, "Skipped {0,number,#} generated and {1,number,#} already lombokized files",
+                        new Object[] {numOfGenerated, numOfLombokized});
+            }
+            if (numOfAbandoned > 0) {
+                LOG.log(Level.WARNING, "Abandoned {0,number,#} files over the time budget of {1,number,#} ms",
+                        new Object[] {numOfAbandoned, timeBudget});
+            }
+            if (stopped) {
+                LOG.log(Level.WARNING, "Stopped after the max duration of {0,number,#} s with {1,number,#} files "
+                        + "left{2}", new Object[] {maxDuration, targetFiles.size() - numOfFiles,
+                            resume ? "; run again to resume" : "; set lombokize.resume to resume next time"});
+            }
+            final long elapsed = (System.nanoTime() - startTime) / 1_000_000;
+            LOG.log(Level.INFO, "Elapsed {0,number,#} ms ({1,number,#.#} files/s), peak memory {2,number,#} KB",
+                    new Object[] {elapsed, numOfFiles * 1000.0 / Math.max(elapsed, 1), ProcessMemory.peakKiloBytes()});
+            if (outputTree != null && !terminated && !stopped) {
+                outputTree.commit();
+                LOG.log(Level.INFO, "Wrote {0,number,#} files to {1}, linked {2,number,#} and copied {3,number,#} "
+                        + "unchanged files",
+                        new Object[] {outputTree.getNumOfWritten(), outputDirectory, outputTree.getNumOfLinked(),
+                            outputTree.getNumOfCopied()});
+            }
+            if (journal != null) {
+                // 監視などの後続の処理はジャーナルに記録しない
+                if (terminated || stopped || numOfAbandoned > 0) {
+                    journal.close();
+                } else {
+                    journal.complete();
+                    LOG.log(Level.INFO, "Processed all files; deleted {0}", journal);
+                }
+                journal = null;
+            }
+            afterProcessing(rootPath);
+            if (patch != null) {
+                patch.close();
+                LOG.log(Level.INFO, "Wrote patch to {0}", patchFile);
+            }
+            if (report != null && !benchmark) {
+                final Path reportFile = reportDirectory.toPath()
+                        .resolve(ShardReport.fileName(shardIndex, shardCount));
+                report.write(reportFile);
+                LOG.log(Level.INFO, "Wrote report to {0}", reportFile);
+            }
         } catch (IOException ex) {
             throw new UncheckedIOException(ex);
         } finally {
-            LOG.setUseParentHandlers(useParentHandlers);
-            LOG.setLevel(logLevel);
-            LOG.removeHandler(handler);
+            closeQuietly(patch);
+            closeQuietly(journal);
+            closeQuietly(typeSolver);
+            typeSolver = null;
+            patch = null;
+            journal = null;
+            report = null;
+            outputTree = null;
+            terminated = false;
+            stopped = false;
+            deadline = null;
+            LogRouter.detach(handler);
             handler = null;
         }
     }
 
-    @Override
-    public SourceRoot.Callback.Result process(Path localPath, Path absolutePath,
-            ParseResult<CompilationUnit> result) {
-        handler.setPrefix(localPath.toString() + ": ");
+    /**
+     * ゴールが依存関係を解決するかどうかを返す. 依存関係を解決するゴールでオーバーライドする.
+     *
+     * @return {@link #classpathElements} が依存関係の JAR を含む場合は {@code true}.
+     */
+    boolean resolvesDependencies() {
+        return false;
+    }
+
+    /**
+     * 全てのソースファイルを処理した後に呼び出す. 処理を継続するサブクラスでオーバーライドする.
+     *
+     * @param rootPath ソースディレクトリ
+     * @throws IOException ソースファイルの読み書きに失敗した場合.
+     */
+    void afterProcessing(Path rootPath) throws IOException {
+    }
+
+    /**
+     * ソースファイル 1 つの処理結果を集計する前に、ソースファイルの順に 1 つのスレッドから呼び出す.
+     * 処理結果を集計するサブクラスでオーバーライドする.
+     *
+     * @param localPath ソースディレクトリからの相対パス
+     * @param result 処理結果
+     * @param phaseNanos {@link #benchmark} が {@code true} の場合、段階ごとの処理時間 (ナノ秒).
+     * 添字は {@link LombokizeResult.Phase#ordinal()}. 時間の上限を超えて打ち切った場合と、それ以外は {@code null}.
+     * @param allocatedBytes {@link #benchmark} が {@code true} の場合、ワーカースレッドで確保したメモリ (バイト).
+     * 計測できない場合と、それ以外は -1.
+     */
+    void completed(Path localPath, LombokizeResult result, long[] phaseNanos, long allocatedBytes) {
+    }
+
+    /**
+     * 子プロセスの JVM で処理する. 設定は {@link ExecutionSettings} としてファイルに保存して渡し、
+     * 子プロセスのログをこのプラグインのログに転送する.
+     *
+     * @throws MojoExecutionException 子プロセスが失敗した場合.
+     */
+    private void executeForked() throws MojoExecutionException {
+        final MavenPluginLogHandler forkHandler = new MavenPluginLogHandler(getLog());
+        Path parameters = null;
         try {
-            if (!result.isSuccessful()) {
-                LOG.severe("Parse failed");
-                return Result.TERMINATE;
-            }
-            LOG.fine("Parse succeeded");
-            CompilationUnit original = result.getResult().get();
-            CompilationUnit cu = new CompilationUnitLombokizer(jdk7).apply(original);
-            if (original != cu) {
-                try (BufferedWriter writer = Files.newBufferedWriter(absolutePath,
-                        config.getCharacterEncoding())) {
-                    writer.write(TokenUtil.asString(cu));
+            parameters = Files.createTempFile("lombokize-", ".properties");
+            try (Writer writer = Files.newBufferedWriter(parameters, StandardCharsets.UTF_8)) {
+                final Properties properties = ExecutionSettings.of(this).toProperties();
+                properties.setProperty(DEBUG_PROPERTY, Boolean.toString(getLog().isDebugEnabled()));
+                properties.store(writer, null);
+            }
+            final List<String> command = ForkedJvm.command(jvmArgs, parameters);
+            getLog().debug("Forking " + command);
+            final int exitCode = ForkedJvm.run(command, basedir, forkHandler);
+            if (exitCode != 0) {
+                throw new MojoExecutionException("The forked JVM exited with code " + exitCode);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for the forked JVM", ex);
+        } finally {
+            forkHandler.close();
+            if (parameters != null) {
+                try {
+                    Files.deleteIfExists(parameters);
                 } catch (IOException ex) {
-                    throw new UncheckedIOException(ex);
+                    getLog().debug("Failed to delete " + parameters, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link #hierarchyAware} が {@code true} の場合、型階層の索引を更新する. {@link #benchmark} が
+     * {@code true} の場合、更新した索引は保存しない.
+     * 更新した索引を参照するよう、Lombok アノテーションを適用するエンジンを構築し直す.
+     *
+     * @param rootPath ソースディレクトリ
+     * @param sourceFiles ソースディレクトリ配下の全てのソースファイル
+     * @throws IOException 索引の読み書きに失敗した場合.
+     */
+    void updateTypeHierarchy(Path rootPath, List<Path> sourceFiles) throws IOException {
+        typeHierarchy = hierarchyAware
+                ? TypeHierarchyIndex.update(indexFile.toPath(), rootPath, sourceFiles,
+                        this::analysisConfiguration, !benchmark)
+                : null;
+        lombokizer = Lombokizer.builder()
+                .languageLevel(config.getLanguageLevel())
+                .encoding(config.getCharacterEncoding())
+                .prefilter(prefilter)
+                .typeMatcher(typeMatcher)
+                .typeHierarchy(typeHierarchy)
+                .lombokConfigResolver(useLombokConfig ? lombokConfigResolver : null)
+                .skipGenerated(skipGenerated)
+                .skipLombokized(skipLombokized)
+                .build();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "Failed to close", ex);
+            }
+        }
+    }
+
+    /**
+     * 出力に影響する設定を返す. 設定が変わった場合は、以前の実行のジャーナルと出力ディレクトリの出力を使わない.
+     */
+    private String outputSettings() {
+        return String.join("\n",
+                "languageLevel=" + config.getLanguageLevel(),
+                "encoding=" + config.getCharacterEncoding(),
+                "prefilter=" + prefilter,
+                "skipGenerated=" + skipGenerated,
+                "skipLombokized=" + skipLombokized,
+                "resolveTypes=" + resolveTypes,
+                "hierarchyAware=" + hierarchyAware,
+                "lombokConfig=" + useLombokConfig);
+    }
+
+    /**
+     * 構文解析以外の目的 (型の解決や索引の作成) でパースするための設定を返す.
+     */
+    private ParserConfiguration analysisConfiguration() {
+        return new ParserConfiguration()
+                .setLanguageLevel(config.getLanguageLevel())
+                .setCharacterEncoding(config.getCharacterEncoding());
+    }
+
+    /**
+     * ソースファイルを並行して処理する. 各ファイルの処理はワーカースレッドで実行し、
+     * 時間の上限を超えたファイルは監視スレッドが打ち切る. 処理結果はソースファイルの順に
+     * このスレッドで書き込むため、出力は逐次処理と同じになる.
+     * 打ち切ったファイルを処理していたワーカースレッドは、次の確認箇所で処理を中断する.
+     * <p>
+     * Java 21 以降では、ソースファイルの読み込みと書き込みを仮想スレッドで行い、
+     * ワーカースレッドはパースと変換だけに使う.
+     * </p>
+     * <p>
+     * ソースファイルを読み込む前に、ソースファイルのサイズから見積もったヒープを {@link #heapBudget} から割り当てる.
+     * 大きなファイルは専用のスレッドで 1 つずつ処理するため、処理する順序によらずヒープの使用量は上限に収まる.
+     * </p>
+     */
+    private void processConcurrently(Path rootPath, List<Path> targetFiles) throws IOException {
+        final int threads = threads();
+        final ExecutorService workers = Executors.newFixedThreadPool(threads, daemonThreads("lombokize-worker-"));
+        final ExecutorService largeFiles = Executors.newSingleThreadExecutor(daemonThreads("lombokize-large-"));
+        final ScheduledExecutorService watchdog = newWatchdog();
+        admission = HeapBudget.ofMaxHeap(heapBudget);
+        final long largeFileThreshold = largeFileSize > 0
+                ? largeFileSize
+                : admission.getLimit() / threads / HeapBudget.BYTES_PER_SOURCE_BYTE;
+        LOG.log(Level.FINE, "Heap budget {0,number,#} KB, files over {1,number,#} bytes are processed one at a time",
+                new Object[] {admission.getLimit() / 1024, largeFileThreshold});
+        int numOfLargeFiles = 0;
+        io = IoExecutors.newVirtualThreadPerTaskExecutor("lombokize-io-");
+        if (io != null) {
+            LOG.fine("Reading and writing files on virtual threads");
+        }
+        // 処理結果を保持するファイル数を抑えるため、先行して投入するファイル数を制限する
+        final int window = threads * 4;
+        final Deque<CompletableFuture<Outcome>> pending = new ArrayDeque<>();
+        final Iterator<Path> files = targetFiles.iterator();
+        try {
+            // 時間を過ぎた場合も、投入済みのファイルの結果は書き込む
+            while (files.hasNext() && !outOfTime() || !pending.isEmpty()) {
+                while (files.hasNext() && pending.size() < window && !outOfTime()) {
+                    final Path file = files.next();
+                    final long size = Files.size(file);
+                    final boolean large = size > largeFileThreshold;
+                    if (large) {
+                        numOfLargeFiles++;
+                    }
+                    pending.add(submit(rootPath, file, large ? largeFiles : workers, watchdog,
+                            HeapBudget.estimate(size)));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                numOfFiles++;
+                if (complete(await(pending.poll())) == Result.TERMINATE) {
+                    break;
                 }
+            }
+            awaitWrites(true);
+            if (numOfLargeFiles > 0) {
+                LOG.log(Level.INFO, "Processed {0,number,#} files over {1,number,#} bytes one at a time",
+                        new Object[] {numOfLargeFiles, largeFileThreshold});
+            }
+        } finally {
+            admission = null;
+            workers.shutdownNow();
+            largeFiles.shutdownNow();
+            watchdog.shutdownNow();
+            if (io != null) {
+                // 書き込み途中のファイルを残さないよう、失敗した場合も書き込みの終了を待つ
+                shutdownAndAwait(io);
+                io = null;
+                pendingWrites.clear();
+            }
+        }
+    }
+
+    /**
+     * ソースファイルを並行して処理するスレッドの数を返す.
+     *
+     * @return {@link #threads}. 0 の場合は利用できるプロセッサの数.
+     */
+    private int threads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 時間の上限を超えた処理を打ち切る監視スレッドを生成する. ファイルごとに投入するタスクは処理結果を参照するため、
+     * 取り消したタスクはすぐに待ち行列から除き、上限の時間が経つまで処理結果を保持し続けないようにする.
+     *
+     * @return 生成した監視スレッド.
+     */
+    static ScheduledThreadPoolExecutor newWatchdog() {
+        final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1,
+                daemonThreads("lombokize-watchdog-"));
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
+    /**
+     * {@link #maxDuration} を過ぎたか判定する. 過ぎた場合は {@link #stopped} を設定する.
+     *
+     * @return 過ぎた場合は {@code true}.
+     */
+    private boolean outOfTime() {
+        if (!stopped && deadline != null && System.nanoTime() - deadline >= 0) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    private static void shutdownAndAwait(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 仮想スレッドで実行中の書き込みの結果を確認する.
+     *
+     * @param all {@code true} の場合は全ての書き込みの終了を待つ. {@code false} の場合は終了したものだけを確認する.
+     * @throws UncheckedIOException 書き込みに失敗した場合.
+     */
+    private void awaitWrites(boolean all) {
+        while (!pendingWrites.isEmpty() && (all || pendingWrites.peek().isDone())) {
+            await(pendingWrites.poll());
+        }
+    }
+
+    /**
+     * ソースファイルの処理を投入する.
+     *
+     * @param workers パースと変換を実行するスレッド
+     * @param estimate パースに使うヒープの見積もり
+     */
+    private CompletableFuture<Outcome> submit(Path rootPath, Path absolutePath, ExecutorService workers,
+            ScheduledExecutorService watchdog, long estimate) {
+        final Path localPath = rootPath.relativize(absolutePath);
+        final CompletableFuture<Outcome> result = new CompletableFuture<>();
+        final HeapBudget budget = admission;
+        if (io == null) {
+            workers.execute(() -> admit(budget, estimate, result,
+                    () -> lombokize(localPath, absolutePath, null, watchdog, result)));
+            return result;
+        }
+        // 読み込みを仮想スレッドで待ち、パース以降をワーカースレッドで処理する.
+        // 読み込んだ内容も見積もりに含めるよう、ヒープを割り当ててから読み込む
+        CompletableFuture.supplyAsync(() -> {
+            final long granted;
+            try {
+                granted = budget.acquire(estimate);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            }
+            try {
+                return new Admitted(granted, read(absolutePath));
+            } catch (IOException ex) {
+                budget.release(granted);
+                throw new UncheckedIOException(ex);
+            } catch (RuntimeException ex) {
+                budget.release(granted);
+                throw ex;
+            }
+        }, io).whenComplete((admitted, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
             } else {
-                LOG.info("No changes");
+                workers.execute(() -> run(budget, admitted.granted,
+                        () -> lombokize(localPath, absolutePath, admitted.code, watchdog, result)));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * ヒープを割り当てて読み込んだソースファイル.
+     */
+    @RequiredArgsConstructor
+    private static class Admitted {
+
+        final long granted;
+        final String code;
+    }
+
+    /**
+     * ヒープを割り当ててから処理を実行し、終了後に返却する.
+     */
+    private static void admit(HeapBudget budget, long estimate, CompletableFuture<Outcome> result,
+            Runnable task) {
+        final long granted;
+        try {
+            granted = budget.acquire(estimate);
+        } catch (InterruptedException ex) {
+            // 処理を中断した
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(ex);
+            return;
+        }
+        run(budget, granted, task);
+    }
+
+    /**
+     * 処理を実行し、終了後に割り当てたヒープを返却する.
+     */
+    private static void run(HeapBudget budget, long granted, Runnable task) {
+        try {
+            task.run();
+        } finally {
+            budget.release(granted);
+        }
+    }
+
+    /**
+     * ワーカースレッドで Lombok アノテーションを適用し、結果を {@code result} に設定する.
+     * 時間の上限を超えた場合は、監視スレッドが打ち切った結果を設定する.
+     *
+     * @param code ソースファイルの内容. {@code null} の場合はソースファイルを読み込む.
+     */
+    private void lombokize(Path localPath, Path absolutePath, String code, ScheduledExecutorService watchdog,
+            CompletableFuture<Outcome> result) {
+        // 待ち時間を含めないよう、ワーカースレッドで処理を始めてから計測する
+        final TimeBudget budget = TimeBudget.start(timeBudget);
+        final ScheduledFuture<?> timer = timeBudget > 0
+                ? watchdog.schedule(() -> {
+                    budget.abandon();
+                    result.complete(new Outcome(localPath, absolutePath,
+                            LombokizeResult.abandoned(localPath.toString(), null, budget)));
+                }, timeBudget, TimeUnit.MILLISECONDS)
+                : null;
+        try {
+            result.complete(lombokize(localPath, absolutePath, code, budget));
+        } catch (RuntimeException | Error ex) {
+            result.completeExceptionally(ex);
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * デーモンスレッドを生成する {@link ThreadFactory} を返す. 生成したスレッドのログは、このゴールのログに出力する.
+     */
+    static ThreadFactory daemonThreads(String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return LogRouter.inheriting(runnable -> {
+            final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * ファイルを読み込み、必要であればパースして Lombok アノテーションを適用する.
+     */
+    private SourceRoot.Callback.Result process(Path localPath, Path absolutePath) {
+        return complete(lombokize(localPath, absolutePath, null, TimeBudget.start(timeBudget)));
+    }
+
+    /**
+     * ソースファイルを読み込む.
+     *
+     * @param path ソースファイル
+     * @return ファイルの内容.
+     * @throws IOException 読み込みに失敗した場合.
+     */
+    String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), config.getCharacterEncoding());
+    }
+
+    /**
+     * 読み込み済みのソースコードを、必要であればパースして Lombok アノテーションを適用する.
+     *
+     * @param localPath ソースディレクトリからの相対パス
+     * @param absolutePath ソースファイルの絶対パス
+     * @param code ソースファイルの内容
+     * @return パースに失敗した場合は {@link Result#TERMINATE}.
+     */
+    SourceRoot.Callback.Result process(Path localPath, Path absolutePath, String code) {
+        return complete(lombokize(localPath, absolutePath, code, TimeBudget.start(timeBudget)));
+    }
+
+    /**
+     * ソースファイルに Lombok アノテーションを適用した結果を求める. ソースファイルは書き換えず、
+     * このインスタンスの状態も変更しないため、複数のスレッドから呼び出せる.
+     *
+     * @param code ソースファイルの内容. {@code null} の場合はソースファイルを読み込む.
+     */
+    private Outcome lombokize(Path localPath, Path absolutePath, String code, TimeBudget budget) {
+        handler.setPrefix(localPath.toString() + ": ");
+        final long allocatedBytes = benchmark ? ProcessMemory.threadAllocatedBytes() : -1;
+        try {
+            if (code == null) {
+                code = read(absolutePath);
+            }
+            final Outcome outcome = new Outcome(localPath, absolutePath,
+                    lombokizer.lombokize(localPath.toString(), absolutePath, code, budget));
+            if (benchmark) {
+                outcome.phaseNanos = budget.phaseNanos(System.nanoTime());
+                outcome.allocatedBytes = allocatedBytes < 0 ? -1
+                        : ProcessMemory.threadAllocatedBytes() - allocatedBytes;
+            }
+            return outcome;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            handler.setPrefix(null);
+        }
+    }
+
+    /**
+     * 処理結果を集計し、Lombok アノテーションを適用した場合はソースファイルかパッチに書き込む.
+     * 処理結果はソースファイルの順に、1 つのスレッドから渡すこと.
+     */
+    private SourceRoot.Callback.Result complete(Outcome outcome) {
+        final LombokizeResult result = outcome.result;
+        handler.setPrefix(outcome.localPath.toString() + ": ");
+        try {
+            record(outcome.localPath, result.getStatus());
+            completed(outcome.localPath, result, outcome.phaseNanos, outcome.allocatedBytes);
+            switch (result.getStatus()) {
+                case SKIPPED:
+                    numOfPrefiltered++;
+                    link(outcome);
+                    break;
+                case FAILED:
+                    terminated = true;
+                    return Result.TERMINATE;
+                case ABANDONED:
+                    numOfAbandoned++;
+                    LOG.log(Level.WARNING, "Abandoned after {0,number,#} ms in phase {1}, left untouched",
+                            new Object[] {result.getElapsedNanos() / 1_000_000, result.getAbandonedPhase()});
+                    if (outputTree != null) {
+                        // 次回に処理し直す
+                        submitWrite(() -> outputTree.copyOutdated(outcome.absolutePath));
+                    }
+                    break;
+                case EXCLUDED:
+                    if (result.getSkipReason() == LombokizeResult.SkipReason.GENERATED) {
+                        numOfGenerated++;
+                    } else {
+                        numOfLombokized++;
+                    }
+                    link(outcome);
+                    break;
+                case CHANGED:
+                    numOfChanged++;
+                    write(outcome);
+                    break;
+                default:
+                    link(outcome);
+                    break;
             }
+            journal(outcome);
             return SourceRoot.Callback.Result.DONT_SAVE;
         } finally {
             handler.setPrefix(null);
         }
     }
+
+    /**
+     * 処理を終えたソースファイルをジャーナルに記録する. 打ち切ったファイルは次回に処理し直すため記録しない.
+     * 書き込みより先に記録した後で強制終了された場合も、ファイルの内容がハッシュ値と異なるため次回に処理し直す.
+     */
+    private void journal(Outcome outcome) {
+        final LombokizeResult result = outcome.result;
+        if (journal == null || result.getStatus() == LombokizeResult.Status.ABANDONED) {
+            return;
+        }
+        // ジャーナルはソースファイルを書き換える場合にだけ使うため、次の実行で読み込む内容を記録する
+        final String content = result.isChanged() ? result.getRevisedCode() : result.getOriginalCode();
+        try {
+            journal.record(outcome.absolutePath, result.getStatus(), content);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void write(Outcome outcome) {
+        if (benchmark) {
+            return;
+        }
+        if (patch != null) {
+            try {
+                outcome.result.writeUnifiedDiff(patch, toPatchPath(outcome.absolutePath));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        } else if (outputTree != null) {
+            submitWrite(() -> outputTree.write(outcome.absolutePath, outcome.result.getRevisedCode()));
+        } else {
+            submitWrite(() -> writeSource(outcome));
+        }
+    }
+
+    /**
+     * 変更しなかったソースファイルを、出力するディレクトリにハードリンクする.
+     */
+    private void link(Outcome outcome) {
+        if (outputTree != null) {
+            submitWrite(() -> outputTree.link(outcome.absolutePath));
+        }
+    }
+
+    /**
+     * ファイルの書き込みを実行する. 仮想スレッドを使える場合は、書き込みを待つ間に次のファイルの処理結果を集計する.
+     */
+    private void submitWrite(IoAction action) {
+        final Runnable task = () -> {
+            try {
+                action.run();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+        if (io != null) {
+            awaitWrites(false);
+            pendingWrites.add(CompletableFuture.runAsync(task, io));
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * 入出力の例外を投げる処理.
+     */
+    @FunctionalInterface
+    private interface IoAction {
+
+        void run() throws IOException;
+    }
+
+    private void writeSource(Outcome outcome) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(outcome.absolutePath, config.getCharacterEncoding())) {
+            writer.write(outcome.result.getRevisedCode());
+        }
+    }
+
+    private void record(Path localPath, LombokizeResult.Status status) {
+        if (report != null) {
+            report.record(localPath.toString().replace(File.separatorChar, '/'), status);
+        }
+    }
+
+    /**
+     * パッチに記録するパスを返す. プロジェクトのディレクトリ配下であれば相対パスとする.
+     */
+    private String toPatchPath(Path absolutePath) {
+        final Path base = basedir != null ? basedir.toPath().toAbsolutePath() : null;
+        final Path path = absolutePath.toAbsolutePath();
+        return (base != null && path.startsWith(base) ? base.relativize(path) : path)
+                .toString().replace(File.separatorChar, '/');
+    }
+
+    @Override
+    public SourceRoot.Callback.Result process(Path localPath, Path absolutePath,
+            ParseResult<CompilationUnit> result) {
+        handler.setPrefix(localPath.toString() + ": ");
+        final Outcome outcome;
+        try {
+            outcome = new Outcome(localPath, absolutePath, lombokizer.lombokize(localPath.toString(),
+                    absolutePath, result, TimeBudget.start(timeBudget)));
+        } finally {
+            handler.setPrefix(null);
+        }
+        return complete(outcome);
+    }
+
+    /**
+     * ソースファイル 1 つの処理結果.
+     */
+    @RequiredArgsConstructor
+    private static class Outcome {
+
+        final Path localPath;
+        final Path absolutePath;
+        final LombokizeResult result;
+        /**
+         * 段階ごとの処理時間. {@link #benchmark} が {@code true} の場合だけ設定する.
+         */
+        long[] phaseNanos;
+        long allocatedBytes = -1;
+    }
 }
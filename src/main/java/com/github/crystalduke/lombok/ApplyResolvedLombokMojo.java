@@ -0,0 +1,30 @@
+package com.github.crystalduke.lombok;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * 依存関係を解決し、フィールドとメソッドの型を依存関係の JAR を含めて完全修飾名に解決して
+ * Lombok アノテーションを適用する. パラメータは {@code apply} ゴールと同じで、
+ * {@code resolveTypes} は常に {@code true} とする.
+ * <p>
+ * {@code apply} ゴールは依存関係を解決しないため、型を解決しない場合に依存関係をダウンロードしない.
+ * </p>
+ */
+@Mojo(name = "apply-resolved", defaultPhase = LifecyclePhase.PROCESS_SOURCES,
+        requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class ApplyResolvedLombokMojo extends ApplyLombokMojo {
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        resolveTypes = true;
+        super.execute();
+    }
+
+    @Override
+    boolean resolvesDependencies() {
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.crystalduke.lombok;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * JAR や ZIP 形式のアーカイブ (例えば {@code *-sources.jar}) に格納された Java ソースファイルに、
+ * 展開せずに Lombok アノテーションを適用し、新しいアーカイブに書き込む.
+ * Java ソースファイル以外のエントリと、変更しなかったエントリは、圧縮されたまま複製する.
+ */
+@Mojo(name = "archive", requiresProject = false, threadSafe = true)
+public class ArchiveLombokMojo extends AbstractMojo {
+
+    private static final Logger LOG = Logger.getLogger(ArchiveLombokMojo.class.getPackage().getName());
+
+    @Parameter(property = "lombokize.archive", required = true)
+    private File archive;
+    /**
+     * 出力先のアーカイブ. 省略した場合は {@code ${project.build.directory}/lombokize} 配下に
+     * 入力と同じ名前で出力する. 入力と同じファイルは指定できない.
+     */
+    @Parameter(property = "lombokize.outputArchive")
+    private File outputArchive;
+    @Parameter(defaultValue = "${project.build.directory}/lombokize", readonly = true)
+    private File outputDirectory;
+    @Parameter(property = "lombokize.encoding")
+    private String encoding;
+    @Parameter(defaultValue = "${maven.compiler.source}", property = "lombokize.languageLevel")
+    private String languageLevel;
+    /**
+     * {@code true} の場合、構文木を構築する前にトークン列だけで判定し、
+     * Lombok アノテーションを適用する候補がないエントリはパースしない.
+     * 候補があるエントリは {@code false} の場合と同じく構文木で処理するため、出力は変わらない.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.prefilter")
+    private boolean prefilter;
+    /**
+     * {@code true} の場合、生成されたソースはパースせずに省略する. {@code generated-sources}
+     * 配下のエントリ、{@code package} または {@code import} より前に {@code Generated by} などの
+     * コメントがあるエントリ、{@code @Generated} を付与した型を宣言するエントリを生成されたソースとみなす.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.skipGenerated")
+    private boolean skipGenerated;
+    /**
+     * {@code true} の場合、入れ子の型を含む全ての型にクラス単位の {@code @Data}, {@code @Value},
+     * または {@code @Getter} と {@code @Setter} の両方を付与済みのソースはパースせずに省略する.
+     */
+    @Parameter(defaultValue = "false", property = "lombokize.skipLombokized")
+    private boolean skipLombokized;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path source = archive.toPath();
+        if (!Files.isRegularFile(source)) {
+            throw new MojoExecutionException("No such archive: " + archive);
+        }
+        final Path target = (outputArchive != null ? outputArchive
+                : new File(outputDirectory, archive.getName())).toPath();
+        try {
+            if (Files.exists(target) && Files.isSameFile(source, target)) {
+                throw new MojoExecutionException("Output archive must differ from the input: " + target);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        final Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        final Lombokizer.LombokizerBuilder builder = Lombokizer.builder()
+                .encoding(charset)
+                .prefilter(prefilter)
+                .skipGenerated(skipGenerated)
+                .skipLombokized(skipLombokized);
+        if (languageLevel != null) {
+            builder.languageLevel(Lombokizer.toLanguageLevel(languageLevel));
+        }
+        final ArchiveLombokizer lombokizer = new ArchiveLombokizer(builder.build(), charset);
+        final MavenPluginLogHandler handler = new MavenPluginLogHandler(getLog());
+        try {
+            LogRouter.attach(handler);
+            lombokizer.setHandler(handler);
+            final long startTime = System.nanoTime();
+            lombokizer.lombokize(source, target);
+            LOG.log(Level.INFO, "Processed {0,number,#} sources in {1}: {2,number,#} changed, "
+                    + "{3,number,#} entries copied as is",
+                    new Object[] {lombokizer.getNumOfSources(), archive,
+                        lombokizer.getNumOfChanged(), lombokizer.getNumOfCopied()});
+            LOG.log(Level.INFO, "Wrote {0} in {1,number,#} ms",
+                    new Object[] {target, (System.nanoTime() - startTime) / 1_000_000});
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            LogRouter.detach(handler);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * JAR や ZIP 形式のアーカイブに格納された Java ソースファイルに、展開せずに Lombok アノテーションを適用する.
+ * <p>
+ * 変換したエントリだけを圧縮し直して新しいアーカイブに書き込み、それ以外のエントリは
+ * 圧縮されたままのデータを複製する. エントリの順序は元のアーカイブと同じとする.
+ * </p>
+ */
+@RequiredArgsConstructor
+class ArchiveLombokizer {
+
+    private static final Logger LOG = Logger.getLogger(ArchiveLombokizer.class.getName());
+
+    private final Lombokizer lombokizer;
+    private final Charset encoding;
+    /**
+     * ログの先頭にエントリ名を付与する Handler. {@code null} の場合は付与しない.
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private MavenPluginLogHandler handler;
+    /**
+     * 処理した Java ソースファイルの数.
+     */
+    @Getter
+    private int numOfSources;
+    /**
+     * Lombok アノテーションを適用したエントリの数.
+     */
+    @Getter
+    private int numOfChanged;
+    /**
+     * 圧縮されたまま複製したエントリの数.
+     */
+    @Getter
+    private int numOfCopied;
+
+    /**
+     * アーカイブのエントリを順に処理し、新しいアーカイブに書き込む. 書き込みは一時ファイルに行い、
+     * 完了してから出力先に移動する.
+     *
+     * @param source 入力のアーカイブ
+     * @param target 出力先のアーカイブ. 入力と同じファイルは指定できない.
+     * @throws IOException 読み書きに失敗した場合.
+     */
+    void lombokize(Path source, Path target) throws IOException {
+        final Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path temporary = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (ZipFile zip = ZipFile.builder().setPath(source).get();
+                    ZipArchiveOutputStream out = new ZipArchiveOutputStream(temporary)) {
+                for (Enumeration<ZipArchiveEntry> entries = zip.getEntriesInPhysicalOrder();
+                        entries.hasMoreElements();) {
+                    final ZipArchiveEntry entry = entries.nextElement();
+                    final String revisedCode = isSource(entry) ? lombokize(zip, entry) : null;
+                    if (revisedCode != null) {
+                        write(out, entry, revisedCode);
+                        numOfChanged++;
+                    } else {
+                        out.addRawArchiveEntry(entry, zip.getRawInputStream(entry));
+                        numOfCopied++;
+                    }
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static boolean isSource(ZipArchiveEntry entry) {
+        return !entry.isDirectory() && entry.getName().endsWith(".java");
+    }
+
+    /**
+     * エントリの内容に Lombok アノテーションを適用する.
+     *
+     * @return 適用後のソースコード. 変更しなかった場合は {@code null}.
+     */
+    private String lombokize(ZipFile zip, ZipArchiveEntry entry) throws IOException {
+        if (!zip.canReadEntryData(entry)) {
+            LOG.log(Level.WARNING, "Entry ''{0}'': unsupported compression, copied as is", entry.getName());
+            return null;
+        }
+        final String code;
+        try (InputStream in = zip.getInputStream(entry)) {
+            code = new String(IOUtils.toByteArray(in), encoding);
+        }
+        numOfSources++;
+        if (handler != null) {
+            handler.setPrefix(entry.getName() + ": ");
+        }
+        try {
+            final LombokizeResult result = lombokizer.lombokize(entry.getName(), code);
+            if (result.getStatus() == LombokizeResult.Status.FAILED) {
+                LOG.warning("Parse failed, copied as is");
+            }
+            return result.isChanged() ? result.getRevisedCode() : null;
+        } finally {
+            if (handler != null) {
+                handler.setPrefix(null);
+            }
+        }
+    }
+
+    /**
+     * 変換したエントリを、元のエントリの属性を引き継いで圧縮して書き込む.
+     */
+    private void write(ZipArchiveOutputStream out, ZipArchiveEntry entry, String revisedCode) throws IOException {
+        final ZipArchiveEntry revised = new ZipArchiveEntry(entry.getName());
+        revised.setMethod(ZipEntry.DEFLATED);
+        revised.setTime(entry.getTime());
+        revised.setComment(entry.getComment());
+        if (entry.getPlatform() == ZipArchiveEntry.PLATFORM_UNIX) {
+            revised.setUnixMode(entry.getUnixMode());
+        }
+        out.putArchiveEntry(revised);
+        out.write(revisedCode.getBytes(encoding));
+        out.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.crystalduke.lombok;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * プロジェクトのソースファイルで {@code apply} ゴールの処理時間を計測する. ソースファイルは書き換えず、
+ * 型階層の索引とシャードの割り当てはメモリ上だけで作成して保存しない.
+ * スレッド数やトークン列による判定などの設定は {@code apply} ゴールと同じパラメータで指定し、
+ * 設定を有効にする前に、自分のソースファイルでの効果を確認できる.
+ * <p>
+ * ウォームアップの後、計測する回数だけ {@code apply} ゴールと同じ処理を繰り返し、
+ * スループット、段階ごとの処理時間のパーセンタイル、メモリの確保速度、処理に時間がかかったファイルを出力する.
+ * 確保したメモリは、ワーカースレッドでパースと変換に確保したメモリを計測する.
+ * </p>
+ */
+@Mojo(name = "bench", requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class BenchLombokMojo extends ApplyLombokMojo {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    /**
+     * 計測せずに処理する回数. JIT コンパイルが済むまでの処理を計測から除く.
+     */
+    @Parameter(defaultValue = "2", property = "lombokize.bench.warmup")
+    private int warmup;
+    /**
+     * 計測する回数.
+     */
+    @Parameter(defaultValue = "5", property = "lombokize.bench.iterations")
+    private int iterations;
+    /**
+     * 出力する処理に時間がかかったファイルの数.
+     */
+    @Parameter(defaultValue = "10", property = "lombokize.bench.slowest")
+    private int slowest;
+    /**
+     * 計測中の回の結果. ソースファイルの相対パスごとに保持する.
+     */
+    private Map<Path, FileStats> files;
+    private boolean measuring;
+    private int numOfFiles;
+    private long allocatedBytes;
+
+    /**
+     * ソースファイル 1 つの計測結果.
+     */
+    private static class FileStats {
+
+        final long[] elapsedNanos;
+        final long[][] phaseNanos;
+        int count;
+
+        FileStats(int iterations) {
+            elapsedNanos = new long[iterations];
+            phaseNanos = new long[iterations][];
+        }
+
+        long meanNanos() {
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += elapsedNanos[i];
+            }
+            return count > 0 ? total / count : 0;
+        }
+
+        /**
+         * 処理時間が最も長い段階を返す.
+         */
+        LombokizeResult.Phase slowestPhase() {
+            final long[] total = new long[LombokizeResult.Phase.values().length];
+            for (int i = 0; i < count; i++) {
+                if (phaseNanos[i] != null) {
+                    for (int p = 0; p < total.length; p++) {
+                        total[p] += phaseNanos[i][p];
+                    }
+                }
+            }
+            int max = 0;
+            for (int p = 1; p < total.length; p++) {
+                if (total[p] > total[max]) {
+                    max = p;
+                }
+            }
+            return LombokizeResult.Phase.values()[max];
+        }
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (warmup < 0 || iterations < 1 || slowest < 0) {
+            throw new MojoExecutionException("Illegal bench settings: warmup " + warmup + ", iterations "
+                    + iterations + ", slowest " + slowest);
+        }
+        if (diff || outputDirectory != null || resume) {
+            throw new MojoExecutionException("The bench goal writes no patch, output directory or journal");
+        }
+        if (fork) {
+            throw new MojoExecutionException("The bench goal measures this JVM and cannot fork");
+        }
+        if (maxDuration > 0) {
+            throw new MojoExecutionException("The bench goal processes all files in every iteration "
+                    + "and has no max duration");
+        }
+        final Log log = getLog();
+        benchmark = true;
+        // 繰り返し処理するため、ファイルごとの適用結果は出力しない
+        logLevel = Level.WARNING;
+        files = new LinkedHashMap<>();
+        final long[] iterationNanos = new long[iterations];
+        final long[] iterationBytes = new long[iterations];
+        try {
+            for (int i = -warmup; i < iterations; i++) {
+                measuring = i >= 0;
+                numOfFiles = 0;
+                allocatedBytes = 0;
+                final long startTime = System.nanoTime();
+                super.execute();
+                final long elapsed = System.nanoTime() - startTime;
+                if (!measuring) {
+                    log.info(String.format("Warmup %d/%d: %d files in %d ms",
+                            i + warmup + 1, warmup, numOfFiles, elapsed / 1_000_000));
+                    continue;
+                }
+                iterationNanos[i] = elapsed;
+                iterationBytes[i] = allocatedBytes;
+                log.info(String.format("Iteration %d/%d: %d files in %d ms (%.1f files/s)%s",
+                        i + 1, iterations, numOfFiles, elapsed / 1_000_000, numOfFiles * 1e9 / elapsed,
+                        allocatedBytes >= 0
+                                ? String.format(", allocated %d MB (%.1f MB/s)",
+                                        allocatedBytes >> 20, allocatedBytes * 1e9 / elapsed / (1 << 20))
+                                : ""));
+            }
+            report(log, iterationNanos, iterationBytes);
+        } finally {
+            files = null;
+            measuring = false;
+        }
+    }
+
+    @Override
+    boolean resolvesDependencies() {
+        return true;
+    }
+
+    @Override
+    void completed(Path localPath, LombokizeResult result, long[] phaseNanos, long allocatedBytes) {
+        numOfFiles++;
+        if (phaseNanos == null) {
+            // 時間の上限を超えて打ち切ったファイルは計測していない
+        } else if (allocatedBytes < 0 || this.allocatedBytes < 0) {
+            this.allocatedBytes = -1;
+        } else {
+            this.allocatedBytes += allocatedBytes;
+        }
+        if (!measuring) {
+            return;
+        }
+        final FileStats stats = files.computeIfAbsent(localPath, path -> new FileStats(iterations));
+        if (stats.count < iterations) {
+            stats.elapsedNanos[stats.count] = result.getElapsedNanos();
+            stats.phaseNanos[stats.count] = phaseNanos;
+            stats.count++;
+        }
+    }
+
+    /**
+     * 計測した全ての回の結果を出力する.
+     */
+    private void report(Log log, long[] iterationNanos, long[] iterationBytes) {
+        final long[] sortedNanos = iterationNanos.clone();
+        Arrays.sort(sortedNanos);
+        log.info(String.format("Throughput: %.1f files/s (median of %d iterations, %.1f to %.1f)",
+                files.size() * 1e9 / percentile(sortedNanos, 50), iterations,
+                files.size() * 1e9 / sortedNanos[sortedNanos.length - 1], files.size() * 1e9 / sortedNanos[0]));
+        if (Arrays.stream(iterationBytes).allMatch(bytes -> bytes >= 0)) {
+            long totalBytes = 0;
+            long totalNanos = 0;
+            for (int i = 0; i < iterations; i++) {
+                totalBytes += iterationBytes[i];
+                totalNanos += iterationNanos[i];
+            }
+            log.info(String.format("Allocation: %.1f MB/s, %d MB per iteration",
+                    totalBytes * 1e9 / totalNanos / (1 << 20), totalBytes / iterations >> 20));
+        }
+        log.info(String.format("%-8s %7s %10s %10s %10s %10s %7s",
+                "Phase", "files", "p50 ms", "p90 ms", "p99 ms", "max ms", "share"));
+        final LombokizeResult.Phase[] phases = LombokizeResult.Phase.values();
+        final List<List<Long>> samples = new ArrayList<>();
+        long total = 0;
+        for (int p = 0; p < phases.length; p++) {
+            samples.add(new ArrayList<>());
+        }
+        for (FileStats stats : files.values()) {
+            for (int i = 0; i < stats.count; i++) {
+                if (stats.phaseNanos[i] == null) {
+                    continue;
+                }
+                for (int p = 0; p < phases.length; p++) {
+                    // 進まなかった段階は除く
+                    if (stats.phaseNanos[i][p] > 0) {
+                        samples.get(p).add(stats.phaseNanos[i][p]);
+                        total += stats.phaseNanos[i][p];
+                    }
+                }
+            }
+        }
+        for (int p = 0; p < phases.length; p++) {
+            final long[] sorted = samples.get(p).stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                continue;
+            }
+            final StringBuilder line = new StringBuilder(String.format("%-8s %7d", phases[p],
+                    sorted.length / iterations));
+            for (double percent : PERCENTILES) {
+                line.append(String.format(" %10.3f", percentile(sorted, percent) / 1e6));
+            }
+            line.append(String.format(" %10.3f %6.1f%%", sorted[sorted.length - 1] / 1e6,
+                    Arrays.stream(sorted).sum() * 100.0 / Math.max(total, 1)));
+            log.info(line.toString());
+        }
+        if (slowest > 0) {
+            log.info("Slowest files (mean of " + iterations + " iterations):");
+            files.entrySet().stream()
+                    .sorted(Comparator.comparingLong(
+                            (Map.Entry<Path, FileStats> entry) -> entry.getValue().meanNanos()).reversed())
+                    .limit(slowest)
+                    .forEach(entry -> log.info(String.format("%10.3f ms  %-8s %s",
+                            entry.getValue().meanNanos() / 1e6, entry.getValue().slowestPhase(), entry.getKey())));
+        }
+    }
+
+    /**
+     * 最近順位法でパーセンタイルを求める.
+     *
+     * @param sorted 昇順に並べた値
+     * @param percent 百分率
+     */
+    private static long percentile(long[] sorted, double percent) {
+        final int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+}
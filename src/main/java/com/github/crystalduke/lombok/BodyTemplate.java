@@ -0,0 +1,264 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+
+/**
+ * Lombok が生成するメソッド本体のひな形. ひな形は文と式のパターンを組み合わせて宣言し、
+ * 構築時に一度だけ照合器と構造の指紋に変換する.
+ * <p>
+ * 照合では、まず文の数と種類から求めた指紋を比較し、一致した場合だけ構文木を辿る.
+ * 照合器は状態を持たないため、構築したひな形は定数として全てのメソッドの判定に共有できる.
+ * </p>
+ * <pre>
+ * BodyTemplate.of(returns(field()))                         // return this.field;
+ * BodyTemplate.of(evaluates(assigns(field(), parameter(0)))) // this.field = field;
+ * </pre>
+ */
+final class BodyTemplate {
+
+    /**
+     * 指紋に記録する文の数の上限. それ以降の文は数だけを記録する.
+     */
+    private static final int MAX_STATEMENTS = 15;
+    private static final int BITS_PER_STATEMENT = 4;
+    private static final int OTHER = 0;
+    private static final int RETURN_VALUE = 1;
+    private static final int RETURN_VOID = 2;
+    private static final int ASSIGNMENT = 3;
+    private static final int EXPRESSION = 4;
+    /**
+     * 代入式のパターン. 文のパターンではない.
+     */
+    private static final int ASSIGN_EXPRESSION = -1;
+
+    private static final Element FIELD = new Element(OTHER, "field") {
+        @Override
+        boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate) {
+            return predicate.isReferredFrom((Expression) node);
+        }
+    };
+
+    private static final Element THIS = new Element(OTHER, "this") {
+        @Override
+        boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate) {
+            final Expression expression = (Expression) node;
+            return expression.isThisExpr() && !expression.asThisExpr().getTypeName().isPresent();
+        }
+    };
+
+    private final Element[] statements;
+    private final long fingerprint;
+
+    private BodyTemplate(Element[] statements) {
+        this.statements = statements;
+        long value = Math.min(statements.length, MAX_STATEMENTS);
+        for (int i = 0; i < statements.length && i < MAX_STATEMENTS; i++) {
+            value |= (long) statements[i].kind << (BITS_PER_STATEMENT * (i + 1));
+        }
+        this.fingerprint = value;
+    }
+
+    /**
+     * メソッド本体の文のパターンを、出現順に指定してひな形を構築する.
+     *
+     * @param statements 文のパターン
+     * @return ひな形.
+     * @throws IllegalArgumentException 文ではないパターンを指定した場合.
+     */
+    static BodyTemplate of(Element... statements) {
+        for (Element statement : statements) {
+            if (statement.kind <= OTHER) {
+                throw new IllegalArgumentException("Not a statement: " + statement);
+            }
+        }
+        return new BodyTemplate(statements.clone());
+    }
+
+    /**
+     * メソッド本体の構造の指紋を返す. 文の数と、先頭の文から順に各文の種類を 4 ビットずつ詰める.
+     *
+     * @param body メソッド本体
+     * @return 指紋.
+     */
+    static long fingerprint(BlockStmt body) {
+        final NodeList<Statement> list = body.getStatements();
+        final int size = list.size();
+        long value = Math.min(size, MAX_STATEMENTS);
+        for (int i = 0; i < size && i < MAX_STATEMENTS; i++) {
+            value |= (long) kindOf(list.get(i)) << (BITS_PER_STATEMENT * (i + 1));
+        }
+        return value;
+    }
+
+    private static int kindOf(Statement statement) {
+        if (statement.isReturnStmt()) {
+            return statement.asReturnStmt().getExpression().isPresent() ? RETURN_VALUE : RETURN_VOID;
+        }
+        if (statement.isExpressionStmt()) {
+            return statement.asExpressionStmt().getExpression().isAssignExpr() ? ASSIGNMENT : EXPRESSION;
+        }
+        return OTHER;
+    }
+
+    /**
+     * メソッド本体がひな形に一致するか判定する.
+     *
+     * @param method メソッド定義
+     * @param predicate フィールドとの関係を判定するインスタンス
+     * @return 一致すれば {@code true}, 本体がないか一致しなければ {@code false}.
+     */
+    boolean matches(MethodDeclaration method, GeneratedMethodPredicate predicate) {
+        final BlockStmt body = method.getBody().orElse(null);
+        if (body == null || fingerprint(body) != fingerprint) {
+            return false;
+        }
+        final NodeList<Statement> list = body.getStatements();
+        if (list.size() != statements.length) {
+            return false;
+        }
+        for (int i = 0; i < statements.length; i++) {
+            if (!statements[i].matches(list.get(i), method, predicate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code return value;}
+     *
+     * @param value 返り値のパターン
+     * @return 文のパターン.
+     */
+    static Element returns(Element value) {
+        return new Element(RETURN_VALUE, "return " + value) {
+            @Override
+            boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate) {
+                final Expression expression = ((Statement) node).asReturnStmt().getExpression().orElse(null);
+                return expression != null && value.matches(expression, method, predicate);
+            }
+        };
+    }
+
+    /**
+     * {@code expression;}
+     *
+     * @param expression 式のパターン
+     * @return 文のパターン.
+     */
+    static Element evaluates(Element expression) {
+        return new Element(expression.kind == ASSIGN_EXPRESSION ? ASSIGNMENT : EXPRESSION, expression + ";") {
+            @Override
+            boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate) {
+                return expression.matches(((Statement) node).asExpressionStmt().getExpression(),
+                        method, predicate);
+            }
+        };
+    }
+
+    /**
+     * {@code target = value}. 複合代入演算子には一致しない.
+     *
+     * @param target 左辺のパターン
+     * @param value 右辺のパターン
+     * @return 式のパターン. {@link #evaluates(Element)} に指定した場合は代入文となる.
+     */
+    static Element assigns(Element target, Element value) {
+        return new Element(ASSIGN_EXPRESSION, target + " = " + value) {
+            @Override
+            boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate) {
+                final Expression expression = (Expression) node;
+                if (!expression.isAssignExpr()) {
+                    return false;
+                }
+                final AssignExpr assignExpr = expression.asAssignExpr();
+                return assignExpr.getOperator() == AssignExpr.Operator.ASSIGN
+                        && target.matches(assignExpr.getTarget(), method, predicate)
+                        && value.matches(assignExpr.getValue(), method, predicate);
+            }
+        };
+    }
+
+    /**
+     * 判定対象のフィールドへの参照. 参照の形式は {@link GeneratedMethodPredicate#isReferredFrom} に従う.
+     *
+     * @return 式のパターン.
+     */
+    static Element field() {
+        return FIELD;
+    }
+
+    /**
+     * 指定した位置の引数の名前.
+     *
+     * @param index 引数の位置
+     * @return 式のパターン.
+     */
+    static Element parameter(int index) {
+        return new Element(OTHER, "parameter" + index) {
+            @Override
+            boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate) {
+                final NodeList<Parameter> parameters = method.getParameters();
+                final Expression expression = (Expression) node;
+                return index < parameters.size()
+                        && expression.isNameExpr()
+                        && expression.asNameExpr().getName().getIdentifier()
+                                .equals(parameters.get(index).getName().getIdentifier());
+            }
+        };
+    }
+
+    /**
+     * 型名で修飾しない {@code this}.
+     *
+     * @return 式のパターン.
+     */
+    static Element unqualifiedThis() {
+        return THIS;
+    }
+
+    /**
+     * 文または式のパターン. 文のパターンは、指紋で種類が一致することを確認してから照合する.
+     */
+    abstract static class Element {
+
+        private final int kind;
+        private final String description;
+
+        private Element(int kind, String description) {
+            this.kind = kind;
+            this.description = description;
+        }
+
+        /**
+         * 構文木のノードがパターンに一致するか判定する.
+         *
+         * @param node 文または式
+         * @param method ノードを含むメソッド定義
+         * @param predicate フィールドとの関係を判定するインスタンス
+         * @return 一致すれば {@code true}, それ以外は {@code false}.
+         */
+        abstract boolean matches(Node node, MethodDeclaration method, GeneratedMethodPredicate predicate);
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        for (Element statement : statements) {
+            builder.append(' ').append(statement);
+        }
+        return builder.append(" }").toString();
+    }
+}
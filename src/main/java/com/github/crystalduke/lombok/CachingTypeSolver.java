@@ -0,0 +1,148 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ClassLoaderTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 型の解決結果をメモ化する {@link TypeSolver}. 解決済みの型は複数スレッドからロックなしで参照できる.
+ * 委譲先の {@link TypeSolver} はスレッドセーフではないため、未解決の型の解決は直列化する.
+ * 使い終えたら {@link #close()} でクラスパスのディレクトリを読み込むクラスローダーを閉じる.
+ */
+public class CachingTypeSolver implements TypeSolver, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(CachingTypeSolver.class.getName());
+
+    private final TypeSolver delegate;
+    private final ConcurrentMap<String, SymbolReference<ResolvedReferenceTypeDeclaration>> cache
+            = new ConcurrentHashMap<>();
+    /**
+     * クラスパスのディレクトリからクラスを読み込むクラスローダー. ディレクトリがない場合は {@code null}.
+     */
+    private final URLClassLoader classLoader;
+    private TypeSolver parent;
+
+    /**
+     * 委譲先の {@link TypeSolver} を指定してオブジェクトを構築する.
+     *
+     * @param delegate 委譲先. 委譲先の親にはこのインスタンスを設定する.
+     */
+    public CachingTypeSolver(TypeSolver delegate) {
+        this(delegate, null);
+    }
+
+    private CachingTypeSolver(TypeSolver delegate, URLClassLoader classLoader) {
+        this.delegate = delegate;
+        this.classLoader = classLoader;
+        // 委譲先から他の型を解決する場合もキャッシュを経由させる
+        delegate.setParent(this);
+    }
+
+    /**
+     * JRE のクラス、コンパイル時のクラスパスに含まれる JAR ファイル、ソースディレクトリ、
+     * クラスパスに含まれるディレクトリの順に型を解決するインスタンスを返す.
+     * マルチモジュールのビルドでは、同じリアクターの他のモジュールはソースディレクトリではなく
+     * {@code target/classes} などのディレクトリとしてクラスパスに含まれる.
+     * ディレクトリのクラスは、親クラスを読み込めるように JAR ファイルと合わせたクラスローダーで読み込む.
+     *
+     * @param classpathElements コンパイル時のクラスパス
+     * @param sourceRoots ソースディレクトリ
+     * @param config ソースディレクトリのパースに用いる設定
+     * @return 型を解決するインスタンス.
+     */
+    public static CachingTypeSolver of(List<String> classpathElements, List<String> sourceRoots,
+            ParserConfiguration config) {
+        final List<TypeSolver> solvers = new ArrayList<>();
+        solvers.add(new ReflectionTypeSolver(true));
+        final List<URL> urls = new ArrayList<>();
+        boolean hasDirectory = false;
+        for (String element : classpathElements) {
+            Path path = Paths.get(element);
+            try {
+                if (Files.isRegularFile(path)) {
+                    solvers.add(new JarTypeSolver(path));
+                    urls.add(path.toUri().toURL());
+                } else if (Files.isDirectory(path)) {
+                    urls.add(path.toUri().toURL());
+                    hasDirectory = true;
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        for (String sourceRoot : sourceRoots) {
+            Path path = Paths.get(sourceRoot);
+            if (Files.isDirectory(path)) {
+                solvers.add(new JavaParserTypeSolver(path, config));
+            }
+        }
+        URLClassLoader classLoader = null;
+        if (hasDirectory) {
+            // JRE のクラスは ReflectionTypeSolver と同じものを使う
+            classLoader = new URLClassLoader(urls.toArray(new URL[0]),
+                    ClassLoader.getSystemClassLoader().getParent());
+            solvers.add(new ClassLoaderTypeSolver(classLoader));
+        }
+        LOG.log(Level.FINE, "Type solver built from {0} sources", solvers.size());
+        return new CachingTypeSolver(new CombinedTypeSolver(solvers.toArray(new TypeSolver[0])), classLoader);
+    }
+
+    /**
+     * クラスパスのディレクトリを読み込むクラスローダーを閉じる. 閉じた後は型を解決できない.
+     *
+     * @throws IOException クラスローダーが開いたファイルを閉じられない場合.
+     */
+    @Override
+    public void close() throws IOException {
+        if (classLoader != null) {
+            classLoader.close();
+        }
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        SymbolReference<ResolvedReferenceTypeDeclaration> reference = cache.get(name);
+        if (reference != null) {
+            return reference;
+        }
+        // 委譲先から再帰的に呼び出されるため computeIfAbsent は使えない
+        synchronized (delegate) {
+            reference = cache.get(name);
+            if (reference == null) {
+                reference = delegate.tryToSolveType(name);
+                cache.put(name, reference);
+            }
+            return reference;
+        }
+    }
+}
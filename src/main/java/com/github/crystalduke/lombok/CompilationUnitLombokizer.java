@@ -1,7 +1,8 @@
 package com.github.crystalduke.lombok;
 
+import com.github.javaparser.JavaParser;
 import com.github.javaparser.JavaToken;
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ParseStart;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.Node;
@@ -12,26 +13,74 @@ import com.github.javaparser.ast.expr.MemberValuePair;
 import com.github.javaparser.ast.expr.NormalAnnotationExpr;
 import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
 import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 /**
  * {@link CompilationUnit} 単位で Lombok アノテーションを適用するクラス.
  */
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class CompilationUnitLombokizer implements Function<CompilationUnit, CompilationUnit> {
 
     private static final Logger LOG = Logger.getLogger(CompilationUnitLombokizer.class.getName());
     private final boolean jdk7;
+    private final TypeMatcher typeMatcher;
+    /**
+     * 型階層の索引. 設定した場合、オーバーライドの関係にあるメソッドは削除しない.
+     */
+    @Setter
+    private TypeHierarchyIndex typeHierarchy;
+    /**
+     * ソースファイルに適用される {@code lombok.config} の設定.
+     */
+    @Setter
+    @NonNull
+    private LombokConfig lombokConfig = LombokConfig.DEFAULT;
+    /**
+     * ソースファイルの処理に許す時間. フィールドと型宣言ごとに確認し、超えていれば処理を打ち切る.
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @NonNull
+    private TimeBudget timeBudget = TimeBudget.unlimited();
+    /**
+     * アノテーションを適用した後にパースし直すパーサー. {@code null} の場合は、
+     * スレッドごとに生成した既定の設定のパーサーを用いる.
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private JavaParser parser;
+    /**
+     * 直前の {@link #apply(CompilationUnit)} で付与した {@link Getter} の数.
+     */
+    @Getter
+    private int numOfGetters;
+    /**
+     * 直前の {@link #apply(CompilationUnit)} で付与した {@link Setter} の数.
+     */
+    @Getter
+    private int numOfSetters;
+    /**
+     * 直前の {@link #apply(CompilationUnit)} でアノテーションを付与したフィールドの数.
+     */
+    @Getter
+    private int numOfFields;
+    /**
+     * 直前の {@link #apply(CompilationUnit)} でクラス単位のアノテーションに置き換えた回数.
+     */
+    @Getter
+    private int numOfTypes;
 
     /**
      * JDK 8 以上のソースを対象としたインスタンスを構築する.
@@ -40,6 +89,15 @@ public class CompilationUnitLombokizer implements Function<CompilationUnit, Comp
         this(false);
     }
 
+    /**
+     * 型を文字列として比較するインスタンスを構築する.
+     *
+     * @param jdk7 JDK 7 用のソースを出力する場合は {@code true}, そうでなければ {@code false}.
+     */
+    public CompilationUnitLombokizer(boolean jdk7) {
+        this(jdk7, new TypeMatcher());
+    }
+
     /**
      * Lombok アノテーションを適用した {@link CompilationUnit} を返す.
      *
@@ -48,16 +106,44 @@ public class CompilationUnitLombokizer implements Function<CompilationUnit, Comp
      */
     @Override
     public CompilationUnit apply(CompilationUnit cu) {
+        PhantomNodeCache.acquire();
+        try {
+            return lombokize(cu);
+        } finally {
+            // LexicalPreservingPrinter が全ノードを static に保持し続けるため、ファイルごとに解放する
+            PhantomNodeCache.release();
+        }
+    }
+
+    private CompilationUnit lombokize(CompilationUnit cu) {
         LexicalPreservingPrinter.setup(cu);
-        final FieldLombokizer getter = FieldLombokizer.forGetter(jdk7);
-        final FieldLombokizer setter = FieldLombokizer.forSetter(jdk7);
+        final FieldLombokizer getter = FieldLombokizer.forGetter(jdk7, typeMatcher);
+        final FieldLombokizer setter = FieldLombokizer.forSetter(jdk7, typeMatcher);
+        getter.setTypeHierarchy(typeHierarchy);
+        setter.setTypeHierarchy(typeHierarchy);
+        getter.setLombokConfig(lombokConfig);
+        setter.setLombokConfig(lombokConfig);
+        // 型宣言ごとにフィールドを要約する. 構文木を作り直しても型宣言の出現順は変わらない
+        final List<TypeSummary> summaries = new ArrayList<>();
+        final Map<Node, TypeSummary> summaryByType = new IdentityHashMap<>();
+        for (TypeDeclaration<?> typeDeclaration : cu.findAll(TypeDeclaration.class)) {
+            final TypeSummary summary = new TypeSummary(typeDeclaration);
+            summaries.add(summary);
+            summaryByType.put(typeDeclaration, summary);
+        }
         // フィールド単位にアノテーションを適用する
+        timeBudget.enter(LombokizeResult.Phase.FIELDS);
         int numOfGetter = 0;
         int numOfSetter = 0;
         int numOfFields = 0;
+        int numOfTypes = 0;
         for (FieldDeclaration field : cu.findAll(FieldDeclaration.class)) {
-            final boolean addGetter = getter.apply(field);
-            final boolean addSetter = setter.apply(field);
+            timeBudget.check();
+            final TypeSummary summary = field.getParentNode()
+                    .map(summaryByType::get)
+                    .orElse(null);
+            final boolean addGetter = getter.apply(field, summary);
+            final boolean addSetter = setter.apply(field, summary);
             if (addGetter || addSetter) {
                 numOfFields++;
             }
@@ -69,6 +155,7 @@ public class CompilationUnitLombokizer implements Function<CompilationUnit, Comp
             }
         }
         if (numOfFields > 0) {
+            timeBudget.enter(LombokizeResult.Phase.IMPORTS);
             cu = refresh(cu);
             LOG.log(Level.INFO, "Added {0} @Getter and {1} @Setter on {2} fields",
                     new Object[] {numOfGetter, numOfSetter, numOfFields});
@@ -92,24 +179,37 @@ public class CompilationUnitLombokizer implements Function<CompilationUnit, Comp
             }
         }
         // クラス単位にアノテーションを適用する
-        boolean modified = false;
-        for (TypeDeclaration typeDeclaration : cu.findAll(TypeDeclaration.class)) {
-            modified |= getter.apply(typeDeclaration);
-            modified |= setter.apply(typeDeclaration);
+        timeBudget.enter(LombokizeResult.Phase.TYPES);
+        final List<TypeDeclaration> typeDeclarations = cu.findAll(TypeDeclaration.class);
+        for (int i = 0; i < typeDeclarations.size(); i++) {
+            timeBudget.check();
+            final TypeDeclaration<?> typeDeclaration = typeDeclarations.get(i);
+            final TypeSummary summary = summaries.get(i);
+            if (getter.apply(typeDeclaration, summary)) {
+                numOfTypes++;
+            }
+            if (setter.apply(typeDeclaration, summary)) {
+                numOfTypes++;
+            }
         }
-        if (modified) {
+        if (numOfTypes > 0) {
             cu = refresh(cu);
         }
+        this.numOfGetters = numOfGetter;
+        this.numOfSetters = numOfSetter;
+        this.numOfFields = numOfFields;
+        this.numOfTypes = numOfTypes;
         return cu;
     }
 
     /**
      * JavaToken を元に文字列にして、再度パースし直したものを返す.
      */
-    private static CompilationUnit refresh(CompilationUnit cu) {
+    private CompilationUnit refresh(CompilationUnit cu) {
         // JavaToken を元に文字列にして、再度パースし直す
         String code = TokenUtil.asString(cu);
-        cu = StaticJavaParser.parse(code);
+        cu = TokenUtil.parse(parser != null ? parser : TokenUtil.defaultParser(),
+                ParseStart.COMPILATION_UNIT, code);
         LexicalPreservingPrinter.setup(cu);
         return cu;
     }
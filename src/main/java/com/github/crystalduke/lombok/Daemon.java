@@ -0,0 +1,373 @@
+package com.github.crystalduke.lombok;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JVM を起動したまま Lombok アノテーションを適用し続けるデーモン. パーサーと {@code lombok.config}
+ * の設定を使い回すため、pre-commit フックやエディタから 1 ファイルずつ呼び出しても、
+ * JVM の起動とウォームアップの時間がかからない.
+ * <p>
+ * 標準入出力、ループバックアドレスの TCP、Unix ドメインソケット (Java 21 以降) で要求を受け付ける.
+ * 1 つの接続の要求は順に処理し、複数の接続は並行して処理する. 要求は UTF-8 のヘッダ行と、
+ * {@code CODE} の場合は続く本文からなる.
+ * </p>
+ * <p>
+ * TCP の接続では、同じマシンの他のユーザーが要求できないよう、最初の要求でトークンを送る必要がある.
+ * トークンはデーモンの起動ごとに生成し、所有者だけが読めるファイルに書き込む. 最初の要求が
+ * 正しいトークンでなければ {@code ERROR} を返して接続を閉じる. Unix ドメインソケットは
+ * 所有者だけが接続できるパーミッションで作成するため、トークンを送る必要はない.
+ * </p>
+ * <pre>
+ * AUTH トークン            接続の最初の要求として、デーモンのトークンを送る (TCP の場合のみ).
+ * FILE パス                ファイルを読み込んで処理する. ファイルは書き換えない.
+ * CODE バイト数 [パス]      続く本文 (ソースの文字コード) を、パスのファイルの内容として処理する.
+ * RELOAD                   キャッシュした lombok.config の設定を破棄する.
+ * SHUTDOWN                 デーモンを終了する.
+ * </pre>
+ * {@code FILE} と {@code CODE} には、次のヘッダ行と、状態が {@code CHANGED} の場合は
+ * 適用後のソースコードを本文として返す. 状態は {@link LombokizeResult.Status} の名前とする.
+ * <pre>
+ * 状態 getters=数 setters=数 fields=数 types=数 micros=処理時間 length=本文のバイト数
+ * </pre>
+ * 要求の誤りや読み込み、適用に失敗した場合は {@code ERROR メッセージ} を返し、接続は維持する.
+ * ただし {@code CODE} のバイト数が不正で本文を読み飛ばせない場合は、以降の要求の区切りが分からないため
+ * {@code ERROR} を返して接続を閉じる. バイト数の上限は {@value #MAX_CODE_LENGTH} とする.
+ * {@code AUTH}, {@code RELOAD}, {@code SHUTDOWN} は {@code OK} を返す.
+ */
+final class Daemon {
+
+    private static final Logger LOG = Logger.getLogger(Daemon.class.getName());
+    /**
+     * 最初の要求までにパーサーと変換のクラスを読み込んでおくためのソースコード.
+     */
+    private static final String WARM_UP_CODE = "class WarmUp {\n"
+            + "    private int value;\n"
+            + "    public int getValue() {\n"
+            + "        return value;\n"
+            + "    }\n"
+            + "    public void setValue(int value) {\n"
+            + "        this.value = value;\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final int TOKEN_BYTES = 32;
+    /**
+     * {@code CODE} の本文のバイト数の上限.
+     */
+    static final int MAX_CODE_LENGTH = 64 * 1024 * 1024;
+
+    private final Lombokizer lombokizer;
+    private final LombokConfigResolver lombokConfigResolver;
+    private final Charset encoding;
+    private final long idleTimeoutNanos;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile long lastActivity = System.nanoTime();
+
+    /**
+     * デーモンを構築する.
+     *
+     * @param lombokizer Lombok アノテーションを適用するエンジン
+     * @param lombokConfigResolver エンジンが参照する {@code lombok.config} の設定. 参照しない場合は {@code null}.
+     * @param encoding ソースファイルの文字コード
+     * @param idleTimeoutMillis 要求がなければ終了するまでの時間 (ミリ秒). 0 以下の場合は終了しない.
+     */
+    Daemon(Lombokizer lombokizer, LombokConfigResolver lombokConfigResolver, Charset encoding,
+            long idleTimeoutMillis) {
+        this.lombokizer = lombokizer;
+        this.lombokConfigResolver = lombokConfigResolver;
+        this.encoding = encoding;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(idleTimeoutMillis, 0));
+    }
+
+    /**
+     * 接続の認証に使うトークンを生成する.
+     *
+     * @return 16 進数の文字列.
+     */
+    static String newToken() {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+
+    /**
+     * パーサーと変換のクラスを読み込んでおく.
+     */
+    void warmUp() {
+        final long startTime = System.nanoTime();
+        lombokizer.lombokize("WarmUp.java", WARM_UP_CODE);
+        LOG.log(Level.FINE, "Warmed up in {0,number,#} ms", (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    /**
+     * 1 つのストリームで要求を受け付け、入力が終わるか、デーモンが終了するまで待つ.
+     *
+     * @param in 要求を読み込むストリーム
+     * @param out 応答を書き込むストリーム
+     * @throws InterruptedException 待っている間に割り込まれた場合.
+     */
+    void serve(InputStream in, OutputStream out) throws InterruptedException {
+        final Thread thread = new Thread(() -> {
+            try {
+                session(in, out, null);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Session failed", ex);
+            } finally {
+                stop();
+            }
+        }, "lombokize-daemon-session");
+        thread.setDaemon(true);
+        thread.start();
+        awaitStop();
+    }
+
+    /**
+     * 接続を受け付け、デーモンが終了するまで待つ. 接続ごとにスレッドを割り当てる.
+     * 終了した時点で {@code server} を閉じる.
+     *
+     * @param server 待ち受けを始めた {@link ServerSocketChannel}
+     * @param token 接続の最初の要求で送らせるトークン. {@code null} の場合は認証しない.
+     * @throws InterruptedException 待っている間に割り込まれた場合.
+     * @throws IOException {@code server} を閉じられない場合.
+     */
+    void serve(ServerSocketChannel server, String token) throws InterruptedException, IOException {
+        final AtomicInteger counter = new AtomicInteger();
+        // スレッドごとのパーサーを使い回すため、仮想スレッドではなくスレッドプールで処理する
+        final ExecutorService sessions = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "lombokize-daemon-session-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    final SocketChannel channel = server.accept();
+                    sessions.execute(() -> session(channel, token));
+                }
+            } catch (ClosedChannelException ex) {
+                // 終了した
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Failed to accept a connection", ex);
+            } finally {
+                stop();
+            }
+        }, "lombokize-daemon-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        try {
+            awaitStop();
+        } finally {
+            server.close();
+            sessions.shutdownNow();
+        }
+    }
+
+    /**
+     * デーモンを終了する. 処理中の要求は中断しない.
+     */
+    void stop() {
+        stopped.countDown();
+    }
+
+    /**
+     * 終了するか、要求がないまま {@link #idleTimeoutNanos} を過ぎるまで待つ.
+     */
+    private void awaitStop() throws InterruptedException {
+        if (idleTimeoutNanos == 0) {
+            stopped.await();
+            return;
+        }
+        final long interval = Math.min(idleTimeoutNanos, TimeUnit.SECONDS.toNanos(1));
+        while (!stopped.await(interval, TimeUnit.NANOSECONDS)) {
+            if (active.get() == 0 && System.nanoTime() - lastActivity > idleTimeoutNanos) {
+                LOG.log(Level.INFO, "No requests for {0,number,#} s, shutting down",
+                        TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos));
+                return;
+            }
+        }
+    }
+
+    private void session(SocketChannel channel, String token) {
+        try (SocketChannel closing = channel) {
+            session(Channels.newInputStream(closing), Channels.newOutputStream(closing), token);
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Connection closed", ex);
+        }
+    }
+
+    /**
+     * 入力が終わるまで要求を順に処理する.
+     *
+     * @param token 最初の要求で送らせるトークン. {@code null} の場合は認証しない.
+     */
+    private void session(InputStream in, OutputStream out, String token) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+        final OutputStream output = new BufferedOutputStream(out);
+        if (token != null) {
+            final String line = readLine(input);
+            if (line == null || !line.startsWith("AUTH ") || !MessageDigest.isEqual(
+                    token.getBytes(StandardCharsets.UTF_8), line.substring(5).getBytes(StandardCharsets.UTF_8))) {
+                LOG.warning("Rejected a connection without the token");
+                writeLine(output, "ERROR Authentication required");
+                output.flush();
+                return;
+            }
+            writeLine(output, "OK");
+            output.flush();
+        }
+        for (String line = readLine(input); line != null; line = readLine(input)) {
+            active.incrementAndGet();
+            try {
+                if (!handle(line, input, output)) {
+                    return;
+                }
+            } finally {
+                output.flush();
+                lastActivity = System.nanoTime();
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 要求を 1 つ処理する.
+     *
+     * @return 接続を続ける場合は {@code true}, デーモンを終了する場合は {@code false}.
+     */
+    private boolean handle(String line, DataInputStream in, OutputStream out) throws IOException {
+        final int space = line.indexOf(' ');
+        final String command = space < 0 ? line : line.substring(0, space);
+        final String argument = space < 0 ? "" : line.substring(space + 1);
+        try {
+            switch (command) {
+                case "FILE":
+                    respond(out, lombokizer.lombokize(Paths.get(argument)));
+                    break;
+                case "CODE":
+                    lombokizeCode(argument, in, out);
+                    break;
+                case "RELOAD":
+                    if (lombokConfigResolver != null) {
+                        lombokConfigResolver.clear();
+                    }
+                    writeLine(out, "OK");
+                    break;
+                case "SHUTDOWN":
+                    writeLine(out, "OK");
+                    stop();
+                    return false;
+                default:
+                    writeLine(out, "ERROR Unknown request: " + command);
+                    break;
+            }
+        } catch (EOFException ex) {
+            // 本文を読み込めなかった場合は、以降の要求の区切りが分からないため接続を閉じる
+            throw ex;
+        } catch (MalformedLengthException ex) {
+            writeLine(out, "ERROR " + ex.getMessage());
+            return false;
+        } catch (IOException | UncheckedIOException | IllegalArgumentException ex) {
+            writeLine(out, "ERROR " + ex);
+        } catch (RuntimeException ex) {
+            // 1 つのソースの失敗で接続を終えないよう、適用中の予期しない例外も応答する
+            LOG.log(Level.WARNING, "Request failed: " + line, ex);
+            writeLine(out, "ERROR " + ex);
+        }
+        return true;
+    }
+
+    /**
+     * {@code CODE} のバイト数が不正で、本文を読み飛ばせないことを表す.
+     */
+    private static final class MalformedLengthException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        MalformedLengthException(String length) {
+            super("Illegal length: " + length);
+        }
+    }
+
+    private void lombokizeCode(String argument, DataInputStream in, OutputStream out) throws IOException {
+        final int space = argument.indexOf(' ');
+        final String header = space < 0 ? argument : argument.substring(0, space);
+        final int length;
+        try {
+            length = Integer.parseInt(header);
+        } catch (NumberFormatException ex) {
+            throw new MalformedLengthException(header);
+        }
+        if (length < 0 || length > MAX_CODE_LENGTH) {
+            throw new MalformedLengthException(header);
+        }
+        final byte[] body = new byte[length];
+        in.readFully(body);
+        final String code = new String(body, encoding);
+        respond(out, space < 0
+                ? lombokizer.lombokize("<stdin>", code)
+                : lombokizer.lombokize(Paths.get(argument.substring(space + 1)), code));
+    }
+
+    private void respond(OutputStream out, LombokizeResult result) throws IOException {
+        final byte[] body = result.isChanged() ? result.getRevisedCode().getBytes(encoding) : new byte[0];
+        writeLine(out, String.format("%s getters=%d setters=%d fields=%d types=%d micros=%d length=%d",
+                result.getStatus(), result.getNumOfGetters(), result.getNumOfSetters(), result.getNumOfFields(),
+                result.getNumOfTypes(), TimeUnit.NANOSECONDS.toMicros(result.getElapsedNanos()), body.length));
+        out.write(body);
+        LOG.log(Level.FINE, "{0}: {1}", new Object[] {result.getName(), result.getStatus()});
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    /**
+     * UTF-8 のヘッダ行を読み込む. 本文はバイト数で読み込むため、文字単位で先読みする
+     * {@link java.io.BufferedReader} は使わない.
+     *
+     * @return 改行を除いた行. 入力が終わった場合は {@code null}.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+        while (c >= 0 && c != '\n') {
+            line.write(c);
+            c = in.read();
+        }
+        final String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+}
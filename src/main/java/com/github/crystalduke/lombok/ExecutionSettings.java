@@ -0,0 +1,172 @@
+package com.github.crystalduke.lombok;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * {@link ApplyLombokMojo} の実行の設定. 子プロセスの JVM に渡すため、{@link Properties} との変換を
+ * このクラスだけで行う.
+ * <p>
+ * 各フィールドは {@link ApplyLombokMojo} の同じ名前のフィールドに対応し、{@link #of(ApplyLombokMojo)} と
+ * {@link #applyTo(ApplyLombokMojo)} はフィールドの名前で値を写す. 子プロセスに渡す設定を追加する場合は、
+ * このクラスにフィールドを追加する. 対応する型は {@link String}, {@link File}, {@code boolean}, {@code int},
+ * {@code long} と、パス区切り文字で連結する {@code List<String>} とする. キーはフィールド名とし、
+ * {@code null} のフィールドは保存しない.
+ * </p>
+ */
+@EqualsAndHashCode
+@ToString
+final class ExecutionSettings {
+
+    private File sourceDirectory;
+    private String encoding;
+    private String languageLevel;
+    private boolean prefilter;
+    private boolean skipGenerated;
+    private boolean skipLombokized;
+    private boolean resolveTypes;
+    private boolean hierarchyAware;
+    private File indexFile;
+    private boolean diff;
+    private File patchFile;
+    private File outputDirectory;
+    private File basedir;
+    private int shardIndex;
+    private int shardCount;
+    private boolean shardBySize;
+    private File reportDirectory;
+    private boolean useLombokConfig;
+    private long timeBudget;
+    private int threads;
+    private int heapBudget;
+    private long largeFileSize;
+    private boolean resume;
+    private long maxDuration;
+    private List<String> classpathElements;
+    private List<String> compileSourceRoots;
+
+    /**
+     * ゴールの設定を取得する.
+     *
+     * @param mojo ゴール
+     * @return 取得した設定.
+     */
+    static ExecutionSettings of(ApplyLombokMojo mojo) {
+        final ExecutionSettings settings = new ExecutionSettings();
+        for (Field field : fields()) {
+            set(field, settings, get(mojoField(field), mojo));
+        }
+        return settings;
+    }
+
+    /**
+     * ゴールに設定する. {@link ApplyLombokMojo#fork} は設定しない.
+     *
+     * @param mojo ゴール
+     */
+    void applyTo(ApplyLombokMojo mojo) {
+        for (Field field : fields()) {
+            set(mojoField(field), mojo, get(field, this));
+        }
+    }
+
+    /**
+     * {@link Properties} に変換する.
+     *
+     * @return 変換した設定.
+     */
+    @SuppressWarnings("unchecked")
+    Properties toProperties() {
+        final Properties properties = new Properties();
+        for (Field field : fields()) {
+            final Object value = get(field, this);
+            if (value != null) {
+                properties.setProperty(field.getName(), value instanceof List
+                        ? String.join(File.pathSeparator, (List<String>) value)
+                        : value.toString());
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * {@link #toProperties()} で変換した設定を読み込む. 設定にないキーは無視する.
+     *
+     * @param properties 設定
+     * @return 読み込んだ設定.
+     */
+    static ExecutionSettings fromProperties(Properties properties) {
+        final ExecutionSettings settings = new ExecutionSettings();
+        for (Field field : fields()) {
+            final String value = properties.getProperty(field.getName());
+            if (value != null) {
+                set(field, settings, parse(field.getType(), value));
+            }
+        }
+        return settings;
+    }
+
+    private static Object parse(Class<?> type, String value) {
+        if (type == String.class) {
+            return value;
+        } else if (type == File.class) {
+            return new File(value);
+        } else if (type == boolean.class) {
+            return Boolean.parseBoolean(value);
+        } else if (type == int.class) {
+            return Integer.parseInt(value);
+        } else if (type == long.class) {
+            return Long.parseLong(value);
+        } else if (type == List.class) {
+            return value.isEmpty() ? Collections.emptyList() : Arrays.asList(value.split(File.pathSeparator));
+        }
+        throw new IllegalStateException("Unsupported type: " + type);
+    }
+
+    /**
+     * 設定のフィールドを返す.
+     */
+    static List<Field> fields() {
+        final List<Field> fields = new ArrayList<>();
+        for (Field field : ExecutionSettings.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static Field mojoField(Field field) {
+        try {
+            return ApplyLombokMojo.class.getDeclaredField(field.getName());
+        } catch (NoSuchFieldException ex) {
+            throw new IllegalStateException("No parameter for " + field.getName(), ex);
+        }
+    }
+
+    private static Object get(Field field, Object target) {
+        try {
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void set(Field field, Object target, Object value) {
+        try {
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package com.github.crystalduke.lombok;
 
 import com.github.javaparser.JavaToken;
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.Modifier;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.TypeDeclaration;
@@ -29,21 +29,43 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 /**
  * Lombok アノテーションを適用し、メソッドを削除する.
  */
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
 
     private static final Logger LOG = Logger.getLogger(FieldLombokizer.class.getName());
 
     final Class<? extends Annotation> annotationClass;
-    final Function<VariableDeclarator, GeneratedMethodPredicate> toPredicate;
+    final PredicateFactory toPredicate;
     final boolean jdk7;
+    /**
+     * 型階層の索引. 設定した場合、オーバーライドの関係にあるメソッドは削除しない.
+     */
+    @Setter
+    private TypeHierarchyIndex typeHierarchy;
+    /**
+     * ソースファイルに適用される {@code lombok.config} の設定.
+     */
+    @Setter
+    @NonNull
+    private LombokConfig lombokConfig = LombokConfig.DEFAULT;
+
+    /**
+     * フィールドの変数ごとに {@link GeneratedMethodPredicate} を生成する.
+     */
+    @FunctionalInterface
+    interface PredicateFactory {
+
+        GeneratedMethodPredicate create(VariableDeclarator variable, TypeSummary summary,
+                LombokConfig config);
+    }
 
     /**
      * {@link Getter} を適用してメソッドを削除するインスタンスを返す.
@@ -61,7 +83,20 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
      * @return {@link Getter} を適用するインスタンス.
      */
     public static FieldLombokizer forGetter(boolean jdk7) {
-        return new FieldLombokizer(Getter.class, GeneratedGetterPredicate::new, jdk7);
+        return forGetter(jdk7, new TypeMatcher());
+    }
+
+    /**
+     * {@link Getter} を適用してメソッドを削除するインスタンスを返す.
+     *
+     * @param jdk7 JDK 7 用のソースを出力する場合は {@code true}, そうでなければ {@code false}.
+     * @param typeMatcher フィールドとメソッドの型を比較するインスタンス.
+     * @return {@link Getter} を適用するインスタンス.
+     */
+    public static FieldLombokizer forGetter(boolean jdk7, TypeMatcher typeMatcher) {
+        return new FieldLombokizer(Getter.class,
+                (variable, summary, config) -> new GeneratedGetterPredicate(variable, typeMatcher,
+                        summary, config), jdk7);
     }
 
     /**
@@ -80,7 +115,20 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
      * @return {@link Setter} を適用するインスタンス.
      */
     public static FieldLombokizer forSetter(boolean jdk7) {
-        return new FieldLombokizer(Setter.class, GeneratedSetterPredicate::new, jdk7);
+        return forSetter(jdk7, new TypeMatcher());
+    }
+
+    /**
+     * {@link Setter} を適用してメソッドを削除するインスタンスを返す.
+     *
+     * @param jdk7 JDK 7 用のソースを出力する場合は {@code true}, そうでなければ {@code false}.
+     * @param typeMatcher フィールドとメソッドの引数の型を比較するインスタンス.
+     * @return {@link Setter} を適用するインスタンス.
+     */
+    public static FieldLombokizer forSetter(boolean jdk7, TypeMatcher typeMatcher) {
+        return new FieldLombokizer(Setter.class,
+                (variable, summary, config) -> new GeneratedSetterPredicate(variable, typeMatcher,
+                        summary, config), jdk7);
     }
 
     /**
@@ -91,6 +139,19 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
      * @return クラスにアノテーションを付与した場合は {@code true}, それ以外は {@code false}.
      */
     public Boolean apply(TypeDeclaration<?> typeDeclaration) {
+        return apply(typeDeclaration, new TypeSummary(typeDeclaration));
+    }
+
+    /**
+     * 全ての非 static フィールドに属性のないアノテーションが付与されていた場合,
+     * フィールドのアノテーションは削除し,クラスにアノテーションを付与する.
+     * 付与されているかどうかは、構文木を走査せずに型の要約から判定する.
+     *
+     * @param typeDeclaration 型宣言
+     * @param summary 型宣言の要約. フィールド単位の処理で付与したアノテーションを記録したもの.
+     * @return クラスにアノテーションを付与した場合は {@code true}, それ以外は {@code false}.
+     */
+    boolean apply(TypeDeclaration<?> typeDeclaration, TypeSummary summary) {
         if (Setter.class.equals(annotationClass)
                 && typeDeclaration.isEnumDeclaration()) {
             // enum は Setter を付与するとエラーとなるので対象外
@@ -105,24 +166,8 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
                     });
             return false;
         }
-        // 属性のないアノテーション (MarkerAnnotationExpr）
-        List<Optional<AnnotationExpr>> annotations = typeDeclaration
-                // 型宣言の子ノードのうち
-                .getChildNodes()
-                .stream()
-                // フィールドが
-                .filter(FieldDeclaration.class::isInstance)
-                .map(FieldDeclaration.class::cast)
-                // 非 static なものが
-                .filter(field -> !field.isStatic())
-                // 指定のアノテーションが付与されていて
-                .map(field -> field.getAnnotationByClass(annotationClass))
-                // そのアノテーションに属性がないかどうか
-                .map(ann -> ann.filter(MarkerAnnotationExpr.class::isInstance))
-                .collect(Collectors.toList());
-        if (annotations.isEmpty()
-                || !annotations.stream().allMatch(Optional::isPresent)) {
-            // 非 static フィールドに対象のアノテーションがないか、条件に合致しない
+        if (!summary.isAnnotatedOnAllInstanceFields(annotationClass)) {
+            // 非 static フィールドに対象のアノテーションがないか、属性がある
             LOG.log(Level.FINE, "Type ''{0}'', Annotation ''{1}'': cannot annotate.",
                     new Object[] {
                         typeDeclaration.getNameAsString(),
@@ -130,6 +175,14 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
                     });
             return false;
         }
+        // 削除する属性のないアノテーション (MarkerAnnotationExpr）
+        List<AnnotationExpr> annotations = typeDeclaration.getMembers()
+                .stream()
+                .filter(BodyDeclaration::isFieldDeclaration)
+                .map(BodyDeclaration::asFieldDeclaration)
+                .filter(field -> !field.isStatic())
+                .map(field -> field.getAnnotationByClass(annotationClass).get())
+                .collect(Collectors.toList());
         LOG.log(Level.INFO, 
                 "Add ''{1}'' to ''{0}'', and delete {2} annotations on fields.",
                 new Object[] {
@@ -138,12 +191,24 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
                     annotations.size()
                 });
         TokenUtil.addAnnotation(typeDeclaration, new MarkerAnnotationExpr(simpleName));
-        annotations.stream().map(Optional::get).forEach(TokenUtil::remove);
+        annotations.forEach(TokenUtil::remove);
         return true;
     }
 
     @Override
     public Boolean apply(FieldDeclaration fieldDeclaration) {
+        return apply(fieldDeclaration, null);
+    }
+
+    /**
+     * フィールドに Lombok アノテーションを付与し、生成されるメソッドを削除する.
+     *
+     * @param fieldDeclaration フィールド宣言
+     * @param summary フィールドを宣言した型の要約. 属性のないアノテーションを付与した場合は記録する.
+     * 匿名クラスのフィールドの場合は {@code null}.
+     * @return アノテーションを付与した場合は {@code true}, それ以外は {@code false}.
+     */
+    boolean apply(FieldDeclaration fieldDeclaration, TypeSummary summary) {
         final String simpleName = annotationClass.getSimpleName();
         final String fieldName = fieldDeclaration.getVariables().stream()
                 .map(VariableDeclarator::getNameAsString)
@@ -154,7 +219,9 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
                     new Object[]{fieldName, simpleName});
             return false;
         }
-        if (fieldDeclaration.getVariables().size() > 1) {
+        if (summary != null
+                ? summary.hasMultipleVariables(fieldDeclaration)
+                : fieldDeclaration.getVariables().size() > 1) {
             LOG.log(Level.WARNING,
                     "Field ''{0}'', Annotation ''{1}'': ignore because of multiple variables in one declaration.",
                     new Object[]{fieldName, simpleName});
@@ -162,7 +229,7 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
         }
         final VariableDeclarator variable = fieldDeclaration.getVariable(0);
         Node classBody = fieldDeclaration.getParentNode().get();
-        final GeneratedMethodPredicate predicate = toPredicate.apply(variable);
+        final GeneratedMethodPredicate predicate = toPredicate.create(variable, summary, lombokConfig);
         // 対象のフィールドにアノテーションを付与した場合に生成されるメソッドが存在し
         // かつ定義可能であれば、そのメソッドを抽出する.
         List<MethodDeclaration> candidateMethods = classBody.getChildNodes().stream()
@@ -181,6 +248,11 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
             return false;
         }
         MethodDeclaration method = candidateMethods.get(0);
+        if (typeHierarchy != null && typeHierarchy.isOverriding(method)) {
+            LOG.log(Level.FINE, "Field ''{0}'', Annotation ''{1}'': keep method ''{2}'' overriding or overridden.",
+                    new Object[] {fieldName, simpleName, method.getNameAsString()});
+            return false;
+        }
         AnnotationExpr annotation = createAnnotation(method, annotationClass);
         TokenUtil.remove(method);
         LOG.log(Level.FINE, "Field ''{0}'', Annotation ''{1}'': delete method ''{2}''.",
@@ -191,6 +263,9 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
                 ? variable.getType()
                 : modifiers.get(0);
         TokenUtil.addAnnotation(addAnnotationBefore, annotation);
+        if (summary != null && annotation.isMarkerAnnotationExpr()) {
+            summary.markAnnotated(fieldDeclaration, annotationClass);
+        }
         LOG.log(Level.FINE, "Field ''{0}'', Annotation ''{1}'': added.",
                 new Object[] {fieldName, simpleName});
         return true;
@@ -253,7 +328,7 @@ public class FieldLombokizer implements Function<FieldDeclaration, Boolean> {
         return new NodeList<>(
                 annotations.stream()
                         .map(LexicalPreservingPrinter::print)
-                        .map(StaticJavaParser::parseAnnotation)
+                        .map(TokenUtil::parseAnnotation)
                         .map(Expression.class::cast)
                         .collect(Collectors.toList()));
     }
@@ -0,0 +1,347 @@
+package com.github.crystalduke.lombok;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * 子プロセスの JVM で Lombok アノテーションを適用する. 親プロセスは {@link #command(String, Path)}
+ * で起動するコマンドを作成し、{@link #run(List, File, Handler)} で子プロセスのログを転送する.
+ * <p>
+ * 子プロセスは、ログを 1 行ずつ {@value #MARKER}、ログレベル、メッセージをタブで区切って標準出力に出力する.
+ * メッセージの改行はエスケープする. 形式に合わない行 (JVM が出力する GC のログなど) はそのまま転送する.
+ * </p>
+ */
+final class ForkedJvm {
+
+    /**
+     * 子プロセスが出力するログの行の先頭.
+     */
+    static final String MARKER = "#lombokize";
+    private static final int EXIT_FAILURE = 1;
+
+    private ForkedJvm() {
+    }
+
+    /**
+     * 子プロセスの JVM を起動するコマンドを作成する. クラスパスは、このプラグインと依存ライブラリ、
+     * Maven Plugin API とする.
+     *
+     * @param jvmArgs JVM に渡す空白区切りの引数. {@code null} の場合は渡さない.
+     * @param parameters {@link ApplyLombokMojo} の設定を保存したファイル
+     * @return 起動するコマンド.
+     */
+    static List<String> command(String jvmArgs, Path parameters) {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (jvmArgs != null) {
+            for (String arg : jvmArgs.trim().split("\\s+")) {
+                if (!arg.isEmpty()) {
+                    command.add(arg);
+                }
+            }
+        }
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classpath()));
+        command.add(ForkedJvm.class.getName());
+        command.add(parameters.toString());
+        return command;
+    }
+
+    /**
+     * このクラスを読み込んだクラスローダーのクラスパスを返す. Maven の ClassRealm は
+     * Maven 本体のクラスを含まないため、{@link AbstractMojo} を含むライブラリを加える.
+     */
+    private static Set<String> classpath() {
+        final Set<String> classpath = new LinkedHashSet<>();
+        final ClassLoader loader = ForkedJvm.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                classpath.add(toPath(url));
+            }
+        } else {
+            Collections.addAll(classpath, System.getProperty("java.class.path").split(File.pathSeparator));
+        }
+        for (Class<?> type : new Class<?>[] {ForkedJvm.class, AbstractMojo.class}) {
+            final CodeSource source = type.getProtectionDomain().getCodeSource();
+            if (source != null) {
+                classpath.add(toPath(source.getLocation()));
+            }
+        }
+        return classpath;
+    }
+
+    private static String toPath(URL url) {
+        try {
+            return Paths.get(url.toURI()).toString();
+        } catch (URISyntaxException ex) {
+            throw new IllegalArgumentException(url.toString(), ex);
+        }
+    }
+
+    /**
+     * 子プロセスを起動し、終了するまでログを転送する. 割り込まれた場合は子プロセスを終了させる.
+     *
+     * @param command 起動するコマンド
+     * @param directory 作業ディレクトリ. {@code null} の場合はこのプロセスと同じ.
+     * @param handler ログの転送先
+     * @return 子プロセスの終了コード.
+     * @throws IOException 子プロセスの起動か、出力の読み込みに失敗した場合.
+     * @throws InterruptedException 子プロセスの終了を待つ間に割り込まれた場合.
+     */
+    static int run(List<String> command, File directory, Handler handler)
+            throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(command)
+                .directory(directory)
+                .redirectErrorStream(true)
+                .start();
+        try {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    handler.publish(toRecord(line));
+                }
+            }
+            return process.waitFor();
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * 子プロセスが出力した行をログに変換する.
+     */
+    static LogRecord toRecord(String line) {
+        final String[] columns = line.split("\t", 3);
+        if (columns.length < 3 || !MARKER.equals(columns[0])) {
+            return new LogRecord(Level.INFO, line);
+        }
+        final Level level;
+        switch (columns[1]) {
+            case "ERROR":
+                level = Level.SEVERE;
+                break;
+            case "WARN":
+                level = Level.WARNING;
+                break;
+            case "INFO":
+                level = Level.INFO;
+                break;
+            default:
+                level = Level.FINE;
+                break;
+        }
+        return new LogRecord(level, unescape(columns[2]));
+    }
+
+    private static String escape(CharSequence message) {
+        final StringBuilder escaped = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); i++) {
+            final char c = message.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String message) {
+        final StringBuilder unescaped = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); i++) {
+            final char c = message.charAt(i);
+            if (c != '\\' || i + 1 == message.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            final char next = message.charAt(++i);
+            unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * 子プロセスのエントリポイント. 引数で指定したファイルから設定を読み込んで処理する.
+     *
+     * @param args {@link ApplyLombokMojo} の設定を保存したファイル
+     */
+    public static void main(String[] args) {
+        int status = 0;
+        Log log = null;
+        try {
+            final Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            log = new StreamLog(new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8"),
+                    Boolean.parseBoolean(properties.getProperty(ApplyLombokMojo.DEBUG_PROPERTY)));
+            final ApplyLombokMojo mojo = new ApplyLombokMojo() {
+                @Override
+                boolean resolvesDependencies() {
+                    // 依存関係を解決したかどうかは親プロセスで確認済み
+                    return true;
+                }
+            };
+            ExecutionSettings.fromProperties(properties).applyTo(mojo);
+            mojo.setLog(log);
+            mojo.execute();
+        } catch (Exception | Error ex) {
+            if (log != null) {
+                log.error(ex);
+            } else {
+                ex.printStackTrace();
+            }
+            status = EXIT_FAILURE;
+        }
+        System.exit(status);
+    }
+
+    /**
+     * ログを親プロセスが読み込める形式で出力する.
+     */
+    private static final class StreamLog implements Log {
+
+        private final PrintStream out;
+        private final boolean debugEnabled;
+
+        StreamLog(PrintStream out, boolean debugEnabled) {
+            this.out = out;
+            this.debugEnabled = debugEnabled;
+        }
+
+        private void print(String level, CharSequence content, Throwable error) {
+            final StringBuilder message = new StringBuilder();
+            if (content != null) {
+                message.append(content);
+            }
+            if (error != null) {
+                final StringWriter trace = new StringWriter();
+                error.printStackTrace(new PrintWriter(trace));
+                if (message.length() > 0) {
+                    message.append(System.lineSeparator());
+                }
+                message.append(trace.toString().trim());
+            }
+            // 1 行ずつ出力するため、複数のスレッドのログが混ざらない
+            out.println(MARKER + "\t" + level + "\t" + escape(message));
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return debugEnabled;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+            print("DEBUG", content, null);
+        }
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {
+            print("DEBUG", content, error);
+        }
+
+        @Override
+        public void debug(Throwable error) {
+            print("DEBUG", null, error);
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return true;
+        }
+
+        @Override
+        public void info(CharSequence content) {
+            print("INFO", content, null);
+        }
+
+        @Override
+        public void info(CharSequence content, Throwable error) {
+            print("INFO", content, error);
+        }
+
+        @Override
+        public void info(Throwable error) {
+            print("INFO", null, error);
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return true;
+        }
+
+        @Override
+        public void warn(CharSequence content) {
+            print("WARN", content, null);
+        }
+
+        @Override
+        public void warn(CharSequence content, Throwable error) {
+            print("WARN", content, error);
+        }
+
+        @Override
+        public void warn(Throwable error) {
+            print("WARN", null, error);
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+
+        @Override
+        public void error(CharSequence content) {
+            print("ERROR", content, null);
+        }
+
+        @Override
+        public void error(CharSequence content, Throwable error) {
+            print("ERROR", content, error);
+        }
+
+        @Override
+        public void error(Throwable error) {
+            print("ERROR", null, error);
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package com.github.crystalduke.lombok;
 
+import static com.github.crystalduke.lombok.BodyTemplate.field;
+import static com.github.crystalduke.lombok.BodyTemplate.returns;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.VariableDeclarator;
-import com.github.javaparser.ast.stmt.BlockStmt;
-import com.github.javaparser.ast.stmt.Statement;
-import java.util.Optional;
 import lombok.Getter;
 
 /**
@@ -14,13 +13,41 @@ import lombok.Getter;
  */
 public class GeneratedGetterPredicate extends GeneratedMethodPredicate {
 
+    /**
+     * {@code return field;}
+     */
+    private static final BodyTemplate GETTER_BODY = BodyTemplate.of(returns(field()));
+
     /**
      * {@link Getter} を付与するフィールドを指定してオブジェクトを構築する.
      *
      * @param variable {@link Getter} を付与するフィールドの変数.
      */
     public GeneratedGetterPredicate(VariableDeclarator variable) {
-        super(variable, isBoolean -> isBoolean ? "is" : "get");
+        this(variable, new TypeMatcher());
+    }
+
+    /**
+     * {@link Getter} を付与するフィールドと、型の比較方法を指定してオブジェクトを構築する.
+     *
+     * @param variable {@link Getter} を付与するフィールドの変数.
+     * @param typeMatcher フィールドとメソッドの型を比較するインスタンス.
+     */
+    public GeneratedGetterPredicate(VariableDeclarator variable, TypeMatcher typeMatcher) {
+        this(variable, typeMatcher, null, LombokConfig.DEFAULT);
+    }
+
+    /**
+     * フィールドを宣言した型の要約と、{@code lombok.config} の設定を指定してオブジェクトを構築する.
+     *
+     * @param variable {@link Getter} を付与するフィールドの変数.
+     * @param typeMatcher フィールドとメソッドの型を比較するインスタンス.
+     * @param summary フィールドを宣言した型の要約. {@code null} の場合は型宣言から求める.
+     * @param config ソースファイルに適用される {@code lombok.config} の設定.
+     */
+    GeneratedGetterPredicate(VariableDeclarator variable, TypeMatcher typeMatcher,
+            TypeSummary summary, LombokConfig config) {
+        super(variable, config::getterName, config::getterNames, typeMatcher, summary);
     }
 
     /**
@@ -37,20 +64,7 @@ public class GeneratedGetterPredicate extends GeneratedMethodPredicate {
                 || parameters.size() == 1 && parameters.get(0).isVarArgs())) {
             return false;
         }
-        String name = method.getNameAsString();
-        if (name.equalsIgnoreCase("get" + fieldName)) {
-            return true;
-        }
-        if ("boolean".equals(fieldType)) {
-            if (name.equalsIgnoreCase("is" + fieldName)) {
-                return true;
-            }
-            if (startsWithIs(fieldName)) {
-                return name.equalsIgnoreCase(fieldName)
-                        || name.equalsIgnoreCase("get" + fieldName.substring(2));
-            }
-        }
-        return false;
+        return hasAccessorName(method);
     }
 
     /**
@@ -62,24 +76,12 @@ public class GeneratedGetterPredicate extends GeneratedMethodPredicate {
     @Override
     public boolean canGenerate(MethodDeclaration method) {
         return super.canGenerate(method)
-                && fieldType.equals(method.getTypeAsString())
+                && isFieldType(method.getType())
                 && method.getParameters().isEmpty()
                 && equalsGeneratedBody(method);
     }
 
     private boolean equalsGeneratedBody(MethodDeclaration method) {
-        return method.getBody()
-                // メソッド内は1文だけ
-                .map(BlockStmt::getStatements)
-                .filter(statements -> statements.size() == 1)
-                .map(statements -> statements.get(0))
-                // return に返り値がある
-                .filter(Statement::isReturnStmt)
-                .map(statement -> statement.asReturnStmt().getExpression())
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                // 返り値はコンストラクタで指定したフィールド
-                .filter(this::isReferredFrom)
-                .isPresent();
+        return GETTER_BODY.matches(method, this);
     }
 }
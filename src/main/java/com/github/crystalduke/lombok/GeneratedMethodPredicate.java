@@ -7,9 +7,12 @@ import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.Name;
 import com.github.javaparser.ast.expr.NameExpr;
-import java.util.Arrays;
-import java.util.function.Function;
+import com.github.javaparser.ast.type.Type;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
 /**
@@ -20,27 +23,31 @@ abstract class GeneratedMethodPredicate implements Predicate<MethodDeclaration>
     final boolean isStatic;
     final String fieldType;
     final String fieldName;
+    /**
+     * 生成されるメソッドの名前. {@code lombok.config} の接頭辞に一致せず生成されない場合は {@code null}.
+     */
     final String methodName;
+    /**
+     * 存在すればメソッドが生成されなくなるメソッドの名前 (小文字).
+     */
+    final Set<String> accessorNames;
     final String className;
     final String fqcn;
-    
+    private final VariableDeclarator field;
+    private final TypeMatcher typeMatcher;
+
     protected static boolean startsWithIs(String fieldName) {
         return fieldName.startsWith("is")
                 && fieldName.length() > 2
                 && !Character.isLowerCase(fieldName.charAt(2));
     }
 
-    private static String toMethodName(String fieldName, boolean isBoolean, String prefix) {
-        if (isBoolean && startsWithIs(fieldName)) {
-            return prefix + fieldName.substring(2);
-        }
-        return prefix
-                + Character.toUpperCase(fieldName.charAt(0))
-                + fieldName.substring(1);
-    }
-
     GeneratedMethodPredicate(VariableDeclarator field,
-            Function<Boolean, String> methodPrefix) {
+            BiFunction<String, Boolean, String> toMethodName,
+            BiFunction<String, Boolean, Set<String>> toAccessorNames,
+            TypeMatcher typeMatcher, TypeSummary summary) {
+        this.field = field;
+        this.typeMatcher = typeMatcher;
         final FieldDeclaration fieldDeclaration = field.getParentNode()
                 .map(FieldDeclaration.class::cast)
                 .get();
@@ -48,9 +55,14 @@ abstract class GeneratedMethodPredicate implements Predicate<MethodDeclaration>
         fieldType = field.getTypeAsString();
         fieldName = field.getName().getIdentifier();
         boolean isBoolean = "boolean".equals(fieldType);
-        methodName = toMethodName(fieldName, isBoolean, methodPrefix.apply(isBoolean));
+        methodName = toMethodName.apply(fieldName, isBoolean);
+        accessorNames = toAccessorNames.apply(fieldName, isBoolean);
         Node classBody = fieldDeclaration.getParentNode().get();
-        if (TypeDeclaration.class.isInstance(classBody)) {
+        if (summary != null) {
+            // 型の要約に記録した名前を使い、祖先を辿らない
+            fqcn = summary.getFqcn();
+            className = summary.getClassName();
+        } else if (TypeDeclaration.class.isInstance(classBody)) {
             TypeDeclaration<?> type = TypeDeclaration.class.cast(classBody);
             fqcn = type.getFullyQualifiedName().get();
             className = type.getNameAsString();
@@ -59,11 +71,21 @@ abstract class GeneratedMethodPredicate implements Predicate<MethodDeclaration>
         }
     }
 
+    /**
+     * メソッドの名前が、フィールドに付与したアノテーションにより生成されるメソッドと衝突するか判定する.
+     *
+     * @param method メソッド定義
+     * @return 衝突すれば {@code true}, それ以外は {@code false}.
+     */
+    protected boolean hasAccessorName(MethodDeclaration method) {
+        return accessorNames.contains(method.getNameAsString().toLowerCase(Locale.ROOT));
+    }
+
     /**
      * サブクラス共通の判定をする.
      */
     public boolean canGenerate(MethodDeclaration method) {
-        return methodName.equals(method.getNameAsString())
+        return method.getNameAsString().equals(methodName)
                 && isStatic == method.isStatic()
                 && !method.isAbstract()
                 && !method.isFinal()
@@ -72,6 +94,16 @@ abstract class GeneratedMethodPredicate implements Predicate<MethodDeclaration>
                 && method.getThrownExceptions().isEmpty();
     }
 
+    /**
+     * 引数の型がコンストラクタで指定したフィールドの型と同じか判定する.
+     *
+     * @param type 型.
+     * @return フィールドと同じ型であれば {@code true}, それ以外は {@code false}.
+     */
+    protected boolean isFieldType(Type type) {
+        return typeMatcher.matches(field.getType(), type);
+    }
+
     /**
      * 引数がコンストラクタで指定したフィールドを参照しているか判定する.
      *
@@ -96,20 +128,18 @@ abstract class GeneratedMethodPredicate implements Predicate<MethodDeclaration>
         Expression scope = fieldAccessExpr.getScope();
         if (isStatic) {
             if (scope.isFieldAccessExpr()) {
-                String scopeName = scope.asFieldAccessExpr().getNameAsString();
-                return anyMatch(scopeName, className, fqcn);
+                return isDeclaringTypeName(scope.asFieldAccessExpr().getNameAsString());
             }
         } else if (scope.isThisExpr()) {
             // this.fieldName の場合、this の前に何もないか、
             // フィールドと同じクラスであればよい
-            return !scope.asThisExpr().getTypeName()
-                    .filter(typeName -> !anyMatch(typeName.asString(), className, fqcn))
-                    .isPresent();
+            final Name typeName = scope.asThisExpr().getTypeName().orElse(null);
+            return typeName == null || isDeclaringTypeName(typeName.asString());
         }
         return false;
     }
 
-    private static <T> boolean anyMatch(T o1, T... o2) {
-        return Arrays.stream(o2).anyMatch(o1::equals);
+    private boolean isDeclaringTypeName(String typeName) {
+        return typeName.equals(className) || typeName.equals(fqcn);
     }
 }
@@ -1,14 +1,14 @@
 package com.github.crystalduke.lombok;
 
-import static com.github.crystalduke.lombok.GeneratedMethodPredicate.startsWithIs;
-import com.github.javaparser.ast.NodeList;
+import static com.github.crystalduke.lombok.BodyTemplate.assigns;
+import static com.github.crystalduke.lombok.BodyTemplate.evaluates;
+import static com.github.crystalduke.lombok.BodyTemplate.field;
+import static com.github.crystalduke.lombok.BodyTemplate.parameter;
+import static com.github.crystalduke.lombok.BodyTemplate.returns;
+import static com.github.crystalduke.lombok.BodyTemplate.unqualifiedThis;
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.VariableDeclarator;
-import com.github.javaparser.ast.expr.AssignExpr;
-import com.github.javaparser.ast.expr.Expression;
-import com.github.javaparser.ast.expr.NameExpr;
-import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.Type;
 import lombok.Setter;
 
 /**
@@ -16,13 +16,51 @@ import lombok.Setter;
  */
 public class GeneratedSetterPredicate extends GeneratedMethodPredicate {
 
+    /**
+     * {@code field = parameter;}
+     */
+    private static final BodyTemplate SETTER_BODY = BodyTemplate.of(
+            evaluates(assigns(field(), parameter(0))));
+    /**
+     * {@code field = parameter; return this;}
+     */
+    private static final BodyTemplate CHAINED_SETTER_BODY = BodyTemplate.of(
+            evaluates(assigns(field(), parameter(0))),
+            returns(unqualifiedThis()));
+
+    private final boolean chain;
+
     /**
      * {@link Setter} を付与するフィールドを指定してオブジェクトを構築する.
      *
      * @param variable {@link Setter} を付与するフィールドの変数.
      */
     public GeneratedSetterPredicate(VariableDeclarator variable) {
-        super(variable, isBoolean -> "set");
+        this(variable, new TypeMatcher());
+    }
+
+    /**
+     * {@link Setter} を付与するフィールドと、型の比較方法を指定してオブジェクトを構築する.
+     *
+     * @param variable {@link Setter} を付与するフィールドの変数.
+     * @param typeMatcher フィールドとメソッドの引数の型を比較するインスタンス.
+     */
+    public GeneratedSetterPredicate(VariableDeclarator variable, TypeMatcher typeMatcher) {
+        this(variable, typeMatcher, null, LombokConfig.DEFAULT);
+    }
+
+    /**
+     * フィールドを宣言した型の要約と、{@code lombok.config} の設定を指定してオブジェクトを構築する.
+     *
+     * @param variable {@link Setter} を付与するフィールドの変数.
+     * @param typeMatcher フィールドとメソッドの引数の型を比較するインスタンス.
+     * @param summary フィールドを宣言した型の要約. {@code null} の場合は型宣言から求める.
+     * @param config ソースファイルに適用される {@code lombok.config} の設定.
+     */
+    GeneratedSetterPredicate(VariableDeclarator variable, TypeMatcher typeMatcher,
+            TypeSummary summary, LombokConfig config) {
+        super(variable, config::setterName, config::setterNames, typeMatcher, summary);
+        this.chain = config.isChain();
     }
 
     /**
@@ -34,16 +72,8 @@ public class GeneratedSetterPredicate extends GeneratedMethodPredicate {
      */
     @Override
     public boolean test(MethodDeclaration method) {
-        if (method.getParameters().size() != 1) {
-            return false;
-        }
-        String name = method.getNameAsString();
-        if (name.equalsIgnoreCase("set" + fieldName)) {
-            return true;
-        }
-        return "boolean".equals(fieldType)
-                && startsWithIs(fieldName)
-                && name.equalsIgnoreCase("set" + fieldName.substring(2));
+        return method.getParameters().size() == 1
+                && hasAccessorName(method);
     }
 
     /**
@@ -55,36 +85,22 @@ public class GeneratedSetterPredicate extends GeneratedMethodPredicate {
     @Override
     public boolean canGenerate(MethodDeclaration method) {
         return super.canGenerate(method)
-                // 返り値の型は void
-                && "void".equals(method.getTypeAsString())
+                // 返り値の型は void か、chain の場合はフィールドを宣言した型
+                && (chain ? isDeclaringType(method.getType()) : method.getType().isVoidType())
                 // 引数は１つ
                 && method.getParameters().size() == 1
                 // 引数の型はフィールドと同じ
-                && fieldType.equals(method.getParameters().get(0).getTypeAsString())
+                && isFieldType(method.getParameters().get(0).getType())
                 && equalsGeneratedBody(method);
     }
 
+    private boolean isDeclaringType(Type type) {
+        return className != null
+                && type.isClassOrInterfaceType()
+                && className.equals(type.asClassOrInterfaceType().getNameAsString());
+    }
+
     private boolean equalsGeneratedBody(MethodDeclaration method) {
-        return method.getBody()
-                // メソッド内は1文だけ
-                .map(block -> block.getStatements())
-                .filter(statements -> statements.size() == 1)
-                .map(statements -> statements.get(0))
-                // 代入文
-                .filter(Statement::isExpressionStmt)
-                .map(statement -> statement.asExpressionStmt().getExpression())
-                .filter(Expression::isAssignExpr)
-                .map(Expression::asAssignExpr)
-                // 代入演算子は等号
-                .filter(assignExpr -> assignExpr.getOperator().equals(AssignExpr.Operator.ASSIGN))
-                // 左辺はオブジェクト構築時に指定したフィールド
-                .filter(assignExpr -> isReferredFrom(assignExpr.getTarget()))
-                // 右辺は引数
-                .map(AssignExpr::getValue)
-                .filter(Expression::isNameExpr)
-                .map(Expression::asNameExpr)
-                .map(NameExpr::getNameAsString)
-                .filter(method.getParameters().get(0).getNameAsString()::equals)
-                .isPresent();
+        return (chain ? CHAINED_SETTER_BODY : SETTER_BODY).matches(method, this);
     }
 }
@@ -0,0 +1,146 @@
+package com.github.crystalduke.lombok;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 並行してパースするソースファイルが使うヒープの見積もりを、上限を超えないように割り当てる.
+ * 字句を保存した構文木は、JDK 8 でソースファイルのサイズの 150 から 250 倍のヒープを使い、
+ * 適用後に構文木を作り直す間は一時的に 2 つの構文木を保持するため、サイズの
+ * {@value #BYTES_PER_SOURCE_BYTE} 倍を見積もりとする.
+ * <p>
+ * 割り当ては要求した順に行い、大きな要求が後から来た小さな要求に追い越され続けることはない.
+ * 上限を超える要求は、他に割り当てがなくなるまで待ち、上限だけを割り当てる.
+ * </p>
+ * <p>
+ * 読み込みを待つ仮想スレッドからも割り当てを要求するため、待っている間にキャリアスレッドを占有しないよう、
+ * モニターではなく {@link ReentrantLock} で待つ.
+ * </p>
+ */
+final class HeapBudget {
+
+    /**
+     * ソースファイル 1 バイトあたりに見積もるヒープのバイト数.
+     */
+    static final int BYTES_PER_SOURCE_BYTE = 300;
+
+    private final long limit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long used;
+    /**
+     * 割り当てを待っているスレッド. 先頭のスレッドから順に割り当てる.
+     */
+    private final Deque<Thread> waiters = new ArrayDeque<>();
+
+    /**
+     * 上限を指定してインスタンスを構築する.
+     *
+     * @param limit 割り当てるヒープの上限 (バイト)
+     */
+    HeapBudget(long limit) {
+        this.limit = Math.max(limit, 1);
+    }
+
+    /**
+     * 最大ヒープサイズに対する割合を上限とするインスタンスを返す.
+     *
+     * @param percent 最大ヒープサイズに対する百分率
+     * @return 構築したインスタンス.
+     */
+    static HeapBudget ofMaxHeap(int percent) {
+        return new HeapBudget(Runtime.getRuntime().maxMemory() / 100 * percent);
+    }
+
+    /**
+     * ソースファイルのパースに使うヒープを見積もる.
+     *
+     * @param sourceSize ソースファイルのサイズ (バイト)
+     * @return 見積もり (バイト).
+     */
+    static long estimate(long sourceSize) {
+        return sourceSize * BYTES_PER_SOURCE_BYTE;
+    }
+
+    /**
+     * 割り当てるヒープの上限を返す.
+     *
+     * @return 上限 (バイト).
+     */
+    long getLimit() {
+        return limit;
+    }
+
+    /**
+     * ヒープを割り当てる. 先に要求したスレッドへの割り当てが済み、上限に収まるようになるまで待つ.
+     *
+     * @param bytes 要求するバイト数
+     * @return 割り当てたバイト数. 処理を終えたら {@link #release(long)} に渡すこと.
+     * @throws InterruptedException 待っている間に割り込まれた場合.
+     */
+    long acquire(long bytes) throws InterruptedException {
+        final long granted = Math.min(Math.max(bytes, 0), limit);
+        final Thread current = Thread.currentThread();
+        lock.lockInterruptibly();
+        try {
+            waiters.add(current);
+            try {
+                while (waiters.peek() != current || used + granted > limit) {
+                    changed.await();
+                }
+            } finally {
+                waiters.remove(current);
+                changed.signalAll();
+            }
+            used += granted;
+            return granted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 割り当てたヒープを返却する.
+     *
+     * @param granted {@link #acquire(long)} が返したバイト数
+     */
+    void release(long granted) {
+        lock.lock();
+        try {
+            used -= granted;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 割り当てを待っているスレッドの数を返す.
+     *
+     * @return 待っているスレッドの数.
+     */
+    int getNumOfWaiters() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 割り当て済みのバイト数を返す.
+     *
+     * @return 割り当て済みのバイト数.
+     */
+    long getUsed() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.crystalduke.lombok;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * ソースファイルの読み書きを実行する {@link ExecutorService} を生成する.
+ * <p>
+ * このクラスは Java 8 用の実装であり、仮想スレッドを使えないため読み書きは呼び出し元のスレッドで行う.
+ * Java 21 以降では、multi-release JAR の {@code META-INF/versions/21} にある同名のクラス
+ * ({@code src/main/java21}) に置き換わる.
+ * </p>
+ */
+final class IoExecutors {
+
+    private IoExecutors() {
+    }
+
+    /**
+     * 1 タスクごとに仮想スレッドを生成する {@link ExecutorService} を返す.
+     *
+     * @param prefix スレッド名の接頭辞
+     * @return 仮想スレッドを使えない場合は {@code null}.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+
+/**
+ * デーモンが待ち受ける Unix ドメインソケットを開く.
+ * <p>
+ * このクラスは Java 8 用の実装であり、Unix ドメインソケットを使えない.
+ * Java 21 以降では、multi-release JAR の {@code META-INF/versions/21} にある同名のクラス
+ * ({@code src/main/java21}) に置き換わる.
+ * </p>
+ */
+final class LocalSockets {
+
+    private LocalSockets() {
+    }
+
+    /**
+     * Unix ドメインソケットで待ち受ける {@link ServerSocketChannel} を開く.
+     *
+     * @param path ソケットファイルのパス
+     * @return 待ち受けを始めた {@link ServerSocketChannel}.
+     * @throws IOException ソケットを開けない場合.
+     * @throws UnsupportedOperationException Unix ドメインソケットを使えない場合.
+     */
+    static ServerSocketChannel openUnix(Path path) throws IOException {
+        throw new UnsupportedOperationException("Unix domain sockets require the Java 21 classes of this jar");
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.crystalduke.lombok;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * パッケージのロガーに 1 つだけ登録し、ログを実行中のゴールの {@link Handler} に振り分ける Handler.
+ * {@code mvn -T} で複数のモジュールを並行して処理する場合も、各モジュールのログはそのモジュールの
+ * ゴールのログに出力する.
+ * <p>
+ * ロガーの設定は全てのゴールで共有するため、最初のゴールが {@link #attach(Handler)} した時に変更し、
+ * 最後のゴールが {@link #detach(Handler)} した時に元に戻す. 振り分け先はスレッドごとに保持し、
+ * ゴールを実行するスレッドが作成したスレッドに引き継ぐ. 振り分け先のないスレッドのログは、
+ * 実行中のゴールが 1 つであればそのゴールに、それ以外は親のロガーの Handler に出力する.
+ * </p>
+ */
+final class LogRouter extends Handler {
+
+    private static final Logger LOG = Logger.getLogger(LogRouter.class.getPackage().getName());
+    private static final InheritableThreadLocal<Handler> ROUTE = new InheritableThreadLocal<>();
+    /**
+     * 実行中のゴールの Handler. 振り分ける時はロックせずに参照する.
+     */
+    private static final List<Handler> ATTACHED = new CopyOnWriteArrayList<>();
+    private static LogRouter installed;
+
+    private final Level level;
+    private final boolean useParentHandlers;
+
+    private LogRouter(Level level, boolean useParentHandlers) {
+        this.level = level;
+        this.useParentHandlers = useParentHandlers;
+        setLevel(Level.ALL);
+    }
+
+    /**
+     * 現在のスレッドのログの振り分け先を登録する. 最初に登録した場合は、パッケージのロガーに
+     * このクラスの Handler を追加し、全てのログをこのクラスで出力するよう設定する.
+     *
+     * @param handler 振り分け先. 処理を終えたら {@link #detach(Handler)} に渡すこと.
+     */
+    static synchronized void attach(Handler handler) {
+        if (installed == null) {
+            installed = new LogRouter(LOG.getLevel(), LOG.getUseParentHandlers());
+            LOG.addHandler(installed);
+            LOG.setLevel(Level.ALL);
+            LOG.setUseParentHandlers(false);
+        }
+        ATTACHED.add(handler);
+        ROUTE.set(handler);
+    }
+
+    /**
+     * 振り分け先の登録を解除する. 全ての登録を解除した場合は、パッケージのロガーの設定を元に戻す.
+     *
+     * @param handler {@link #attach(Handler)} で登録した振り分け先
+     */
+    static synchronized void detach(Handler handler) {
+        if (ROUTE.get() == handler) {
+            ROUTE.remove();
+        }
+        if (!ATTACHED.remove(handler) || !ATTACHED.isEmpty()) {
+            return;
+        }
+        LOG.removeHandler(installed);
+        LOG.setLevel(installed.level);
+        LOG.setUseParentHandlers(installed.useParentHandlers);
+        installed = null;
+    }
+
+    /**
+     * 呼び出したスレッドの振り分け先を、生成するスレッドに引き継ぐ {@link ThreadFactory} を返す.
+     * スレッドプールのスレッドは、タスクを投入したスレッドから生成されるとは限らないため、
+     * 振り分け先は呼び出した時点で確定する.
+     *
+     * @param factory スレッドを生成する {@link ThreadFactory}
+     * @return 振り分け先を引き継ぐ {@link ThreadFactory}.
+     */
+    static ThreadFactory inheriting(ThreadFactory factory) {
+        final Handler route = ROUTE.get();
+        return runnable -> factory.newThread(() -> {
+            ROUTE.set(route);
+            runnable.run();
+        });
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        Handler route = ROUTE.get();
+        if (route == null || !ATTACHED.contains(route)) {
+            // ゴールと無関係なスレッドか、実行を終えたゴールから引き継いだスレッド
+            final Object[] attached = ATTACHED.toArray();
+            route = attached.length == 1 ? (Handler) attached[0] : null;
+        }
+        if (route != null) {
+            route.publish(record);
+            return;
+        }
+        for (Logger logger = LOG.getParent(); logger != null; logger = logger.getParent()) {
+            for (Handler handler : logger.getHandlers()) {
+                handler.publish(record);
+            }
+            if (!logger.getUseParentHandlers()) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,283 @@
+package com.github.crystalduke.lombok;
+
+import static com.github.crystalduke.lombok.GeneratedMethodPredicate.startsWithIs;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code lombok.config} のうち、アクセサの名前と形に影響する設定. このクラスのインスタンスは不変で、
+ * 複数スレッドで共有できる.
+ * <ul>
+ * <li>{@code lombok.accessors.prefix}: フィールド名から取り除く接頭辞</li>
+ * <li>{@code lombok.accessors.fluent}: {@code get}, {@code is}, {@code set} を付けない</li>
+ * <li>{@code lombok.accessors.chain}: Setter が {@code this} を返す. 省略時は fluent と同じ</li>
+ * <li>{@code lombok.getter.noIsPrefix}: boolean 型のフィールドでも {@code is} を使わない</li>
+ * </ul>
+ */
+public class LombokConfig {
+
+    private static final Logger LOG = Logger.getLogger(LombokConfig.class.getName());
+    private static final Pattern CLEAR = Pattern.compile("^clear\\s+(\\S+)$");
+    private static final Pattern ASSIGN = Pattern.compile("^(\\S+?)\\s*([-+]?=)\\s*(.*)$");
+    private static final String PREFIX = "lombok.accessors.prefix";
+    private static final String FLUENT = "lombok.accessors.fluent";
+    private static final String CHAIN = "lombok.accessors.chain";
+    private static final String NO_IS_PREFIX = "lombok.getter.noIsPrefix";
+    private static final String STOP_BUBBLING = "config.stopBubbling";
+
+    /**
+     * {@code lombok.config} がない場合の設定.
+     */
+    public static final LombokConfig DEFAULT = new LombokConfig(
+            Collections.emptyList(), null, null, null);
+
+    private final List<String> prefixes;
+    private final Boolean fluent;
+    private final Boolean chain;
+    private final Boolean noIsPrefix;
+
+    private LombokConfig(List<String> prefixes, Boolean fluent, Boolean chain, Boolean noIsPrefix) {
+        this.prefixes = prefixes;
+        this.fluent = fluent;
+        this.chain = chain;
+        this.noIsPrefix = noIsPrefix;
+    }
+
+    /**
+     * {@code lombok.config} の各行に {@code config.stopBubbling = true} が含まれるか判定する.
+     *
+     * @param lines {@code lombok.config} の各行
+     * @return 親ディレクトリの設定を参照しない場合は {@code true}, それ以外は {@code false}.
+     */
+    static boolean stopsBubbling(List<String> lines) {
+        boolean stop = false;
+        for (String line : lines) {
+            final Matcher assign = ASSIGN.matcher(line.trim());
+            if (assign.matches() && STOP_BUBBLING.equalsIgnoreCase(assign.group(1))
+                    && "=".equals(assign.group(2))) {
+                stop = Boolean.parseBoolean(assign.group(3).trim());
+            }
+        }
+        return stop;
+    }
+
+    /**
+     * この設定に、子ディレクトリの {@code lombok.config} を適用した設定を返す.
+     *
+     * @param lines {@code lombok.config} の各行
+     * @return 適用した設定. 変更がなければこのインスタンス.
+     */
+    LombokConfig apply(List<String> lines) {
+        List<String> newPrefixes = prefixes;
+        Boolean newFluent = fluent;
+        Boolean newChain = chain;
+        Boolean newNoIsPrefix = noIsPrefix;
+        for (String rawLine : lines) {
+            final String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final Matcher clear = CLEAR.matcher(line);
+            final Matcher assign = ASSIGN.matcher(line);
+            final String key;
+            String operator = null;
+            String value = null;
+            if (clear.matches()) {
+                key = clear.group(1);
+            } else if (assign.matches()) {
+                key = assign.group(1);
+                operator = assign.group(2);
+                value = assign.group(3).trim();
+            } else {
+                LOG.log(Level.FINE, "Ignore line in lombok.config: {0}", line);
+                continue;
+            }
+            if (PREFIX.equalsIgnoreCase(key)) {
+                final List<String> list = new ArrayList<>(newPrefixes);
+                if (operator == null || "=".equals(operator)) {
+                    list.clear();
+                }
+                if ("-=".equals(operator)) {
+                    list.remove(value);
+                } else if (operator != null && !list.contains(value)) {
+                    list.add(value);
+                }
+                newPrefixes = Collections.unmodifiableList(list);
+            } else if (FLUENT.equalsIgnoreCase(key)) {
+                newFluent = toBoolean(value);
+            } else if (CHAIN.equalsIgnoreCase(key)) {
+                newChain = toBoolean(value);
+            } else if (NO_IS_PREFIX.equalsIgnoreCase(key)) {
+                newNoIsPrefix = toBoolean(value);
+            }
+        }
+        if (newPrefixes.equals(prefixes) && newFluent == fluent && newChain == chain
+                && newNoIsPrefix == noIsPrefix) {
+            return this;
+        }
+        return new LombokConfig(newPrefixes, newFluent, newChain, newNoIsPrefix);
+    }
+
+    private static Boolean toBoolean(String value) {
+        return value == null ? null : Boolean.valueOf(value);
+    }
+
+    /**
+     * {@code get}, {@code is}, {@code set} を付けない設定か判定する.
+     *
+     * @return {@code lombok.accessors.fluent} が {@code true} であれば {@code true}.
+     */
+    public boolean isFluent() {
+        return Boolean.TRUE.equals(fluent);
+    }
+
+    /**
+     * Setter が {@code this} を返す設定か判定する.
+     *
+     * @return {@code lombok.accessors.chain} が {@code true} であるか、省略時に fluent であれば
+     * {@code true}.
+     */
+    public boolean isChain() {
+        return chain != null ? chain : isFluent();
+    }
+
+    /**
+     * 接頭辞を取り除いたフィールド名を返す. Lombok と同様に、英字で終わる接頭辞の直後が
+     * 英小文字の場合は一致しないものとする.
+     *
+     * @param fieldName フィールド名
+     * @return 接頭辞を取り除いた名前. いずれの接頭辞にも一致しなければ {@code null}.
+     */
+    String removePrefix(String fieldName) {
+        if (prefixes.isEmpty()) {
+            return fieldName;
+        }
+        for (String prefix : prefixes) {
+            if (prefix.isEmpty()) {
+                return fieldName;
+            }
+            if (fieldName.length() <= prefix.length() || !fieldName.startsWith(prefix)) {
+                continue;
+            }
+            final char next = fieldName.charAt(prefix.length());
+            if (Character.isLetter(prefix.charAt(prefix.length() - 1)) && Character.isLowerCase(next)) {
+                continue;
+            }
+            return Character.toLowerCase(next) + fieldName.substring(prefix.length() + 1);
+        }
+        return null;
+    }
+
+    /**
+     * {@link lombok.Getter} が生成するメソッドの名前を返す.
+     *
+     * @param fieldName フィールド名
+     * @param isBoolean フィールドの型が {@code boolean} であれば {@code true}.
+     * @return メソッド名. 接頭辞に一致せず生成されない場合は {@code null}.
+     */
+    public String getterName(String fieldName, boolean isBoolean) {
+        return accessorName(fieldName, isBoolean, "is", "get");
+    }
+
+    /**
+     * {@link lombok.Setter} が生成するメソッドの名前を返す.
+     *
+     * @param fieldName フィールド名
+     * @param isBoolean フィールドの型が {@code boolean} であれば {@code true}.
+     * @return メソッド名. 接頭辞に一致せず生成されない場合は {@code null}.
+     */
+    public String setterName(String fieldName, boolean isBoolean) {
+        return accessorName(fieldName, isBoolean, "set", "set");
+    }
+
+    /**
+     * {@link lombok.Getter} がメソッドを生成しない理由となる、既存のメソッドの名前を小文字で返す.
+     *
+     * @param fieldName フィールド名
+     * @param isBoolean フィールドの型が {@code boolean} であれば {@code true}.
+     * @return メソッド名の集合. 接頭辞に一致しなければ空.
+     */
+    public Set<String> getterNames(String fieldName, boolean isBoolean) {
+        return accessorNames(fieldName, isBoolean, "is", "get");
+    }
+
+    /**
+     * {@link lombok.Setter} がメソッドを生成しない理由となる、既存のメソッドの名前を小文字で返す.
+     *
+     * @param fieldName フィールド名
+     * @param isBoolean フィールドの型が {@code boolean} であれば {@code true}.
+     * @return メソッド名の集合. 接頭辞に一致しなければ空.
+     */
+    public Set<String> setterNames(String fieldName, boolean isBoolean) {
+        return accessorNames(fieldName, isBoolean, "set", "set");
+    }
+
+    private String accessorName(String fieldName, boolean isBoolean,
+            String booleanPrefix, String normalPrefix) {
+        final String name = removePrefix(fieldName);
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        if (isFluent()) {
+            return name;
+        }
+        if (isBoolean && !Boolean.TRUE.equals(noIsPrefix)) {
+            if (startsWithIs(name)) {
+                return booleanPrefix + name.substring(2);
+            }
+            return buildName(booleanPrefix, name);
+        }
+        return buildName(normalPrefix, name);
+    }
+
+    private Set<String> accessorNames(String fieldName, boolean isBoolean,
+            String booleanPrefix, String normalPrefix) {
+        final Set<String> names = new LinkedHashSet<>();
+        if (!isBoolean || Boolean.TRUE.equals(noIsPrefix)) {
+            final String name = accessorName(fieldName, false, booleanPrefix, normalPrefix);
+            if (name != null) {
+                names.add(name.toLowerCase(Locale.ROOT));
+            }
+            return names;
+        }
+        final String name = removePrefix(fieldName);
+        if (name == null || name.isEmpty()) {
+            return names;
+        }
+        final List<String> baseNames = new ArrayList<>();
+        baseNames.add(name);
+        if (startsWithIs(name)) {
+            final String baseName = name.substring(2);
+            baseNames.add(isFluent()
+                    ? Character.toLowerCase(baseName.charAt(0)) + baseName.substring(1)
+                    : baseName);
+        }
+        for (String baseName : baseNames) {
+            if (isFluent()) {
+                names.add(baseName.toLowerCase(Locale.ROOT));
+            } else {
+                names.add(buildName(normalPrefix, baseName).toLowerCase(Locale.ROOT));
+                names.add(buildName(booleanPrefix, baseName).toLowerCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+
+    private static String buildName(String prefix, String name) {
+        return prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    @Override
+    public String toString() {
+        return "LombokConfig{prefix=" + prefixes + ", fluent=" + fluent
+                + ", chain=" + chain + ", noIsPrefix=" + noIsPrefix + "}";
+    }
+}
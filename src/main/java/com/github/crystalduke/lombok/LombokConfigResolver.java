@@ -0,0 +1,80 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ディレクトリごとに、親ディレクトリを遡って {@code lombok.config} を適用した設定を求める.
+ * 求めた設定はディレクトリごとにキャッシュするため、同じパッケージのソースファイルは
+ * 設定ファイルを読み直さない. 複数スレッドから同時に利用できる.
+ */
+public class LombokConfigResolver {
+
+    private static final Logger LOG = Logger.getLogger(LombokConfigResolver.class.getName());
+    private static final String FILE_NAME = "lombok.config";
+
+    private final ConcurrentMap<Path, LombokConfig> cache = new ConcurrentHashMap<>();
+
+    /**
+     * ソースファイルに適用される設定を返す.
+     *
+     * @param sourceFile ソースファイル
+     * @return 設定.
+     */
+    public LombokConfig forFile(Path sourceFile) {
+        final Path directory = sourceFile.toAbsolutePath().normalize().getParent();
+        return directory != null ? forDirectory(directory) : LombokConfig.DEFAULT;
+    }
+
+    /**
+     * ディレクトリ配下のソースファイルに適用される設定を返す.
+     *
+     * @param directory ディレクトリ
+     * @return 設定.
+     */
+    public LombokConfig forDirectory(Path directory) {
+        LombokConfig config = cache.get(directory);
+        if (config != null) {
+            return config;
+        }
+        // 親ディレクトリの設定を再帰的に求めるため computeIfAbsent は使えない
+        final List<String> lines = read(directory.resolve(FILE_NAME));
+        final Path parent = directory.getParent();
+        final LombokConfig base = parent == null || LombokConfig.stopsBubbling(lines)
+                ? LombokConfig.DEFAULT
+                : forDirectory(parent);
+        config = base.apply(lines);
+        if (!lines.isEmpty()) {
+            LOG.log(Level.FINE, "{0}: {1}", new Object[] {directory.resolve(FILE_NAME), config});
+        }
+        final LombokConfig existing = cache.putIfAbsent(directory, config);
+        return existing != null ? existing : config;
+    }
+
+    /**
+     * キャッシュした設定を破棄する. {@code lombok.config} が変更された場合に呼び出す.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    private static List<String> read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * {@link Lombokizer} でソースファイル 1 つに Lombok アノテーションを適用した結果. 不変であり、
+ * 複数のスレッドで共有できる.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LombokizeResult {
+
+    /**
+     * ファイルごとの処理結果.
+     */
+    public enum Status {
+        /**
+         * Lombok アノテーションを適用した.
+         */
+        CHANGED,
+        /**
+         * 適用できる箇所がなかった.
+         */
+        UNCHANGED,
+        /**
+         * パースせずに処理を省略した.
+         */
+        SKIPPED,
+        /**
+         * パースに失敗した.
+         */
+        FAILED,
+        /**
+         * 時間の上限を超えたため、書き換えずに処理を打ち切った.
+         */
+        ABANDONED,
+        /**
+         * 生成されたソースか、適用済みのソースのため処理を省略した. 理由は {@link #getSkipReason()} で返す.
+         */
+        EXCLUDED
+    }
+
+    /**
+     * ソースの処理を省略した理由.
+     */
+    public enum SkipReason {
+        /**
+         * ツールが生成したソース.
+         */
+        GENERATED,
+        /**
+         * 全てのトップレベルの型に、クラス単位の Lombok アノテーションを付与済みのソース.
+         */
+        LOMBOKIZED
+    }
+
+    /**
+     * 処理の段階.
+     */
+    public enum Phase {
+        /**
+         * ソースファイルの読み込み.
+         */
+        READ,
+        /**
+         * トークン列による判定.
+         */
+        SCAN,
+        /**
+         * 構文解析.
+         */
+        PARSE,
+        /**
+         * フィールド単位のアノテーションの適用.
+         */
+        FIELDS,
+        /**
+         * import 文の追加.
+         */
+        IMPORTS,
+        /**
+         * クラス単位のアノテーションの適用.
+         */
+        TYPES,
+        /**
+         * 適用結果の文字列化.
+         */
+        PRINT
+    }
+
+    /**
+     * ソースファイルの名前. パスを指定した場合はその文字列.
+     */
+    private final String name;
+    private final Status status;
+    /**
+     * 処理を打ち切った段階. 打ち切っていなければ {@code null}.
+     */
+    private final Phase abandonedPhase;
+    /**
+     * 処理を省略した理由. {@link Status#EXCLUDED} 以外は {@code null}.
+     */
+    private final SkipReason skipReason;
+    /**
+     * 適用前のソースコード. ファイルを読み込む前に打ち切った場合は {@code null}.
+     */
+    private final String originalCode;
+    /**
+     * 適用後のソースコード. {@link Status#CHANGED} 以外は {@code null}.
+     */
+    private final String revisedCode;
+    /**
+     * 付与した {@link lombok.Getter} の数.
+     */
+    private final int numOfGetters;
+    /**
+     * 付与した {@link lombok.Setter} の数.
+     */
+    private final int numOfSetters;
+    /**
+     * アノテーションを付与したフィールドの数.
+     */
+    private final int numOfFields;
+    /**
+     * フィールドのアノテーションをクラス単位のアノテーションに置き換えた回数.
+     */
+    private final int numOfTypes;
+    /**
+     * 構文解析に要した時間 (ナノ秒).
+     */
+    private final long parseNanos;
+    /**
+     * 全体の処理に要した時間 (ナノ秒).
+     */
+    private final long elapsedNanos;
+
+    static LombokizeResult of(String name, Status status, String originalCode, long parseNanos,
+            long startTime) {
+        return new LombokizeResult(name, status, null, null, originalCode, null, 0, 0, 0, 0, parseNanos,
+                System.nanoTime() - startTime);
+    }
+
+    static LombokizeResult excluded(String name, SkipReason reason, String originalCode, long startTime) {
+        return new LombokizeResult(name, Status.EXCLUDED, null, reason, originalCode, null, 0, 0, 0, 0, 0,
+                System.nanoTime() - startTime);
+    }
+
+    static LombokizeResult changed(String name, String originalCode, String revisedCode,
+            CompilationUnitLombokizer lombokizer, long parseNanos, long startTime) {
+        return new LombokizeResult(name, Status.CHANGED, null, null, originalCode, revisedCode,
+                lombokizer.getNumOfGetters(), lombokizer.getNumOfSetters(),
+                lombokizer.getNumOfFields(), lombokizer.getNumOfTypes(),
+                parseNanos, System.nanoTime() - startTime);
+    }
+
+    static LombokizeResult abandoned(String name, String originalCode, TimeBudget budget) {
+        return new LombokizeResult(name, Status.ABANDONED, budget.getPhase(), null, originalCode, null,
+                0, 0, 0, 0, 0, budget.elapsedNanos());
+    }
+
+    /**
+     * Lombok アノテーションを適用したか判定する.
+     *
+     * @return {@link Status#CHANGED} であれば {@code true}, それ以外は {@code false}.
+     */
+    public boolean isChanged() {
+        return status == Status.CHANGED;
+    }
+
+    /**
+     * 変更を unified diff 形式で出力する. 出力は {@code git apply} で適用できる.
+     *
+     * @param out 出力先
+     * @param path 差分に記録するパス. 区切り文字は {@code /} とする.
+     * @return 変更があれば {@code true}, それ以外は {@code false}.
+     * @throws IOException 出力に失敗した場合.
+     */
+    public boolean writeUnifiedDiff(Appendable out, String path) throws IOException {
+        return isChanged() && UnifiedDiff.write(out, path, originalCode, revisedCode);
+    }
+}
@@ -0,0 +1,354 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import static com.github.javaparser.ParserConfiguration.LanguageLevel.*;
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * ソースコードに Lombok アノテーションを適用するエンジン. 設定を指定して一度だけ構築し、
+ * 複数のソースファイルに適用する. ソースファイルは書き換えず、結果を {@link LombokizeResult} で返す.
+ * <p>
+ * このクラスのインスタンスは複数のスレッドから同時に呼び出せる. パーサーはスレッドごとに生成し、
+ * 設定を共有する {@link com.github.javaparser.StaticJavaParser} は使わない.
+ * </p>
+ * <pre>
+ * Lombokizer lombokizer = Lombokizer.builder()
+ *         .languageLevel(ParserConfiguration.LanguageLevel.JAVA_8)
+ *         .encoding(StandardCharsets.UTF_8)
+ *         .build();
+ * try (Stream&lt;Path&gt; files = Files.walk(root)) {
+ *     lombokizer.lombokizeAll(files.filter(path -&gt; path.toString().endsWith(".java")).parallel())
+ *             .filter(LombokizeResult::isChanged)
+ *             .forEach(result -&gt; ...);
+ * }
+ * </pre>
+ */
+public final class Lombokizer {
+
+    private static final Logger LOG = Logger.getLogger(Lombokizer.class.getName());
+    private static final Set<ParserConfiguration.LanguageLevel> UNSUPPORTED_LEVELS
+            = EnumSet.of(JAVA_1_0, JAVA_1_1, JAVA_1_2, JAVA_1_3, JAVA_1_4, JAVA_5, JAVA_6);
+    /**
+     * {@link com.github.javaparser.utils.SourceRoot} が入るディレクトリの名前.
+     */
+    private static final Pattern JAVA_IDENTIFIER
+            = Pattern.compile("\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*");
+
+    private final ParserConfiguration configuration;
+    /**
+     * JDK 7 用のソースを出力する場合は {@code true}.
+     */
+    @Getter
+    private final boolean jdk7;
+    private final boolean prefilter;
+    private final TypeMatcher typeMatcher;
+    private final TypeHierarchyIndex typeHierarchy;
+    private final LombokConfigResolver lombokConfigResolver;
+    private final SkipPolicy skipPolicy;
+    private final long timeBudget;
+    private final ThreadLocal<JavaParser> parsers;
+
+    /**
+     * 設定を指定してインスタンスを構築する.
+     *
+     * @param languageLevel ソースの言語レベル. {@code null} の場合は JavaParser の既定値.
+     * @param encoding ソースファイルの文字コード. {@code null} の場合は JavaParser の既定値.
+     * @param prefilter {@code true} の場合、トークン列だけで候補がないと判定したソースはパースしない.
+     * @param typeMatcher 型を比較するインスタンス. {@code null} の場合は文字列として比較する.
+     * @param typeHierarchy 型階層の索引. 指定した場合、オーバーライドの関係にあるアクセサは削除しない.
+     * @param lombokConfigResolver {@code lombok.config} の設定を求めるインスタンス.
+     * {@code null} の場合は {@code lombok.config} を読み込まない.
+     * @param skipGenerated {@code true} の場合、生成されたソースはパースせずに省略する.
+     * @param skipLombokized {@code true} の場合、全ての型のアクセサをクラス単位の
+     * Lombok アノテーションで生成済みのソースはパースせずに省略する.
+     * @param timeBudget ソースファイル 1 つの処理に許す時間 (ミリ秒). 0 の場合は制限しない.
+     * @throws IllegalArgumentException 対応していない言語レベルを指定した場合.
+     */
+    @Builder
+    private Lombokizer(ParserConfiguration.LanguageLevel languageLevel, Charset encoding,
+            boolean prefilter, TypeMatcher typeMatcher, TypeHierarchyIndex typeHierarchy,
+            LombokConfigResolver lombokConfigResolver, boolean skipGenerated, boolean skipLombokized,
+            long timeBudget) {
+        if (languageLevel != null && UNSUPPORTED_LEVELS.contains(languageLevel)) {
+            throw new IllegalArgumentException("Unsupported language level: " + languageLevel);
+        }
+        this.configuration = configuration(languageLevel, encoding);
+        this.jdk7 = configuration.getLanguageLevel() == JAVA_7;
+        this.prefilter = prefilter;
+        this.typeMatcher = typeMatcher != null ? typeMatcher : new TypeMatcher();
+        this.typeHierarchy = typeHierarchy;
+        this.lombokConfigResolver = lombokConfigResolver;
+        this.skipPolicy = new SkipPolicy(skipGenerated, skipLombokized);
+        this.timeBudget = timeBudget;
+        // JavaParser はパースごとに内部のパーサーを使い回し、ParserConfiguration は検出した改行コードを
+        // パースごとに書き換えるため、どちらもスレッドごとに用意する
+        this.parsers = ThreadLocal.withInitial(() -> new JavaParser(configuration(languageLevel, encoding)));
+    }
+
+    /**
+     * パーサーの設定を生成する.
+     *
+     * @param languageLevel ソースの言語レベル. {@code null} の場合は JavaParser の既定値.
+     * @param encoding ソースファイルの文字コード. {@code null} の場合は JavaParser の既定値.
+     * @return 生成した設定.
+     */
+    private static ParserConfiguration configuration(ParserConfiguration.LanguageLevel languageLevel,
+            Charset encoding) {
+        final ParserConfiguration config = new ParserConfiguration();
+        if (languageLevel != null) {
+            config.setLanguageLevel(languageLevel);
+        }
+        if (encoding != null) {
+            config.setCharacterEncoding(encoding);
+        }
+        config.setLexicalPreservationEnabled(true);
+        return config;
+    }
+
+    /**
+     * ソースファイルを読み込み、Lombok アノテーションを適用した結果を返す. ソースファイルは書き換えない.
+     *
+     * @param path ソースファイル
+     * @return 適用結果.
+     * @throws IOException 読み込みに失敗した場合.
+     */
+    public LombokizeResult lombokize(Path path) throws IOException {
+        return lombokize(path, read(path));
+    }
+
+    /**
+     * 読み込み済みのソースコードに Lombok アノテーションを適用した結果を返す.
+     * {@code lombok.config} はパスから求める.
+     *
+     * @param path ソースファイルのパス. 存在しなくてもよい.
+     * @param code ソースコード
+     * @return 適用結果.
+     */
+    public LombokizeResult lombokize(Path path, String code) {
+        return lombokize(path.toString(), path, code, TimeBudget.start(timeBudget));
+    }
+
+    /**
+     * メモリ上のソースコードに Lombok アノテーションを適用した結果を返す. {@code lombok.config} は読み込まない.
+     *
+     * @param name 結果に記録するソースの名前
+     * @param code ソースコード
+     * @return 適用結果.
+     */
+    public LombokizeResult lombokize(String name, String code) {
+        return lombokize(name, null, code, TimeBudget.start(timeBudget));
+    }
+
+    /**
+     * ソースファイルを順に読み込み、Lombok アノテーションを適用した結果を返す.
+     * 結果は要素を取り出すたびに求めるため、引数が並列ストリームであれば並行して処理する.
+     *
+     * @param paths ソースファイル
+     * @return 適用結果. 読み込みに失敗した場合、要素を取り出す際に {@link UncheckedIOException} を投げる.
+     */
+    public Stream<LombokizeResult> lombokizeAll(Stream<Path> paths) {
+        return paths.map(path -> {
+            try {
+                return lombokize(path);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * ソースファイルを読み込む.
+     *
+     * @param path ソースファイル
+     * @return ファイルの内容.
+     * @throws IOException 読み込みに失敗した場合.
+     */
+    String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), configuration.getCharacterEncoding());
+    }
+
+    /**
+     * ソースファイルに適用される {@code lombok.config} の設定を返す.
+     *
+     * @param path ソースファイル. {@code null} の場合は既定の設定を返す.
+     */
+    LombokConfig lombokConfig(Path path) {
+        return lombokConfigResolver != null && path != null
+                ? lombokConfigResolver.forFile(path)
+                : LombokConfig.DEFAULT;
+    }
+
+    /**
+     * 時間の上限を指定して Lombok アノテーションを適用する.
+     *
+     * @param name 結果に記録するソースの名前
+     * @param path ソースファイル. 省略の判定と {@code lombok.config} の設定に使う.
+     * メモリ上のソースの場合は {@code null}.
+     * @param code ソースコード
+     * @param budget 処理に許す時間. 上限を超えた場合は {@link LombokizeResult.Status#ABANDONED} を返す.
+     * @return 適用結果.
+     */
+    LombokizeResult lombokize(String name, Path path, String code, TimeBudget budget) {
+        final long startTime = System.nanoTime();
+        try {
+            budget.enter(LombokizeResult.Phase.SCAN);
+            final LombokizeResult.SkipReason skipReason = skipPolicy.test(path, code);
+            if (skipReason != null) {
+                LOG.log(Level.INFO, "Skipped as {0} source", skipReason);
+                return LombokizeResult.excluded(name, skipReason, code, startTime);
+            }
+            final LombokConfig lombokConfig = lombokConfig(path);
+            if (prefilter && AccessorTokenScanner.scan(code, lombokConfig)
+                    == AccessorTokenScanner.Verdict.NO_CANDIDATES) {
+                LOG.fine("No candidates in token stream");
+                LOG.info("No changes");
+                return LombokizeResult.of(name, LombokizeResult.Status.SKIPPED, code, 0, startTime);
+            }
+            budget.enter(LombokizeResult.Phase.PARSE);
+            // パースから文字列化までの間、他のスレッドにキャッシュを解放させない
+            PhantomNodeCache.acquire();
+            try {
+                final long parseStart = System.nanoTime();
+                final ParseResult<CompilationUnit> result = parsers.get()
+                        .parse(ParseStart.COMPILATION_UNIT, budget.provider(code));
+                final long parseNanos = System.nanoTime() - parseStart;
+                return lombokize(name, lombokConfig, code, result, parseNanos, budget, startTime);
+            } finally {
+                PhantomNodeCache.release();
+            }
+        } catch (TimeBudget.ExceededException ex) {
+            return LombokizeResult.abandoned(name, code, budget);
+        }
+    }
+
+    /**
+     * パース済みのソースコードに Lombok アノテーションを適用する.
+     *
+     * @param name 結果に記録するソースの名前
+     * @param path ソースファイル. 省略の判定と {@code lombok.config} の設定に使う.
+     * @param result パースの結果
+     * @param budget 処理に許す時間. 上限を超えた場合は {@link LombokizeResult.Status#ABANDONED} を返す.
+     * @return 適用結果.
+     */
+    LombokizeResult lombokize(String name, Path path, ParseResult<CompilationUnit> result, TimeBudget budget) {
+        final long startTime = System.nanoTime();
+        PhantomNodeCache.acquire();
+        try {
+            // 構文木の JavaToken は適用時に書き換わるため、差分の元になる文字列は先に取得しておく
+            final String code = result.getResult().map(TokenUtil::asString).orElse(null);
+            final LombokizeResult.SkipReason skipReason = code != null ? skipPolicy.test(path, code) : null;
+            if (skipReason != null) {
+                LOG.log(Level.INFO, "Skipped as {0} source", skipReason);
+                return LombokizeResult.excluded(name, skipReason, code, startTime);
+            }
+            return lombokize(name, lombokConfig(path), code, result, 0, budget, startTime);
+        } catch (TimeBudget.ExceededException ex) {
+            return LombokizeResult.abandoned(name, null, budget);
+        } finally {
+            PhantomNodeCache.release();
+        }
+    }
+
+    private LombokizeResult lombokize(String name, LombokConfig lombokConfig, String code,
+            ParseResult<CompilationUnit> result, long parseNanos, TimeBudget budget, long startTime) {
+        // パーサーは打ち切りを構文エラーとして扱うため、結果を見る前に確認する
+        budget.check();
+        if (!result.isSuccessful()) {
+            LOG.severe("Parse failed");
+            return LombokizeResult.of(name, LombokizeResult.Status.FAILED, code, parseNanos, startTime);
+        }
+        LOG.fine("Parse succeeded");
+        final CompilationUnit original = result.getResult().get();
+        final CompilationUnitLombokizer lombokizer = new CompilationUnitLombokizer(jdk7, typeMatcher);
+        lombokizer.setTypeHierarchy(typeHierarchy);
+        lombokizer.setLombokConfig(lombokConfig);
+        lombokizer.setTimeBudget(budget);
+        lombokizer.setParser(parsers.get());
+        final CompilationUnit cu = lombokizer.apply(original);
+        if (original == cu) {
+            LOG.info("No changes");
+            return LombokizeResult.of(name, LombokizeResult.Status.UNCHANGED, code, parseNanos, startTime);
+        }
+        budget.enter(LombokizeResult.Phase.PRINT);
+        final String revisedCode = TokenUtil.asString(cu);
+        budget.check();
+        return LombokizeResult.changed(name, code, revisedCode, lombokizer, parseNanos, startTime);
+    }
+
+    /**
+     * Maven の {@code maven.compiler.source} と同じ形式の文字列を言語レベルに変換する.
+     *
+     * @param level {@code 1.8} や {@code 11} などの文字列
+     * @return 言語レベル. 引数が {@code null} の場合は {@code null}.
+     * @throws IllegalArgumentException 言語レベルを表す文字列でない場合.
+     */
+    static ParserConfiguration.LanguageLevel toLanguageLevel(String level) {
+        if (level == null) {
+            return null;
+        }
+        if (level.matches("^1\\.[0-4]$")) {
+            // 例：1.4 -> 1_4
+            level = level.replace('.', '_');
+        } else if (level.matches("1\\.[5-8]$")) {
+            // 例：1.5 -> 5
+            level = level.substring(2);
+        }
+        return ParserConfiguration.LanguageLevel.valueOf("JAVA_" + level);
+    }
+
+    /**
+     * {@link com.github.javaparser.utils.SourceRoot} と同様に、隠しディレクトリと、名前が Java の識別子でない
+     * ディレクトリ ({@code generated-sources} など、パッケージになり得ないもの) を除いた Java ソースファイルを列挙する.
+     * 引数のディレクトリは、名前に関わらず列挙の対象とする.
+     */
+    static List<Path> collectSourceFiles(Path rootPath) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                return dir.equals(rootPath) || isSensibleDirectoryToEnter(dir)
+                        ? FileVisitResult.CONTINUE
+                        : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isDirectory() && file.toString().endsWith(".java")) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * {@link com.github.javaparser.utils.SourceRoot} がディレクトリに入るかどうかの判定と同じ.
+     */
+    static boolean isSensibleDirectoryToEnter(Path dir) throws IOException {
+        return !Files.isHidden(dir) && JAVA_IDENTIFIER.matcher(dir.getFileName().toString()).matches();
+    }
+}
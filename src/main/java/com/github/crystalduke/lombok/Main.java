@@ -0,0 +1,330 @@
+package com.github.crystalduke.lombok;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maven を介さずに Lombok アノテーションを適用するコマンドラインのランチャー.
+ * 引数のファイルとディレクトリ配下の Java ソースファイルを処理し、変更したファイルのパスを出力する.
+ * 数ファイルだけを処理する pre-commit フックなどでの利用を想定しているため、処理は 1 スレッドで行う.
+ * <pre>
+ * java -jar lombokize-maven-plugin.jar [オプション] ファイルまたはディレクトリ...
+ *
+ *   --diff                ファイルを書き換えずに、変更を unified diff 形式で標準出力に出力する
+ *   --check               ファイルを書き換えずに、変更があれば終了コード 1 で終了する
+ *   --encoding=文字コード  (既定値: UTF-8)
+ *   --language-level=言語レベル   (例: 8, 11)
+ *   --prefilter           トークン列で候補がないと判定したファイルはパースしない
+ *   --skip-generated      生成されたソースはパースしない
+ *   --skip-lombokized     全ての型にクラス単位のアノテーションを付与済みのソースはパースしない
+ *   --no-lombok-config    lombok.config を読み込まない
+ *   --time-budget=ミリ秒  ファイル 1 つの処理に許す時間
+ *   --timing              JVM の起動から処理開始までの時間と、処理時間を標準エラー出力に出力する
+ *   --verbose             処理の詳細を標準エラー出力に出力する
+ *
+ *   --daemon              ファイルを処理せずにデーモンとして起動し、標準入出力で要求を受け付ける
+ *   --port=ポート番号      デーモンとして起動し、ループバックアドレスの TCP で要求を受け付ける (0 は空きポート)
+ *   --token-file=パス     TCP の接続の認証に使うトークンを書き込むファイル
+ *                         (既定値: ~/.lombokize/daemon-ポート番号.token)
+ *   --socket=パス         デーモンとして起動し、Unix ドメインソケットで要求を受け付ける (Java 21 以降)
+ *   --idle-timeout=秒     要求がなければデーモンを終了するまでの時間 (既定値: 600, 0 は終了しない)
+ * </pre>
+ * 終了コードは、正常終了は 0, {@code --check} で変更がある場合は 1, 引数の誤りやパースに失敗した場合は 2.
+ * デーモンの要求の形式は {@link Daemon} を参照. ソケットで待ち受ける場合は、待ち受けを始めたアドレスを
+ * {@code Listening on アドレス} の形式で標準出力に出力する. TCP の場合は、続けてトークンを書き込んだファイルを
+ * {@code Token file パス} の形式で出力する. トークンのファイルは所有者だけが読めるパーミッションで作成し、
+ * デーモンの終了時に削除する.
+ */
+public final class Main {
+
+    private static final Logger LOG = Logger.getLogger(Main.class.getPackage().getName());
+    private static final int EXIT_CHANGED = 1;
+    private static final int EXIT_ERROR = 2;
+
+    private final Lombokizer.LombokizerBuilder builder = Lombokizer.builder();
+    private final List<Path> paths = new ArrayList<>();
+    private LombokConfigResolver lombokConfigResolver = new LombokConfigResolver();
+    private Charset encoding = StandardCharsets.UTF_8;
+    private boolean daemon;
+    private int port = -1;
+    private Path socket;
+    private Path tokenFile;
+    private long idleTimeout = 600;
+    private boolean diff;
+    private boolean check;
+    private boolean timing;
+    private boolean verbose;
+
+    private Main() {
+    }
+
+    /**
+     * コマンドラインから実行する.
+     *
+     * @param args オプションと、処理するファイルまたはディレクトリ
+     */
+    public static void main(String[] args) {
+        final long mainMillis = System.currentTimeMillis();
+        if (System.getProperty("java.util.logging.SimpleFormatter.format") == null) {
+            System.setProperty("java.util.logging.SimpleFormatter.format", "%4$s: %5$s%6$s%n");
+        }
+        final Main main = new Main();
+        int status;
+        try {
+            main.parseArguments(args);
+            status = main.run(mainMillis);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("lombokize: " + ex.getMessage());
+            status = EXIT_ERROR;
+        } catch (IOException ex) {
+            System.err.println("lombokize: " + ex);
+            status = EXIT_ERROR;
+        }
+        System.exit(status);
+    }
+
+    private void parseArguments(String[] args) {
+        for (String arg : args) {
+            final int equals = arg.indexOf('=');
+            final String name = equals < 0 ? arg : arg.substring(0, equals);
+            final String value = equals < 0 ? null : arg.substring(equals + 1);
+            switch (name) {
+                case "--diff":
+                    diff = true;
+                    break;
+                case "--check":
+                    check = true;
+                    break;
+                case "--encoding":
+                    encoding = Charset.forName(required(name, value));
+                    break;
+                case "--language-level":
+                    builder.languageLevel(Lombokizer.toLanguageLevel(required(name, value)));
+                    break;
+                case "--prefilter":
+                    builder.prefilter(true);
+                    break;
+                case "--skip-generated":
+                    builder.skipGenerated(true);
+                    break;
+                case "--skip-lombokized":
+                    builder.skipLombokized(true);
+                    break;
+                case "--no-lombok-config":
+                    lombokConfigResolver = null;
+                    break;
+                case "--time-budget":
+                    builder.timeBudget(Long.parseLong(required(name, value)));
+                    break;
+                case "--timing":
+                    timing = true;
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--daemon":
+                    daemon = true;
+                    break;
+                case "--port":
+                    daemon = true;
+                    port = Integer.parseInt(required(name, value));
+                    break;
+                case "--token-file":
+                    tokenFile = Paths.get(required(name, value));
+                    break;
+                case "--socket":
+                    daemon = true;
+                    socket = Paths.get(required(name, value));
+                    break;
+                case "--idle-timeout":
+                    idleTimeout = Long.parseLong(required(name, value));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    paths.add(Paths.get(arg));
+            }
+        }
+        if (daemon && !paths.isEmpty()) {
+            throw new IllegalArgumentException("The daemon takes files from requests, not arguments");
+        }
+        if (!daemon && paths.isEmpty()) {
+            throw new IllegalArgumentException("No files or directories to lombokize");
+        }
+        builder.encoding(encoding).lombokConfigResolver(lombokConfigResolver);
+    }
+
+    private static String required(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Option " + name + " requires a value");
+        }
+        return value;
+    }
+
+    /**
+     * パッチに記録するパスを返す. カレントディレクトリ配下のファイルは相対パスとする.
+     */
+    private static String patchPath(Path file) {
+        final Path current = Paths.get("").toAbsolutePath();
+        final Path absolute = file.toAbsolutePath().normalize();
+        final Path path = absolute.startsWith(current) ? current.relativize(absolute) : file;
+        return path.toString().replace('\\', '/');
+    }
+
+    private int run(long mainMillis) throws IOException {
+        LOG.setLevel(verbose ? Level.INFO : Level.WARNING);
+        final Lombokizer lombokizer = builder.build();
+        if (daemon) {
+            return runDaemon(lombokizer);
+        }
+        final long startTime = System.nanoTime();
+        final List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                files.addAll(Lombokizer.collectSourceFiles(path));
+            } else {
+                files.add(path);
+            }
+        }
+        int numOfChanged = 0;
+        boolean failed = false;
+        final PrintStream out = System.out;
+        final Writer patch = diff ? new BufferedWriter(new OutputStreamWriter(out, encoding)) : null;
+        for (Path file : files) {
+            final LombokizeResult result = lombokizer.lombokize(file);
+            switch (result.getStatus()) {
+                case CHANGED:
+                    numOfChanged++;
+                    if (patch != null) {
+                        result.writeUnifiedDiff(patch, patchPath(file));
+                    } else {
+                        if (!check) {
+                            Files.write(file, result.getRevisedCode().getBytes(encoding));
+                        }
+                        out.println(file);
+                    }
+                    break;
+                case FAILED:
+                    System.err.println(file + ": parse failed");
+                    failed = true;
+                    break;
+                case ABANDONED:
+                    System.err.println(file + ": abandoned in phase " + result.getAbandonedPhase());
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (patch != null) {
+            patch.flush();
+        }
+        if (timing) {
+            final long startMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.err.printf("Started in %d ms, lombokized %d of %d files in %d ms, %d ms in total%n",
+                    mainMillis - startMillis, numOfChanged, files.size(),
+                    (System.nanoTime() - startTime) / 1_000_000, System.currentTimeMillis() - startMillis);
+        }
+        if (failed) {
+            return EXIT_ERROR;
+        }
+        return check && numOfChanged > 0 ? EXIT_CHANGED : 0;
+    }
+
+    private static String toString(InetSocketAddress address) {
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    /**
+     * 所有者だけが読み書きできるファイルにトークンを書き込む. POSIX のパーミッションを使えないファイルシステムでは、
+     * ディレクトリのアクセス権に従う.
+     */
+    private static void writeTokenFile(Path file, String token) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        Path existing = directory;
+        while (!Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        final boolean posix = Files.getFileStore(existing).supportsFileAttributeView(PosixFileAttributeView.class);
+        if (!Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        // 前回のデーモンが残したファイルや、他のユーザーが作成したファイルには書き込まない
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int runDaemon(Lombokizer lombokizer) throws IOException {
+        final Daemon server = new Daemon(lombokizer, lombokConfigResolver, encoding,
+                TimeUnit.SECONDS.toMillis(idleTimeout));
+        server.warmUp();
+        try {
+            if (socket == null && port < 0) {
+                server.serve(System.in, System.out);
+                return 0;
+            }
+            if (socket != null) {
+                try (ServerSocketChannel channel = LocalSockets.openUnix(socket)) {
+                    System.out.println("Listening on " + socket);
+                    System.out.flush();
+                    server.serve(channel, null);
+                } finally {
+                    Files.deleteIfExists(socket);
+                }
+                return 0;
+            }
+            try (ServerSocketChannel channel = ServerSocketChannel.open()
+                    .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+                final InetSocketAddress address = (InetSocketAddress) channel.getLocalAddress();
+                final Path file = tokenFile != null
+                        ? tokenFile
+                        : Paths.get(System.getProperty("user.home"), ".lombokize",
+                                "daemon-" + address.getPort() + ".token");
+                final String token = Daemon.newToken();
+                writeTokenFile(file, token);
+                try {
+                    System.out.println("Listening on " + toString(address));
+                    System.out.println("Token file " + file);
+                    System.out.flush();
+                    server.serve(channel, token);
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (UnsupportedOperationException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+}
@@ -10,7 +10,6 @@ import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import lombok.AllArgsConstructor;
-import lombok.Setter;
 import org.apache.maven.plugin.logging.Log;
 
 /**
@@ -18,8 +17,7 @@ import org.apache.maven.plugin.logging.Log;
  */
 public class MavenPluginLogHandler extends Handler {
 
-    @Setter
-    private String prefix;
+    private final ThreadLocal<String> prefix = new ThreadLocal<>();
     private Map<Level, LogConsumer> consumers;
     private LogConsumer debug;
 
@@ -37,6 +35,7 @@ public class MavenPluginLogHandler extends Handler {
                 return;
             }
             String msg = getFormatter().format(record);
+            final String prefix = MavenPluginLogHandler.this.prefix.get();
             if (prefix != null) {
                 msg = msg != null ? prefix + msg : prefix;
             }
@@ -73,6 +72,20 @@ public class MavenPluginLogHandler extends Handler {
         debug = new LogConsumer(log::isDebugEnabled, log::debug, log::debug, log::debug);
     }
 
+    /**
+     * 現在のスレッドで出力するログの先頭に付与する文字列を設定する.
+     * 複数のスレッドで並行して処理するため、スレッドごとに保持する.
+     *
+     * @param prefix ログの先頭に付与する文字列. {@code null} の場合は付与しない.
+     */
+    public void setPrefix(String prefix) {
+        if (prefix != null) {
+            this.prefix.set(prefix);
+        } else {
+            this.prefix.remove();
+        }
+    }
+
     /**
      * JUL のログ出力をコンストラクタで指定したインスタンスへ転送する. このクラスでは、JUL の {@link Level}
      * に対して以下のメソッドでログを転送する.
@@ -87,11 +100,15 @@ public class MavenPluginLogHandler extends Handler {
      * <tr><td>その他</td><td>{@code debug}</td></tr>
      * </tbody>
      * </table>
+     * {@link #setLevel(Level)} で設定したレベルに満たないログは転送しない.
      *
      * @param record
      */
     @Override
     public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
         consumers.getOrDefault(record.getLevel(), debug).accept(record);
     }
 
@@ -0,0 +1,82 @@
+package com.github.crystalduke.lombok;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * シャードごとに出力した処理結果を 1 つのファイルに統合する.
+ */
+@Mojo(name = "merge-reports", threadSafe = true)
+public class MergeReportsMojo extends AbstractMojo {
+
+    /**
+     * シャードごとの処理結果 ({@code report-*-of-*.tsv}) を格納したディレクトリ.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/lombokize", property = "lombokize.reportDirectory")
+    private File reportDirectory;
+    @Parameter(defaultValue = "${project.build.directory}/lombokize/report.tsv", property = "lombokize.mergedReport")
+    private File mergedReport;
+    /**
+     * {@code true} の場合、結果が揃っていないシャードがあればビルドを失敗させる.
+     */
+    @Parameter(defaultValue = "true", property = "lombokize.requireAllShards")
+    private boolean requireAllShards;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        ShardReport merged = null;
+        int numOfReports = 0;
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportDirectory.toPath(),
+                "report-*-of-*.tsv")) {
+            for (Path report : reports) {
+                final ShardReport shard = ShardReport.read(report);
+                if (merged == null) {
+                    merged = shard;
+                } else {
+                    merged.merge(shard);
+                }
+                numOfReports++;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (IllegalArgumentException ex) {
+            throw new MojoExecutionException(ex.getMessage(), ex);
+        }
+        if (merged == null) {
+            throw new MojoFailureException("No reports in " + reportDirectory);
+        }
+        final Map<LombokizeResult.Status, Integer> counts = merged.count();
+        getLog().info(String.format("Merged %d reports: %d changed, %d unchanged, %d skipped, %d failed, %d abandoned, "
+                + "%d excluded",
+                numOfReports,
+                counts.get(LombokizeResult.Status.CHANGED),
+                counts.get(LombokizeResult.Status.UNCHANGED),
+                counts.get(LombokizeResult.Status.SKIPPED),
+                counts.get(LombokizeResult.Status.FAILED),
+                counts.get(LombokizeResult.Status.ABANDONED),
+                counts.get(LombokizeResult.Status.EXCLUDED)));
+        try {
+            merged.write(mergedReport.toPath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        final int missing = merged.missingShards();
+        if (missing > 0) {
+            final String message = missing + " shards have no report in " + reportDirectory;
+            if (requireAllShards) {
+                throw new MojoFailureException(message);
+            }
+            getLog().warn(message);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.github.crystalduke.lombok;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ソースディレクトリを書き換えずに、Lombok アノテーションを適用したソースファイルを出力するディレクトリ.
+ * 変更したファイルは書き込み、それ以外のファイルはソースファイルへのハードリンクとする.
+ * ハードリンクを作成できないファイルシステムでは複製する.
+ * <p>
+ * 前回の処理を全てのソースファイルについて終え ({@link #STAMP_FILE} が存在し)、出力に影響する設定が前回と同じで、
+ * 出力済みのファイルが次の条件を満たす場合、ソースファイルを処理し直さない.
+ * </p>
+ * <ul>
+ * <li>書き込んだか複製したファイル: 更新時刻がソースファイル以降.</li>
+ * <li>ハードリンク: ソースファイルの更新時刻が、前回の処理を始めた時刻 ({@link #STAMP_FILE}
+ * の更新時刻) より前. ハードリンクはソースファイルと更新時刻を共有するため.</li>
+ * </ul>
+ * 書き込みは一時ファイルを経由して置き換えるため、ハードリンクを通してソースファイルを書き換えることはない.
+ */
+class OutputTree {
+
+    private static final Logger LOG = Logger.getLogger(OutputTree.class.getName());
+
+    /**
+     * 前回の処理を始めた時刻を更新時刻として、設定のハッシュ値を内容として記録するファイル.
+     */
+    static final String STAMP_FILE = ".lombokize-stamp";
+    private static final String STAMP_HEADER = "# lombokize output ";
+
+    private final Path rootPath;
+    private final Path outputPath;
+    private final Charset encoding;
+    private final String stamp;
+    private final FileTime startTime = FileTime.fromMillis(System.currentTimeMillis());
+    private volatile boolean linkSupported = true;
+    private final AtomicInteger numOfWritten = new AtomicInteger();
+    private final AtomicInteger numOfLinked = new AtomicInteger();
+    private final AtomicInteger numOfCopied = new AtomicInteger();
+
+    /**
+     * 出力するディレクトリを指定してインスタンスを構築する.
+     *
+     * @param rootPath ソースディレクトリ
+     * @param outputPath 出力するディレクトリ. ソースディレクトリと重なってはならない.
+     * @param encoding ソースファイルの文字コード
+     * @param settings 出力に影響する設定. 前回と異なる場合は全てのソースファイルを処理し直す.
+     * @throws IllegalArgumentException 出力するディレクトリがソースディレクトリと重なる場合.
+     */
+    OutputTree(Path rootPath, Path outputPath, Charset encoding, String settings) {
+        this.rootPath = rootPath.toAbsolutePath().normalize();
+        this.outputPath = outputPath.toAbsolutePath().normalize();
+        if (this.outputPath.startsWith(this.rootPath) || this.rootPath.startsWith(this.outputPath)) {
+            throw new IllegalArgumentException("Output directory " + outputPath
+                    + " overlaps the source directory " + rootPath);
+        }
+        this.encoding = encoding;
+        this.stamp = STAMP_HEADER + ProgressJournal.hash(settings) + "\n";
+    }
+
+    /**
+     * 前回の処理から更新されたソースファイルを返す. 前回の処理を終えていないか、設定が異なる場合は
+     * 全てのソースファイルを返し、今回の処理を終えるまで前回の記録を削除する.
+     *
+     * @param sourceFiles ソースディレクトリ配下のソースファイル
+     * @return 処理し直すソースファイル. 順序は {@code sourceFiles} と同じ.
+     * @throws IOException 更新時刻の読み込みに失敗した場合.
+     */
+    List<Path> outdated(List<Path> sourceFiles) throws IOException {
+        final Path stampFile = outputPath.resolve(STAMP_FILE);
+        if (!Files.exists(stampFile)) {
+            return new ArrayList<>(sourceFiles);
+        }
+        if (!stamp.equals(new String(Files.readAllBytes(stampFile), StandardCharsets.UTF_8))) {
+            LOG.log(Level.INFO, "Reprocess all files since the settings differ from the last run");
+            // 途中で打ち切っても、次回は全てのソースファイルを処理し直す
+            Files.delete(stampFile);
+            return new ArrayList<>(sourceFiles);
+        }
+        final FileTime lastStartTime = Files.getLastModifiedTime(stampFile);
+        final List<Path> outdated = new ArrayList<>();
+        for (Path source : sourceFiles) {
+            if (!isUpToDate(source, resolve(source), lastStartTime)) {
+                outdated.add(source);
+            }
+        }
+        return outdated;
+    }
+
+    /**
+     * ソースファイルがなくなった出力済みのファイルを削除する.
+     *
+     * @param sourceFiles ソースディレクトリ配下の全てのソースファイル
+     * @return 削除したファイルの数.
+     * @throws IOException 出力するディレクトリの読み込みか、ファイルの削除に失敗した場合.
+     */
+    int deleteStale(Collection<Path> sourceFiles) throws IOException {
+        if (!Files.isDirectory(outputPath)) {
+            return 0;
+        }
+        final Set<Path> targets = sourceFiles.stream().map(this::resolve).collect(Collectors.toSet());
+        final List<Path> stale;
+        try (Stream<Path> files = Files.walk(outputPath)) {
+            stale = files.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path))
+                    .filter(path -> !targets.contains(path))
+                    .collect(Collectors.toList());
+        }
+        for (Path path : stale) {
+            LOG.log(Level.FINE, "Delete {0} whose source file is gone", path);
+            Files.delete(path);
+        }
+        return stale.size();
+    }
+
+    private static boolean isUpToDate(Path source, Path target, FileTime lastStartTime) throws IOException {
+        if (!Files.exists(target)) {
+            return false;
+        }
+        final FileTime sourceTime = Files.getLastModifiedTime(source);
+        if (Files.isSameFile(source, target)) {
+            return sourceTime.compareTo(lastStartTime) < 0;
+        }
+        return Files.getLastModifiedTime(target).compareTo(sourceTime) >= 0;
+    }
+
+    /**
+     * ソースファイルに対応する出力先のパスを返す.
+     *
+     * @param source ソースディレクトリ配下のソースファイル
+     * @return 出力先のパス.
+     */
+    Path resolve(Path source) {
+        return outputPath.resolve(rootPath.relativize(source.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * Lombok アノテーションを適用したソースコードを書き込む. 複数のスレッドから呼び出せる.
+     *
+     * @param source ソースファイル
+     * @param code 書き込むソースコード
+     * @throws IOException 書き込みに失敗した場合.
+     */
+    void write(Path source, String code) throws IOException {
+        final Path target = resolve(source);
+        final Path temporary = temporaryFile(target);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, encoding)) {
+                writer.write(code);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        numOfWritten.incrementAndGet();
+    }
+
+    /**
+     * 変更しなかったソースファイルを出力先にハードリンクする. ハードリンクを作成できない場合は複製する.
+     * 複数のスレッドから呼び出せる.
+     *
+     * @param source ソースファイル
+     * @throws IOException リンクと複製のどちらにも失敗した場合.
+     */
+    void link(Path source) throws IOException {
+        final Path target = resolve(source);
+        if (linkSupported) {
+            final Path temporary = temporaryFile(target);
+            try {
+                Files.createLink(temporary, source);
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                numOfLinked.incrementAndGet();
+                return;
+            } catch (UnsupportedOperationException | FileSystemException ex) {
+                LOG.log(Level.INFO, "Copy unchanged files since hard links are not available: {0}", ex.toString());
+                linkSupported = false;
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        // 更新時刻を引き継ぐため、次回はソースファイルが更新されるまで処理し直さない
+        copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        numOfCopied.incrementAndGet();
+    }
+
+    /**
+     * 処理を打ち切ったソースファイルを、更新時刻を戻して複製する. 次回は処理し直す.
+     *
+     * @param source ソースファイル
+     * @throws IOException 複製に失敗した場合.
+     */
+    void copyOutdated(Path source) throws IOException {
+        final Path target = resolve(source);
+        Files.createDirectories(target.getParent());
+        copy(source, target);
+        Files.setLastModifiedTime(target, FileTime.fromMillis(0));
+        numOfCopied.incrementAndGet();
+    }
+
+    /**
+     * ソースファイルを複製する. 出力先がソースファイルへのハードリンクの場合、
+     * {@link Files#copy(Path, Path, java.nio.file.CopyOption...)} は何もしないため、先に削除する.
+     */
+    private static void copy(Path source, Path target, StandardCopyOption... options) throws IOException {
+        Files.deleteIfExists(target);
+        Files.copy(source, target, options);
+    }
+
+    /**
+     * 出力先を置き換えるための一時ファイルのパスを返す. 同じファイルを並行して書き込むことはないため、
+     * 名前は出力先から決める. 一時ファイルは既定のパーミッションで作成する.
+     */
+    private static Path temporaryFile(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        final Path temporary = target.resolveSibling("." + target.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        return temporary;
+    }
+
+    /**
+     * 全てのソースファイルを処理し終えたことを記録する. 処理を始めた時刻と設定を次回の判定に使う.
+     *
+     * @throws IOException 記録に失敗した場合.
+     */
+    void commit() throws IOException {
+        Files.createDirectories(outputPath);
+        final Path stampFile = outputPath.resolve(STAMP_FILE);
+        Files.write(stampFile, stamp.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(stampFile, startTime);
+    }
+
+    int getNumOfWritten() {
+        return numOfWritten.get();
+    }
+
+    int getNumOfLinked() {
+        return numOfLinked.get();
+    }
+
+    int getNumOfCopied() {
+        return numOfCopied.get();
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.printer.lexicalpreservation.PhantomNodeLogic;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link PhantomNodeLogic} が static に保持するキャッシュの解放を、構文木を操作する他のスレッドと調停する.
+ * <p>
+ * LexicalPreservingPrinter はパース、書き換え、文字列化のたびに全てのノードをキャッシュに登録し、
+ * 解放しない限り保持し続ける. 一方で、他のスレッドが参照している最中にキャッシュを解放すると、
+ * 登録済みと判定したノードの値が消えて {@link NullPointerException} となる.
+ * そこで構文木を操作する間は読み取りロックを、解放する間は書き込みロックを取得する.
+ * </p>
+ * <p>
+ * 他のスレッドが構文木を操作していなければ、読み取りロックを解放するたびにキャッシュを解放する.
+ * 操作中のスレッドがある場合は一定回数ごとに、全てのスレッドが操作を終えるのを待って解放する.
+ * 待っている間は公平なロックにより新たな操作を始めないため、解放が遅れ続けることはない.
+ * </p>
+ */
+final class PhantomNodeCache {
+
+    /**
+     * 他のスレッドの操作を待ってキャッシュを解放する間隔.
+     */
+    private static final int CLEAN_UP_INTERVAL = 32;
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock(true);
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private PhantomNodeCache() {
+    }
+
+    /**
+     * 構文木の操作を始める. 操作を終えたら {@link #release()} を呼び出すこと. 入れ子にできる.
+     */
+    static void acquire() {
+        LOCK.readLock().lock();
+    }
+
+    /**
+     * 構文木の操作を終える. 入れ子の最も外側であれば、必要に応じてキャッシュを解放する.
+     */
+    static void release() {
+        LOCK.readLock().unlock();
+        if (LOCK.getReadHoldCount() > 0) {
+            return;
+        }
+        if (LOCK.getReadLockCount() == 0 && LOCK.writeLock().tryLock()) {
+            try {
+                PhantomNodeLogic.cleanUpCache();
+                PENDING.set(0);
+            } finally {
+                LOCK.writeLock().unlock();
+            }
+            return;
+        }
+        if (PENDING.incrementAndGet() % CLEAN_UP_INTERVAL == 0) {
+            LOCK.writeLock().lock();
+            try {
+                PhantomNodeLogic.cleanUpCache();
+            } finally {
+                LOCK.writeLock().unlock();
+            }
+        }
+    }
+}
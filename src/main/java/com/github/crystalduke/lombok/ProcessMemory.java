@@ -0,0 +1,67 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 実行中の JVM のメモリ使用量を取得するユーティリティメソッドを集めたクラス.
+ */
+class ProcessMemory {
+
+    private static final Path STATUS = Paths.get("/proc/self/status");
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * メモリ使用量の最大値 (KB) を返す. Linux では常駐セットサイズの最大値 ({@code VmHWM}),
+     * それ以外ではヒープ領域の最大使用量の合計を返す.
+     *
+     * @return メモリ使用量の最大値 (KB).
+     */
+    static long peakKiloBytes() {
+        if (Files.isReadable(STATUS)) {
+            try {
+                for (String line : Files.readAllLines(STATUS, StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("VmHWM:")) {
+                        // 例: "VmHWM:    123456 kB"
+                        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    }
+                }
+            } catch (IOException | NumberFormatException ex) {
+                // ヒープ領域の使用量で代用する
+            }
+        }
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / 1024;
+    }
+
+    /**
+     * 現在のスレッドがこれまでに確保したヒープのバイト数を返す. 2 回の呼び出しの差が、
+     * その間にこのスレッドが確保したメモリとなる.
+     *
+     * @return 確保したバイト数. JVM が計測できない場合は -1.
+     */
+    static long threadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
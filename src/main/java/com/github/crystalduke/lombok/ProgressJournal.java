@@ -0,0 +1,230 @@
+package com.github.crystalduke.lombok;
+
+import com.github.crystalduke.lombok.LombokizeResult.Status;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 処理を終えたソースファイルを記録する追記専用のジャーナル. 1 行に 1 ファイルの結果と、
+ * 処理後のファイルの内容のハッシュ値をタブ区切りで記録し、記録するたびにフラッシュする.
+ * 途中で打ち切られた実行の後で読み込み、記録した時点から内容が変わっていないソースファイルを処理対象から除く.
+ * <p>
+ * 1 行目には出力に影響する設定のハッシュ値を記録し、設定が異なる実行ではジャーナルを破棄して最初から記録する.
+ * 全てのソースファイルを処理し終えた実行は {@link #complete()} でジャーナルを削除する.
+ * </p>
+ * <p>
+ * プロセスが強制終了された場合、最後の行が途中までしか書き込まれていないことがあるため、
+ * 形式が正しくない行は読み飛ばす.
+ * </p>
+ */
+class ProgressJournal implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ProgressJournal.class.getName());
+    private static final String HEADER = "# lombokize journal";
+    private static final String ALGORITHM = "SHA-256";
+    /**
+     * ハッシュ値を 16 進数で表した文字数.
+     */
+    private static final int HASH_LENGTH = 64;
+
+    private final Path file;
+    private final Path rootPath;
+    private final Charset encoding;
+    /**
+     * 以前の実行で記録したソースディレクトリからの相対パスと、処理後の内容のハッシュ値.
+     */
+    private final Map<String, String> hashes;
+    private final MessageDigest digest = newDigest();
+    private BufferedWriter writer;
+
+    private ProgressJournal(Path file, Path rootPath, Charset encoding, Map<String, String> hashes) {
+        this.file = file;
+        this.rootPath = rootPath;
+        this.encoding = encoding;
+        this.hashes = hashes;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            // 全ての Java 実行環境が SHA-256 を実装している
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * ファイル名を返す.
+     *
+     * @param shardIndex シャードの番号
+     * @param shardCount シャードの数
+     * @return ジャーナルのファイル名. シャードごとに異なる.
+     */
+    static String fileName(int shardIndex, int shardCount) {
+        return shardCount > 1 ? "journal-" + shardIndex + "-of-" + shardCount + ".tsv" : "journal.tsv";
+    }
+
+    /**
+     * ジャーナルを読み込み、追記できるように開く. ファイルがない場合と、記録した設定が異なる場合は作成し直す.
+     *
+     * @param file ジャーナルのファイル
+     * @param rootPath ソースディレクトリ
+     * @param encoding ソースファイルの文字コード
+     * @param settings 出力に影響する設定を表す文字列. ハッシュ値をジャーナルの 1 行目に記録する.
+     * @return 開いたジャーナル.
+     * @throws IOException 読み込みか、ファイルの作成に失敗した場合.
+     */
+    static ProgressJournal open(Path file, Path rootPath, Charset encoding, String settings) throws IOException {
+        final String header = HEADER + " " + hash(settings);
+        final Map<String, String> hashes = new HashMap<>();
+        boolean reuse = false;
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                reuse = header.equals(reader.readLine());
+                if (!reuse) {
+                    LOG.log(Level.INFO, "Discard {0} written with other settings", file);
+                }
+                for (String line = reuse ? reader.readLine() : null; line != null; line = reader.readLine()) {
+                    if (line.startsWith("#")) {
+                        continue;
+                    }
+                    final String[] columns = line.split("\t", 3);
+                    if (columns.length < 3 || columns[1].length() != HASH_LENGTH || !isStatus(columns[0])) {
+                        LOG.log(Level.FINE, "Ignore malformed journal entry: {0}", line);
+                        continue;
+                    }
+                    hashes.put(columns[2], columns[1]);
+                }
+            }
+        }
+        final ProgressJournal journal = new ProgressJournal(file, rootPath, encoding, hashes);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (reuse) {
+            journal.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } else {
+            journal.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            journal.writer.write(header);
+            journal.writer.newLine();
+            journal.writer.flush();
+        }
+        return journal;
+    }
+
+    private static boolean isStatus(String name) {
+        for (Status status : Status.values()) {
+            if (status.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以前の実行で記録したファイルの数を返す.
+     *
+     * @return 記録したファイルの数.
+     */
+    int size() {
+        return hashes.size();
+    }
+
+    /**
+     * 以前の実行で処理を終えていないソースファイルを返す. 処理を終えた後に内容が変わったファイルも含む.
+     *
+     * @param sourceFiles ソースディレクトリ配下のソースファイル
+     * @return 処理するソースファイル. 順序は {@code sourceFiles} と同じ.
+     * @throws IOException ソースファイルの読み込みに失敗した場合.
+     */
+    List<Path> pending(List<Path> sourceFiles) throws IOException {
+        if (hashes.isEmpty()) {
+            return sourceFiles;
+        }
+        final List<Path> pending = new ArrayList<>();
+        for (Path source : sourceFiles) {
+            final String hash = hashes.get(key(source));
+            if (hash == null || !hash.equals(hash(Files.readAllBytes(source)))) {
+                pending.add(source);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 処理を終えたソースファイルを記録し、フラッシュする. 1 つのスレッドから呼び出すこと.
+     *
+     * @param source ソースファイル
+     * @param status 処理結果
+     * @param content 処理後のソースファイルの内容
+     * @throws IOException 書き込みに失敗した場合.
+     */
+    void record(Path source, Status status, String content) throws IOException {
+        writer.write(status + "\t" + hash(content.getBytes(encoding)) + "\t" + key(source));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * ソースディレクトリからの相対パスを返す. 区切り文字は {@code /} とする.
+     */
+    private String key(Path source) {
+        return rootPath.relativize(source).toString().replace(File.separatorChar, '/');
+    }
+
+    private String hash(byte[] content) {
+        return hex(digest.digest(content));
+    }
+
+    /**
+     * 設定のハッシュ値を返す.
+     *
+     * @param settings 出力に影響する設定
+     * @return 16 進数で表したハッシュ値.
+     */
+    static String hash(String settings) {
+        return hex(newDigest().digest(settings.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String hex(byte[] hash) {
+        final StringBuilder hex = new StringBuilder(HASH_LENGTH);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 全てのソースファイルを処理し終えたため、ジャーナルを閉じて削除する. 次の実行は最初から記録する.
+     *
+     * @throws IOException 削除に失敗した場合.
+     */
+    void complete() throws IOException {
+        writer.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
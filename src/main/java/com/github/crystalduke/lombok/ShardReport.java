@@ -0,0 +1,169 @@
+package com.github.crystalduke.lombok;
+
+import com.github.crystalduke.lombok.LombokizeResult.Status;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * シャードごとの処理結果. 1 行に 1 ファイルの結果をタブ区切りで記録するため、
+ * 各シャードの結果は {@link #merge(ShardReport)} で、あるいはテキストとして連結して統合できる.
+ */
+class ShardReport {
+
+    private static final Pattern HEADER = Pattern.compile("^# lombokize shard (\\d+) of (\\d+)$");
+
+    private final int shardCount;
+    private final boolean[] shards;
+    private final Map<String, Status> statuses = new TreeMap<>();
+
+    /**
+     * 指定したシャードの結果を記録するインスタンスを構築する.
+     *
+     * @param shardIndex シャードの番号
+     * @param shardCount シャードの数
+     * @throws IllegalArgumentException シャードの番号が範囲外の場合.
+     */
+    ShardReport(int shardIndex, int shardCount) {
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Illegal shard: " + shardIndex + " of " + shardCount);
+        }
+        this.shardCount = shardCount;
+        this.shards = new boolean[shardCount];
+        this.shards[shardIndex] = true;
+    }
+
+    /**
+     * ファイル名を返す.
+     *
+     * @param shardIndex シャードの番号
+     * @param shardCount シャードの数
+     * @return シャードの結果を記録するファイル名.
+     */
+    static String fileName(int shardIndex, int shardCount) {
+        return "report-" + shardIndex + "-of-" + shardCount + ".tsv";
+    }
+
+    /**
+     * ファイルの処理結果を記録する.
+     *
+     * @param path ソースディレクトリからの相対パス. 区切り文字は {@code /} とする.
+     * @param status 処理結果
+     */
+    synchronized void record(String path, Status status) {
+        statuses.put(path, status);
+    }
+
+    /**
+     * 他のシャードの結果を統合する.
+     *
+     * @param other 他のシャードの結果
+     * @throws IllegalArgumentException シャードの数が異なる場合.
+     */
+    synchronized void merge(ShardReport other) {
+        if (other.shardCount != shardCount) {
+            throw new IllegalArgumentException("Shard count mismatch: " + other.shardCount
+                    + " (expected " + shardCount + ")");
+        }
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] |= other.shards[i];
+        }
+        statuses.putAll(other.statuses);
+    }
+
+    /**
+     * 結果が含まれていないシャードの数を返す.
+     *
+     * @return 結果が含まれていないシャードの数.
+     */
+    synchronized int missingShards() {
+        int missing = 0;
+        for (boolean shard : shards) {
+            if (!shard) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 処理結果ごとのファイル数を返す.
+     *
+     * @return 処理結果ごとのファイル数.
+     */
+    synchronized Map<Status, Integer> count() {
+        final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0);
+        }
+        statuses.values().forEach(status -> counts.merge(status, 1, Integer::sum));
+        return counts;
+    }
+
+    /**
+     * ファイルに書き出す. ヘッダには、結果を含むシャードの番号を出力する.
+     *
+     * @param file 出力先
+     * @throws IOException 書き込みに失敗した場合.
+     */
+    synchronized void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < shardCount; i++) {
+                if (shards[i]) {
+                    writer.write("# lombokize shard " + i + " of " + shardCount);
+                    writer.newLine();
+                }
+            }
+            for (Map.Entry<String, Status> entry : statuses.entrySet()) {
+                writer.write(entry.getValue() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * ファイルから読み込む.
+     *
+     * @param file {@link #write(Path)} で出力したファイル
+     * @return 読み込んだ結果.
+     * @throws IOException 読み込みに失敗した場合、または形式が正しくない場合.
+     */
+    static ShardReport read(Path file) throws IOException {
+        ShardReport report = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final Matcher header = HEADER.matcher(line);
+                if (header.matches()) {
+                    final ShardReport shard = new ShardReport(Integer.parseInt(header.group(1)),
+                            Integer.parseInt(header.group(2)));
+                    if (report == null) {
+                        report = shard;
+                    } else {
+                        report.merge(shard);
+                    }
+                    continue;
+                }
+                final int tab = line.indexOf('\t');
+                if (report == null || tab < 0) {
+                    throw new IOException("Malformed report " + file + ": " + line);
+                }
+                report.record(line.substring(tab + 1), Status.valueOf(line.substring(0, tab)));
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Malformed report " + file, ex);
+        }
+        if (report == null) {
+            throw new IOException("Empty report " + file);
+        }
+        return report;
+    }
+}
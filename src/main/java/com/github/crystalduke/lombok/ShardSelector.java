@@ -0,0 +1,213 @@
+package com.github.crystalduke.lombok;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ソースファイルを複数のプロセスやマシンに分割して処理するため、担当するファイルを選択する.
+ * 同じソースファイルの集合に対しては、どのプロセスでも同じ割り当てとなるため、
+ * 各プロセスは互いに通信せずに処理できる.
+ */
+class ShardSelector {
+
+    private static final Logger LOG = Logger.getLogger(ShardSelector.class.getName());
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+    /**
+     * 割り当てのファイルごとのロック. 同じ JVM で実行する複数のゴール ({@code mvn -T}) が同じファイルを
+     * {@link FileChannel#lock()} すると {@link java.nio.channels.OverlappingFileLockException} となるため、
+     * ファイルをロックする前に JVM 内で排他制御する.
+     */
+    private static final ConcurrentMap<Path, Object> PLAN_LOCKS = new ConcurrentHashMap<>();
+
+    private ShardSelector() {
+    }
+
+    /**
+     * 指定した番号のシャードが担当するソースファイルを返す.
+     *
+     * @param rootPath ソースディレクトリ
+     * @param sourceFiles ソースディレクトリ配下の全てのソースファイル
+     * @param index シャードの番号 (0 から {@code count - 1})
+     * @param count シャードの数
+     * @param planFile {@code null} の場合はパスのハッシュ値だけで割り当てる. それ以外の場合は
+     * ファイルサイズの合計が均等になるように割り当て、割り当てをこのファイルに保存する.
+     * 他のシャードが先に書き換えたファイルのサイズで割り当てが変わらないよう、
+     * 対象のファイルが同じであれば保存した割り当てを使う.
+     * @return 担当するソースファイル. 順序は引数の順序を保つ.
+     * @throws IOException ファイルサイズの取得や割り当ての読み書きに失敗した場合.
+     */
+    static List<Path> select(Path rootPath, List<Path> sourceFiles, int index, int count,
+            Path planFile) throws IOException {
+        return select(rootPath, sourceFiles, index, count, planFile != null, planFile);
+    }
+
+    /**
+     * 指定した番号のシャードが担当するソースファイルを返す.
+     *
+     * @param rootPath ソースディレクトリ
+     * @param sourceFiles ソースディレクトリ配下の全てのソースファイル
+     * @param index シャードの番号 (0 から {@code count - 1})
+     * @param count シャードの数
+     * @param bySize {@code true} の場合はファイルサイズの合計が均等になるように割り当てる.
+     * {@code false} の場合はパスのハッシュ値だけで割り当てる.
+     * @param planFile 割り当てを保存するファイル. {@code null} の場合は割り当てを保存せずに作成する.
+     * @return 担当するソースファイル. 順序は引数の順序を保つ.
+     * @throws IOException ファイルサイズの取得や割り当ての読み書きに失敗した場合.
+     */
+    static List<Path> select(Path rootPath, List<Path> sourceFiles, int index, int count,
+            boolean bySize, Path planFile) throws IOException {
+        if (count == 1) {
+            return sourceFiles;
+        }
+        final List<String> keys = new ArrayList<>();
+        for (Path file : sourceFiles) {
+            keys.add(toKey(rootPath, file));
+        }
+        final Map<String, Integer> plan = !bySize ? null
+                : planFile != null ? loadOrCreatePlan(planFile, rootPath, keys, count)
+                : createPlan(rootPath, keys, count);
+        final List<Path> selected = new ArrayList<>();
+        for (int i = 0; i < sourceFiles.size(); i++) {
+            final String key = keys.get(i);
+            final int shard = plan != null
+                    ? plan.get(key)
+                    : Integer.remainderUnsigned(hash(key), count);
+            if (shard == index) {
+                selected.add(sourceFiles.get(i));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 保存した割り当てを読み込む. 対象のファイルが異なれば、割り当てを作成して保存する.
+     * 同時に実行した他のプロセスや他のゴールと同じ割り当てとなるよう、ファイルをロックして読み書きする.
+     */
+    private static Map<String, Integer> loadOrCreatePlan(Path planFile, Path rootPath,
+            List<String> keys, int count) throws IOException {
+        final Path absolutePath = planFile.toAbsolutePath().normalize();
+        Files.createDirectories(absolutePath.getParent());
+        synchronized (PLAN_LOCKS.computeIfAbsent(absolutePath, path -> new Object())) {
+            return loadOrCreatePlanLocked(absolutePath, rootPath, keys, count);
+        }
+    }
+
+    private static Map<String, Integer> loadOrCreatePlanLocked(Path planFile, Path rootPath,
+            List<String> keys, int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(planFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+            final Map<String, Integer> plan = new HashMap<>();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            final String header = reader.readLine();
+            if (("# lombokize shard plan " + count).equals(header)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    final int tab = line.indexOf('\t');
+                    plan.put(line.substring(tab + 1), Integer.valueOf(line.substring(0, tab)));
+                }
+                if (plan.size() == keys.size() && plan.keySet().containsAll(keys)) {
+                    LOG.log(Level.FINE, "Reuse shard plan {0}", planFile);
+                    return plan;
+                }
+                plan.clear();
+            }
+            final Map<String, Integer> created = createPlan(rootPath, keys, count);
+            final StringBuilder content = new StringBuilder("# lombokize shard plan " + count + "\n");
+            for (Map.Entry<String, Integer> entry : created.entrySet()) {
+                content.append(entry.getValue()).append('\t').append(entry.getKey()).append('\n');
+            }
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)), 0);
+            LOG.log(Level.FINE, "Wrote shard plan {0}", planFile);
+            return created;
+        }
+    }
+
+    /**
+     * ファイルサイズの合計が均等になるように割り当てる. 割り当ては大きいファイルから順に格納する.
+     */
+    private static Map<String, Integer> createPlan(Path rootPath, List<String> keys, int count)
+            throws IOException {
+        // 大きいファイルから順に、割り当て済みのサイズが最も小さいシャードに割り当てる
+        final List<Candidate> candidates = new ArrayList<>();
+        for (String key : keys) {
+            candidates.add(new Candidate(key, hash(key), Files.size(rootPath.resolve(key))));
+        }
+        candidates.sort(Comparator.comparingLong((Candidate candidate) -> -candidate.size)
+                .thenComparingInt(candidate -> candidate.hash)
+                .thenComparing(candidate -> candidate.key));
+        final long[] loads = new long[count];
+        final Map<String, Integer> plan = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            int shard = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[shard]) {
+                    shard = i;
+                }
+            }
+            loads[shard] += candidate.size;
+            plan.put(candidate.key, shard);
+        }
+        return plan;
+    }
+
+    /**
+     * 割り当てを保存するファイル名を返す.
+     *
+     * @param count シャードの数
+     * @return 割り当てを保存するファイル名.
+     */
+    static String planFileName(int count) {
+        return "shard-plan-" + count + ".tsv";
+    }
+
+    /**
+     * OS に依存しないよう、ソースディレクトリからの相対パスを {@code /} 区切りにする.
+     */
+    static String toKey(Path rootPath, Path file) {
+        return rootPath.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * JVM やプラットフォームに依存しないハッシュ値 (32 ビットの FNV-1a) を返す.
+     */
+    static int hash(String key) {
+        int hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @RequiredArgsConstructor
+    private static class Candidate {
+
+        final String key;
+        final int hash;
+        final long size;
+    }
+}
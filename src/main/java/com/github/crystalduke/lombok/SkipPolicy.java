@@ -0,0 +1,220 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.GeneratedJavaParserTokenManager;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.SimpleCharStream;
+import com.github.javaparser.StringProvider;
+import com.github.javaparser.Token;
+import com.github.javaparser.TokenMgrException;
+import com.github.javaparser.UnicodeEscapeProcessingProvider;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Value;
+
+/**
+ * 生成されたソースと、既に Lombok アノテーションを適用済みのソースを、構文木を構築せずに判定する.
+ * 判定には、パスと、ファイル先頭のコメントと、型宣言の前置き (アノテーションと修飾子) だけを使う.
+ * <ul>
+ * <li>生成されたソース: {@code generated-sources} 配下のファイル、{@code package} または {@code import}
+ * より前のコメントに {@code Generated by} または {@code @generated} を含むもの、{@code @Generated}
+ * を付与した型宣言を含むもの.</li>
+ * <li>適用済みのソース: 入れ子の型を含む全ての型宣言に、{@link Data}, {@link Value}, または
+ * {@link Getter} と {@link Setter} の両方を付与したもの. 匿名クラスを含む場合は適用済みとしない.</li>
+ * </ul>
+ */
+final class SkipPolicy {
+
+    /**
+     * どのソースも省略しない.
+     */
+    static final SkipPolicy NONE = new SkipPolicy(false, false);
+
+    private static final Set<String> GENERATED_DIRECTORIES = new HashSet<>(Arrays.asList(
+            "generated-sources", "generated-test-sources"));
+    private static final Pattern GENERATED_COMMENT = Pattern.compile(
+            "\\bGenerated\\s+by\\b|@generated\\b", Pattern.CASE_INSENSITIVE);
+    private static final String GENERATED_ANNOTATION = "Generated";
+    private static final String GETTER = Getter.class.getSimpleName();
+    private static final String SETTER = Setter.class.getSimpleName();
+    private static final String DATA = Data.class.getSimpleName();
+    private static final String VALUE = Value.class.getSimpleName();
+
+    private final boolean generated;
+    private final boolean lombokized;
+
+    /**
+     * 省略するソースを指定してインスタンスを構築する.
+     *
+     * @param generated 生成されたソースを省略する場合は {@code true}.
+     * @param lombokized 適用済みのソースを省略する場合は {@code true}.
+     */
+    SkipPolicy(boolean generated, boolean lombokized) {
+        this.generated = generated;
+        this.lombokized = lombokized;
+    }
+
+    /**
+     * ソースを省略するか判定する.
+     *
+     * @param path ソースファイルのパス. メモリ上のソースの場合は {@code null}.
+     * @param code ソースコード
+     * @return 省略する理由. 省略しない場合は {@code null}.
+     */
+    LombokizeResult.SkipReason test(Path path, String code) {
+        if (!generated && !lombokized) {
+            return null;
+        }
+        if (generated && path != null && isUnderGeneratedDirectory(path)) {
+            return LombokizeResult.SkipReason.GENERATED;
+        }
+        try {
+            return new Scanner().scan(code);
+        } catch (TokenMgrException ex) {
+            // 字句解析できない場合は構文木による処理でエラーを報告させる
+            return null;
+        }
+    }
+
+    private static boolean isUnderGeneratedDirectory(Path path) {
+        for (Path name : path) {
+            if (GENERATED_DIRECTORIES.contains(name.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 型宣言を順に読み進める. 型宣言以外はかっこの対応と、匿名クラスの本体の始まりだけを判定する.
+     */
+    private class Scanner {
+
+        private final List<JavaToken.Kind> prefixKinds = new ArrayList<>();
+        private final List<String> prefixImages = new ArrayList<>();
+        /**
+         * 閉じていない丸かっこごとに、{@code new} の引数であれば {@code true}.
+         */
+        private final Deque<Boolean> parens = new ArrayDeque<>();
+        private boolean newExpression;
+        private int types;
+        private boolean allLombokized = true;
+
+        LombokizeResult.SkipReason scan(String code) {
+            final GeneratedJavaParserTokenManager tokenManager = new GeneratedJavaParserTokenManager(
+                    new SimpleCharStream(new UnicodeEscapeProcessingProvider(new StringProvider(code))));
+            JavaToken.Kind previous = JavaToken.Kind.EOF;
+            boolean closesNew = false;
+            for (Token token = tokenManager.getNextToken(); token.kind != 0; token = tokenManager.getNextToken()) {
+                final JavaToken.Kind kind = JavaToken.Kind.valueOf(token.kind);
+                if (generated && previous == JavaToken.Kind.EOF
+                        && (kind == JavaToken.Kind.PACKAGE || kind == JavaToken.Kind.IMPORT)
+                        && hasGeneratedComment(token)) {
+                    return LombokizeResult.SkipReason.GENERATED;
+                }
+                final boolean closedNew = closesNew;
+                closesNew = false;
+                if (kind == JavaToken.Kind.NEW) {
+                    newExpression = true;
+                } else if (kind == JavaToken.Kind.LPAREN) {
+                    parens.push(newExpression);
+                    newExpression = false;
+                } else if (kind == JavaToken.Kind.RPAREN) {
+                    closesNew = !parens.isEmpty() && parens.pop();
+                } else if (kind == JavaToken.Kind.LBRACE) {
+                    if (previous == JavaToken.Kind.RPAREN && closedNew) {
+                        // 匿名クラスのフィールドもアノテーションの適用対象となる
+                        types++;
+                        allLombokized = false;
+                    }
+                    clearPrefix();
+                } else if (kind == JavaToken.Kind.RBRACE || kind == JavaToken.Kind.SEMICOLON) {
+                    newExpression = false;
+                    clearPrefix();
+                } else if (kind == JavaToken.Kind.LBRACKET) {
+                    // 配列の生成
+                    newExpression = false;
+                } else if (isTypeKeyword(kind) && previous != JavaToken.Kind.DOT) {
+                    if (declareType()) {
+                        return LombokizeResult.SkipReason.GENERATED;
+                    }
+                } else if (parens.isEmpty()) {
+                    // アノテーションの引数は判定に使わない
+                    prefixKinds.add(kind);
+                    prefixImages.add(token.image);
+                }
+                if (!generated && !allLombokized) {
+                    // 以降の型宣言を読んでも省略しないことは変わらない
+                    return null;
+                }
+                previous = kind;
+            }
+            return lombokized && types > 0 && allLombokized ? LombokizeResult.SkipReason.LOMBOKIZED : null;
+        }
+
+        /**
+         * 型宣言の前置きを判定する.
+         *
+         * @return 生成されたソースの場合は {@code true}, それ以外は {@code false}.
+         */
+        private boolean declareType() {
+            types++;
+            final Set<String> annotations = annotationNames();
+            clearPrefix();
+            allLombokized &= annotations.contains(DATA) || annotations.contains(VALUE)
+                    || annotations.contains(GETTER) && annotations.contains(SETTER);
+            return generated && annotations.contains(GENERATED_ANNOTATION);
+        }
+
+        /**
+         * 前置きに含まれるアノテーションの名前を返す. 完全修飾名の場合は最後の識別子とする.
+         */
+        private Set<String> annotationNames() {
+            final Set<String> names = new HashSet<>();
+            for (int i = 0; i + 1 < prefixKinds.size(); i++) {
+                if (prefixKinds.get(i) != JavaToken.Kind.AT || prefixKinds.get(i + 1) != JavaToken.Kind.IDENTIFIER) {
+                    continue;
+                }
+                int last = i + 1;
+                while (last + 2 < prefixKinds.size()
+                        && prefixKinds.get(last + 1) == JavaToken.Kind.DOT
+                        && prefixKinds.get(last + 2) == JavaToken.Kind.IDENTIFIER) {
+                    last += 2;
+                }
+                names.add(prefixImages.get(last));
+            }
+            return names;
+        }
+
+        private void clearPrefix() {
+            prefixKinds.clear();
+            prefixImages.clear();
+        }
+    }
+
+    private static boolean isTypeKeyword(JavaToken.Kind kind) {
+        return kind == JavaToken.Kind.CLASS || kind == JavaToken.Kind.INTERFACE || kind == JavaToken.Kind.ENUM;
+    }
+
+    /**
+     * トークンの直前にあるコメントに、生成されたことを表す記述があるか判定する.
+     * ファイル先頭の {@code package} または {@code import} にだけ用いるため、型の Javadoc は含まない.
+     */
+    private static boolean hasGeneratedComment(Token token) {
+        for (Token special = token.specialToken; special != null; special = special.specialToken) {
+            if (GENERATED_COMMENT.matcher(special.image).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.Provider;
+import com.github.javaparser.StringProvider;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ソースファイル 1 つの処理に許す時間. 処理中の段階を記録し、確認箇所で時間を超えていれば
+ * {@link ExceededException} を投げて処理を打ち切る. 監視スレッドから {@link #abandon()}
+ * を呼び出した場合も、処理中のスレッドは次の確認箇所で打ち切る.
+ */
+class TimeBudget {
+
+    /**
+     * 時間を超えたため処理を打ち切ったことを表す.
+     */
+    static class ExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ExceededException(LombokizeResult.Phase phase, long elapsedMillis) {
+            super("Time budget exceeded after " + elapsedMillis + " ms in phase " + phase, null, false, false);
+        }
+    }
+
+    private final long startTime = System.nanoTime();
+    private final long limitNanos;
+    private volatile LombokizeResult.Phase phase = LombokizeResult.Phase.READ;
+    private volatile boolean abandoned;
+    /**
+     * 段階ごとの処理時間 (ナノ秒). 添字は {@link LombokizeResult.Phase#ordinal()}.
+     * 処理するスレッドだけが更新する.
+     */
+    private final long[] phaseNanos = new long[LombokizeResult.Phase.values().length];
+    private long phaseStartTime = startTime;
+
+    private TimeBudget(long limitNanos) {
+        this.limitNanos = limitNanos;
+    }
+
+    /**
+     * 現在時刻から計測を始める.
+     *
+     * @param limitMillis 許す時間 (ミリ秒). 0 以下の場合は制限しない.
+     * @return 計測を始めたインスタンス.
+     */
+    static TimeBudget start(long limitMillis) {
+        return new TimeBudget(TimeUnit.MILLISECONDS.toNanos(Math.max(limitMillis, 0)));
+    }
+
+    /**
+     * 時間を制限しないインスタンスを返す. {@link #abandon()} による打ち切りには従う.
+     *
+     * @return 計測を始めたインスタンス.
+     */
+    static TimeBudget unlimited() {
+        return new TimeBudget(0);
+    }
+
+    /**
+     * 時間を超えていないことを確認して、次の段階に進む.
+     *
+     * @param next 次の段階
+     * @throws ExceededException 時間を超えているか、打ち切られた場合.
+     */
+    void enter(LombokizeResult.Phase next) {
+        check();
+        final long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - phaseStartTime;
+        phaseStartTime = now;
+        phase = next;
+    }
+
+    /**
+     * 時間を超えていないことを確認する. 一度超えた場合、以降の確認は全て失敗する.
+     *
+     * @throws ExceededException 時間を超えているか、打ち切られた場合.
+     */
+    void check() {
+        if (abandoned || limitNanos > 0 && System.nanoTime() - startTime > limitNanos) {
+            abandoned = true;
+            throw new ExceededException(phase, elapsedMillis());
+        }
+    }
+
+    /**
+     * 処理を打ち切る. 処理中のスレッドは、次の確認箇所で {@link ExceededException} を投げる.
+     */
+    void abandon() {
+        abandoned = true;
+    }
+
+    /**
+     * 処理中の段階を返す.
+     *
+     * @return 最後に {@link #enter(LombokizeResult.Phase)} で進んだ段階.
+     */
+    LombokizeResult.Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * 段階ごとの処理時間を返す. 処理したスレッドで、処理を終えた直後に呼び出すこと.
+     *
+     * @param endTime 処理を終えた時刻 ({@link System#nanoTime()}). 最後の段階はこの時刻までとする.
+     * @return 段階ごとの処理時間 (ナノ秒). 添字は {@link LombokizeResult.Phase#ordinal()} で、
+     * 進まなかった段階は 0.
+     */
+    long[] phaseNanos(long endTime) {
+        final long[] nanos = phaseNanos.clone();
+        nanos[phase.ordinal()] += endTime - phaseStartTime;
+        return nanos;
+    }
+
+    /**
+     * 計測を始めてからの経過時間を返す.
+     *
+     * @return 経過時間 (ミリ秒).
+     */
+    long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos());
+    }
+
+    /**
+     * 計測を始めてからの経過時間を返す.
+     *
+     * @return 経過時間 (ナノ秒).
+     */
+    long elapsedNanos() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * パーサーが読み込むたびに時間を確認する {@link Provider} を返す. パーサーは字句解析と
+     * 構文解析を交互に進めるため、巨大なファイルでも構文解析の途中で打ち切ることができる.
+     * パーサーは例外を構文エラーとして扱うため、パース後にも {@link #check()} で確認すること.
+     *
+     * @param code ソースコード
+     * @return ソースコードを読み込む {@link Provider}.
+     */
+    Provider provider(String code) {
+        final StringProvider delegate = new StringProvider(code);
+        return new Provider() {
+            @Override
+            public int read(char[] buffer, int offset, int len) throws IOException {
+                check();
+                return delegate.read(buffer, offset, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+        };
+    }
+}
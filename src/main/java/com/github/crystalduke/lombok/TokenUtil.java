@@ -1,6 +1,11 @@
 package com.github.crystalduke.lombok;
 
+import com.github.javaparser.JavaParser;
 import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.Providers;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.TokenRange;
 import com.github.javaparser.ast.CompilationUnit;
@@ -17,6 +22,11 @@ import java.util.Optional;
  */
 public class TokenUtil {
 
+    /**
+     * 複製などのために断片をパースするパーサー. JavaParser はスレッドセーフではないため、スレッドごとに生成する.
+     */
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(JavaParser::new);
+
     /**
      * 引数の {@link Node} に含まれる {@link JavaToken} を連結した文字列を返す.
      */
@@ -153,15 +163,53 @@ public class TokenUtil {
     }
 
     static AnnotationExpr clone(AnnotationExpr annotation) {
-        return StaticJavaParser.parseAnnotation(
-                LexicalPreservingPrinter.print(annotation));
+        return parseAnnotation(LexicalPreservingPrinter.print(annotation));
     }
 
     static ImportDeclaration clone(ImportDeclaration importDeclaration) {
-        return StaticJavaParser.parseImport(
+        return parse(PARSER.get(), ParseStart.IMPORT_DECLARATION,
                 LexicalPreservingPrinter.print(importDeclaration));
     }
 
+    /**
+     * アノテーションをパースする. {@link StaticJavaParser} の設定は共有されるため、
+     * スレッドごとに既定の設定のパーサーを用いる.
+     *
+     * @param code アノテーション
+     * @return {@link JavaToken} を含むインスタンス.
+     * @throws ParseProblemException パースに失敗した場合.
+     */
+    static AnnotationExpr parseAnnotation(String code) {
+        return parse(PARSER.get(), ParseStart.ANNOTATION, code);
+    }
+
+    /**
+     * 指定したパーサーでパースする.
+     *
+     * @param <N> パースの結果の型
+     * @param parser パーサー. スレッド間で共有しないこと.
+     * @param start パースの開始位置
+     * @param code ソースコード
+     * @return パースの結果.
+     * @throws ParseProblemException パースに失敗した場合.
+     */
+    static <N extends Node> N parse(JavaParser parser, ParseStart<N> start, String code) {
+        final ParseResult<N> result = parser.parse(start, Providers.provider(code));
+        if (!result.isSuccessful()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        return result.getResult().get();
+    }
+
+    /**
+     * 既定の設定のパーサーを返す. パーサーはスレッドごとに生成する.
+     *
+     * @return 現在のスレッドのパーサー.
+     */
+    static JavaParser defaultParser() {
+        return PARSER.get();
+    }
+
     /**
      * ノードにアノテーションを付与する. このクラスでは、アノテーションは以下の位置に付与する.
      * <ul>
@@ -0,0 +1,720 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+
+/**
+ * プロジェクト全体の型階層の索引. 型ごとに、スーパータイプとアクセサとなり得るメソッドのシグネチャを保持する.
+ * 索引はファイルに保存し、次回以降は更新されたソースファイルだけを再抽出する.
+ * <p>
+ * 索引ファイルはメモリにマップし、参照する箇所だけを読み込む. 型は名前から、ファイルはパスから、
+ * ファイル内のハッシュ表で引くため、索引全体を読み込んで表を作り直す必要はない. 更新したソースファイルがない場合は、
+ * マップした索引ファイルをそのまま参照する. 更新した場合は、作成し直した索引をメモリ上で参照する.
+ * </p>
+ * <p>
+ * 索引ファイルは、ヘッダ、文字列と ID の列、ファイルと型の固定長のレコード、ハッシュ表を並べる.
+ * 文字列と列はファイルの先頭からの位置で参照する. 文字列は UTF-8 のバイト数に続けてバイト列を、
+ * 列は要素数に続けて要素を格納する. ハッシュ表は要素数 (2 のべき乗) に続けて、キーの {@link String#hashCode()},
+ * キーの文字列の位置、値の列の位置を格納する. キーの位置が 0 の要素は空とする.
+ * </p>
+ * <p>
+ * スーパータイプは記述された名前で保持し、完全修飾名または単純名で索引内の型と対応付ける.
+ * 単純名が同じ型が複数ある場合は全てを対象とするため、判定は安全側に倒れる.
+ * 索引に含まれない型 (ライブラリの型など) の階層は判定できない.
+ * </p>
+ */
+public class TypeHierarchyIndex {
+
+    private static final Logger LOG = Logger.getLogger(TypeHierarchyIndex.class.getName());
+    private static final int MAGIC = 0x4c424b49; // "LBKI"
+    private static final int VERSION = 3;
+    // ヘッダのフィールドの位置
+    private static final int LENGTH = 8;
+    private static final int FILE_COUNT = 16;
+    private static final int FILES = 20;
+    private static final int TYPES = 24;
+    private static final int PATH_TABLE = 28;
+    private static final int NAME_TABLE = 32;
+    private static final int SUBTYPE_TABLE = 36;
+    private static final int HEADER_SIZE = 40;
+    /**
+     * ファイルのレコードの大きさ. パス、最終更新日時、サイズ、最初の型の ID、型の数を格納する.
+     */
+    private static final int FILE_SIZE = 28;
+    /**
+     * 型のレコードの大きさ. 名前、スーパータイプの名前の列、シグネチャの列を格納する.
+     */
+    private static final int TYPE_SIZE = 12;
+    /**
+     * ハッシュ表の要素の大きさ.
+     */
+    private static final int SLOT_SIZE = 12;
+    private static final int[] NONE = new int[0];
+
+    @AllArgsConstructor
+    private static class FileEntry {
+
+        final String path;
+        final long lastModified;
+        final long size;
+        final List<TypeEntry> types;
+    }
+
+    @AllArgsConstructor
+    private static class TypeEntry {
+
+        final String name;
+        final List<String> supertypes;
+        final Set<String> signatures;
+    }
+
+    /**
+     * 索引. 位置を指定して読み込むため、複数スレッドから参照できる.
+     */
+    private final ByteBuffer buffer;
+
+    private TypeHierarchyIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * 索引ファイルを読み込み、更新されたソースファイルだけを並列に再抽出して保存する.
+     *
+     * @param indexFile 索引ファイル. 存在しないか形式が異なる場合は全てのソースファイルから抽出する.
+     * @param rootPath ソースディレクトリ
+     * @param sourceFiles 索引の対象とするソースファイル
+     * @param config ソースファイルのパースに用いる設定を生成する関数. {@link ParserConfiguration} は
+     * パースごとに書き換わるため、パースするスレッドごとに呼び出す.
+     * @return 更新した索引.
+     * @throws IOException 索引ファイルの読み書きに失敗した場合.
+     */
+    public static TypeHierarchyIndex update(Path indexFile, Path rootPath, List<Path> sourceFiles,
+            Supplier<ParserConfiguration> config) throws IOException {
+        return update(indexFile, rootPath, sourceFiles, config, true);
+    }
+
+    /**
+     * 索引ファイルを読み込み、更新されたソースファイルだけを並列に再抽出する.
+     *
+     * @param indexFile 索引ファイル. 存在しないか形式が異なる場合は全てのソースファイルから抽出する.
+     * @param rootPath ソースディレクトリ
+     * @param sourceFiles 索引の対象とするソースファイル
+     * @param config ソースファイルのパースに用いる設定を生成する関数
+     * @param save {@code false} の場合は、更新した索引を保存せずにメモリ上だけで使う.
+     * @return 更新した索引.
+     * @throws IOException 索引ファイルの読み書きに失敗した場合.
+     */
+    public static TypeHierarchyIndex update(Path indexFile, Path rootPath, List<Path> sourceFiles,
+            Supplier<ParserConfiguration> config, boolean save) throws IOException {
+        final Map<String, Path> files = new LinkedHashMap<>();
+        for (Path file : sourceFiles) {
+            files.putIfAbsent(rootPath.relativize(file).toString(), file);
+        }
+        final List<String> paths = new ArrayList<>(files.keySet());
+        final long[] lastModified = new long[paths.size()];
+        final long[] size = new long[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            final BasicFileAttributes attrs = Files.readAttributes(files.get(paths.get(i)), BasicFileAttributes.class);
+            lastModified[i] = attrs.lastModifiedTime().toMillis();
+            size[i] = attrs.size();
+        }
+        TypeHierarchyIndex previous = open(indexFile);
+        int[] reused;
+        try {
+            reused = previous != null ? previous.find(paths, lastModified, size) : null;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException ex) {
+            LOG.log(Level.FINE, "Ignore broken index file: {0}", indexFile);
+            previous = null;
+            reused = null;
+        }
+        final List<Integer> outdated = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            if (reused == null || reused[i] < 0) {
+                outdated.add(i);
+            }
+        }
+        if (previous != null && outdated.isEmpty() && previous.buffer.getInt(FILE_COUNT) == paths.size()) {
+            LOG.log(Level.INFO, "Type hierarchy index: {0} files, 0 updated", paths.size());
+            return previous;
+        }
+        final FileEntry[] entries = new FileEntry[paths.size()];
+        final List<Optional<CompilationUnit>> parsed = parse(outdated, i -> files.get(paths.get(i)), config);
+        for (int i = 0; i < outdated.size(); i++) {
+            final int index = outdated.get(i);
+            entries[index] = new FileEntry(paths.get(index), lastModified[index], size[index],
+                    extract(parsed.get(i)));
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            if (entries[i] == null) {
+                entries[i] = previous.fileEntry(reused[i]);
+            }
+        }
+        final ByteBuffer buffer = serialize(Arrays.asList(entries));
+        if (save) {
+            write(indexFile, buffer);
+        }
+        LOG.log(Level.INFO, "Type hierarchy index: {0} files, {1} updated",
+                new Object[] {paths.size(), outdated.size()});
+        return new TypeHierarchyIndex(buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * ソースファイルを並列にパースする. パーサーはスレッドごとに作成し、パースを終えたらスレッドごと破棄する.
+     *
+     * @param indexes パースするソースファイルの番号
+     * @param files 番号からソースファイルを返す関数
+     * @param config パースに用いる設定を生成する関数
+     * @return パースの結果. 順序は {@code indexes} と同じ.
+     */
+    private static List<Optional<CompilationUnit>> parse(List<Integer> indexes, IntFunction<Path> files,
+            Supplier<ParserConfiguration> config) throws IOException {
+        final int threads = Math.min(indexes.size(), Runtime.getRuntime().availableProcessors());
+        if (threads == 0) {
+            return Collections.emptyList();
+        }
+        final List<Optional<CompilationUnit>> results = new ArrayList<>(Collections.nCopies(indexes.size(), null));
+        final AtomicInteger next = new AtomicInteger();
+        final ExecutorService workers = Executors.newFixedThreadPool(threads,
+                ApplyLombokMojo.daemonThreads("lombokize-index-"));
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(workers.submit(() -> {
+                    final JavaParser parser = new JavaParser(config.get());
+                    for (int j = next.getAndIncrement(); j < indexes.size(); j = next.getAndIncrement()) {
+                        final Optional<CompilationUnit> cu = parser.parse(files.apply(indexes.get(j))).getResult();
+                        synchronized (results) {
+                            results.set(j, cu);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing type hierarchy", ex);
+        } finally {
+            workers.shutdownNow();
+        }
+        return results;
+    }
+
+    private static List<TypeEntry> extract(Optional<CompilationUnit> cu) {
+        if (!cu.isPresent()) {
+            // パースできないファイルは本処理でエラーとする
+            return Collections.emptyList();
+        }
+        final List<TypeEntry> types = new ArrayList<>();
+        for (TypeDeclaration<?> type : cu.get().findAll(TypeDeclaration.class)) {
+            final List<String> supertypes = new ArrayList<>();
+            if (type.isClassOrInterfaceDeclaration()) {
+                final ClassOrInterfaceDeclaration declaration = type.asClassOrInterfaceDeclaration();
+                declaration.getExtendedTypes().forEach(t -> supertypes.add(t.getNameWithScope()));
+                declaration.getImplementedTypes().forEach(t -> supertypes.add(t.getNameWithScope()));
+            } else if (type.isEnumDeclaration()) {
+                final EnumDeclaration declaration = type.asEnumDeclaration();
+                declaration.getImplementedTypes().forEach(t -> supertypes.add(t.getNameWithScope()));
+            }
+            // 同じ内容の索引ファイルを書き込むよう、シグネチャは整列する
+            final Set<String> signatures = type.getMethods().stream()
+                    .filter(TypeHierarchyIndex::isAccessorShape)
+                    .map(TypeHierarchyIndex::signature)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            types.add(new TypeEntry(
+                    type.getFullyQualifiedName().orElse(type.getNameAsString()),
+                    supertypes,
+                    signatures));
+        }
+        return types;
+    }
+
+    private static boolean isAccessorShape(MethodDeclaration method) {
+        return !method.isStatic() && method.getParameters().size() <= 1;
+    }
+
+    private static String signature(MethodDeclaration method) {
+        return method.getNameAsString() + "/" + method.getParameters().size();
+    }
+
+    /**
+     * メソッドがスーパータイプのメソッドをオーバーライドしているか、
+     * サブタイプでオーバーライドされているか判定する.
+     *
+     * @param method メソッド宣言
+     * @return オーバーライドの関係があれば {@code true}, それ以外は {@code false}.
+     */
+    public boolean isOverriding(MethodDeclaration method) {
+        final byte[] signature = utf8(signature(method));
+        final Node parent = method.getParentNode().orElse(null);
+        if (parent instanceof ObjectCreationExpr) {
+            // 匿名クラスはサブタイプを持たない
+            final ClassOrInterfaceType type = ((ObjectCreationExpr) parent).getType();
+            return declares(lookup(type.getNameWithScope()), signature, this::supertypesOf);
+        }
+        if (!(parent instanceof TypeDeclaration)) {
+            return false;
+        }
+        final TypeDeclaration<?> type = (TypeDeclaration<?>) parent;
+        final int[] self = lookup(type.getFullyQualifiedName().orElse(type.getNameAsString()));
+        final List<Integer> supertypes = new ArrayList<>();
+        final List<Integer> subtypes = new ArrayList<>();
+        for (int id : self) {
+            addAll(supertypes, supertypesOf(id));
+            addAll(subtypes, subtypesOf(id));
+        }
+        return declares(toArray(supertypes), signature, this::supertypesOf)
+                || declares(toArray(subtypes), signature, this::subtypesOf);
+    }
+
+    /**
+     * 完全修飾名、見つからなければ単純名で型を引く.
+     *
+     * @return 型の ID.
+     */
+    private int[] lookup(String name) {
+        int list = get(NAME_TABLE, name);
+        if (list == 0) {
+            list = get(NAME_TABLE, simpleName(name));
+        }
+        return ids(list);
+    }
+
+    private int[] supertypesOf(int type) {
+        final int[] names = ids(buffer.getInt(typeRecord(type) + 4));
+        if (names.length == 1) {
+            return lookup(string(names[0]));
+        }
+        final List<Integer> supertypes = new ArrayList<>();
+        for (int name : names) {
+            addAll(supertypes, lookup(string(name)));
+        }
+        return toArray(supertypes);
+    }
+
+    private int[] subtypesOf(int type) {
+        return ids(get(SUBTYPE_TABLE, simpleName(string(buffer.getInt(typeRecord(type))))));
+    }
+
+    /**
+     * 型階層を辿り、いずれかの型がシグネチャのメソッドを宣言しているか判定する.
+     *
+     * @param start 探索を開始する型
+     * @param signature UTF-8 で表したシグネチャ
+     * @param next 次に探索する型を返す関数
+     */
+    private boolean declares(int[] start, byte[] signature, IntFunction<int[]> next) {
+        final BitSet visited = new BitSet();
+        final Deque<Integer> queue = new ArrayDeque<>();
+        addAll(queue, start);
+        while (!queue.isEmpty()) {
+            final int type = queue.poll();
+            if (visited.get(type)) {
+                continue;
+            }
+            visited.set(type);
+            for (int candidate : ids(buffer.getInt(typeRecord(type) + 8))) {
+                if (equals(candidate, signature)) {
+                    return true;
+                }
+            }
+            addAll(queue, next.apply(type));
+        }
+        return false;
+    }
+
+    private static void addAll(Collection<Integer> collection, int[] values) {
+        for (int value : values) {
+            collection.add(value);
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int typeRecord(int type) {
+        return buffer.getInt(TYPES) + type * TYPE_SIZE;
+    }
+
+    private int fileRecord(int file) {
+        return buffer.getInt(FILES) + file * FILE_SIZE;
+    }
+
+    /**
+     * 前回から変わっていないファイルの ID を返す.
+     *
+     * @return ファイルごとの ID. 索引にないか変わったファイルは -1.
+     */
+    private int[] find(List<String> paths, long[] lastModified, long[] size) {
+        final int[] found = new int[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            final int[] ids = ids(get(PATH_TABLE, paths.get(i)));
+            found[i] = -1;
+            if (ids.length == 1) {
+                final int record = fileRecord(ids[0]);
+                if (buffer.getLong(record + 4) == lastModified[i] && buffer.getLong(record + 12) == size[i]) {
+                    found[i] = ids[0];
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 索引を作成し直すため、ファイルの内容を読み込む.
+     */
+    private FileEntry fileEntry(int file) {
+        final int record = fileRecord(file);
+        final int first = buffer.getInt(record + 20);
+        final List<TypeEntry> types = new ArrayList<>();
+        for (int type = first; type < first + buffer.getInt(record + 24); type++) {
+            final int typeRecord = typeRecord(type);
+            final List<String> supertypes = new ArrayList<>();
+            for (int name : ids(buffer.getInt(typeRecord + 4))) {
+                supertypes.add(string(name));
+            }
+            final Set<String> signatures = new TreeSet<>();
+            for (int signature : ids(buffer.getInt(typeRecord + 8))) {
+                signatures.add(string(signature));
+            }
+            types.add(new TypeEntry(string(buffer.getInt(typeRecord)), supertypes, signatures));
+        }
+        return new FileEntry(string(buffer.getInt(record)), buffer.getLong(record + 4),
+                buffer.getLong(record + 12), types);
+    }
+
+    /**
+     * ハッシュ表を引く.
+     *
+     * @param table ハッシュ表の位置を格納したヘッダのフィールド
+     * @param key キー
+     * @return 値の列の位置. キーがない場合は 0.
+     */
+    private int get(int table, String key) {
+        final int position = buffer.getInt(table);
+        final int mask = buffer.getInt(position) - 1;
+        final int hash = key.hashCode();
+        final byte[] bytes = utf8(key);
+        for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+            final int slot = position + 4 + i * SLOT_SIZE;
+            final int keyPosition = buffer.getInt(slot + 4);
+            if (keyPosition == 0) {
+                return 0;
+            }
+            if (buffer.getInt(slot) == hash && equals(keyPosition, bytes)) {
+                return buffer.getInt(slot + 8);
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private int[] ids(int position) {
+        if (position == 0) {
+            return NONE;
+        }
+        final int[] ids = new int[buffer.getInt(position)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = buffer.getInt(position + 4 + i * 4);
+        }
+        return ids;
+    }
+
+    private String string(int position) {
+        final byte[] bytes = new byte[buffer.getInt(position)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(position + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean equals(int position, byte[] bytes) {
+        if (buffer.getInt(position) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(position + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] utf8(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 索引ファイルをメモリにマップする.
+     *
+     * @return 索引. ファイルが存在しないか形式が異なる場合は {@code null}.
+     */
+    private static TypeHierarchyIndex open(Path indexFile) throws IOException {
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                LOG.log(Level.FINE, "Ignore broken index file: {0}", indexFile);
+                return null;
+            }
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                LOG.log(Level.FINE, "Ignore index file of unknown format: {0}", indexFile);
+                return null;
+            }
+            if (buffer.getLong(LENGTH) != length) {
+                LOG.log(Level.FINE, "Ignore broken index file: {0}", indexFile);
+                return null;
+            }
+            return new TypeHierarchyIndex(buffer);
+        }
+    }
+
+    /**
+     * 索引を作成する.
+     */
+    private static ByteBuffer serialize(List<FileEntry> files) {
+        final Serializer out = new Serializer();
+        out.skip(HEADER_SIZE);
+        final Map<String, List<Integer>> paths = new LinkedHashMap<>();
+        final Map<String, List<Integer>> names = new LinkedHashMap<>();
+        final Map<String, List<Integer>> subtypes = new LinkedHashMap<>();
+        final List<int[]> typeRecords = new ArrayList<>();
+        final List<Integer> firstTypes = new ArrayList<>();
+        for (int file = 0; file < files.size(); file++) {
+            paths.put(files.get(file).path, Collections.singletonList(file));
+            firstTypes.add(typeRecords.size());
+            for (TypeEntry type : files.get(file).types) {
+                final int id = typeRecords.size();
+                final List<Integer> supertypes = new ArrayList<>();
+                for (String supertype : type.supertypes) {
+                    supertypes.add(out.string(supertype));
+                    subtypes.computeIfAbsent(simpleName(supertype), k -> new ArrayList<>()).add(id);
+                }
+                final List<Integer> signatures = new ArrayList<>();
+                for (String signature : type.signatures) {
+                    signatures.add(out.string(signature));
+                }
+                typeRecords.add(new int[] {out.string(type.name), out.list(supertypes), out.list(signatures)});
+                names.computeIfAbsent(type.name, k -> new ArrayList<>()).add(id);
+                if (!simpleName(type.name).equals(type.name)) {
+                    names.computeIfAbsent(simpleName(type.name), k -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+        final int[] pathRefs = new int[files.size()];
+        for (int file = 0; file < files.size(); file++) {
+            pathRefs[file] = out.string(files.get(file).path);
+        }
+        final int pathTable = out.table(paths);
+        final int nameTable = out.table(names);
+        final int subtypeTable = out.table(subtypes);
+        final int filesPosition = out.position();
+        for (int file = 0; file < files.size(); file++) {
+            out.putInt(pathRefs[file]);
+            out.putLong(files.get(file).lastModified);
+            out.putLong(files.get(file).size);
+            out.putInt(firstTypes.get(file));
+            out.putInt(files.get(file).types.size());
+        }
+        final int typesPosition = out.position();
+        for (int[] record : typeRecords) {
+            for (int value : record) {
+                out.putInt(value);
+            }
+        }
+        final ByteBuffer buffer = out.finish();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(LENGTH, buffer.limit());
+        buffer.putInt(FILE_COUNT, files.size());
+        buffer.putInt(FILES, filesPosition);
+        buffer.putInt(TYPES, typesPosition);
+        buffer.putInt(PATH_TABLE, pathTable);
+        buffer.putInt(NAME_TABLE, nameTable);
+        buffer.putInt(SUBTYPE_TABLE, subtypeTable);
+        return buffer;
+    }
+
+    /**
+     * 索引を書き込むバッファ. 同じ文字列は 1 度だけ書き込む.
+     */
+    private static class Serializer {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        int position() {
+            return buffer.position();
+        }
+
+        void skip(int length) {
+            reserve(length);
+            buffer.position(buffer.position() + length);
+        }
+
+        void putInt(int value) {
+            reserve(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            reserve(8);
+            buffer.putLong(value);
+        }
+
+        /**
+         * 文字列を書き込む.
+         *
+         * @return 文字列の位置.
+         */
+        int string(String string) {
+            final Integer known = strings.get(string);
+            if (known != null) {
+                return known;
+            }
+            final byte[] bytes = utf8(string);
+            final int position = position();
+            reserve(4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+            strings.put(string, position);
+            return position;
+        }
+
+        /**
+         * 列を書き込む.
+         *
+         * @return 列の位置. 空の列は書き込まずに 0 を返す.
+         */
+        int list(List<Integer> values) {
+            if (values.isEmpty()) {
+                return 0;
+            }
+            final int position = position();
+            putInt(values.size());
+            for (int value : values) {
+                putInt(value);
+            }
+            return position;
+        }
+
+        /**
+         * キーと値の列を書き込んでから、ハッシュ表を書き込む.
+         *
+         * @return ハッシュ表の位置.
+         */
+        int table(Map<String, List<Integer>> map) {
+            // 空の要素が必ず残るよう、要素数はキーの数の 2 倍以上とする
+            final int capacity = Integer.highestOneBit(Math.max(1, map.size()) * 2 - 1) << 1;
+            final int[] slots = new int[capacity * 3];
+            for (Map.Entry<String, List<Integer>> entry : map.entrySet()) {
+                final int hash = entry.getKey().hashCode();
+                int i = spread(hash) & (capacity - 1);
+                while (slots[i * 3 + 1] != 0) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                slots[i * 3] = hash;
+                slots[i * 3 + 1] = string(entry.getKey());
+                slots[i * 3 + 2] = list(entry.getValue());
+            }
+            final int position = position();
+            putInt(capacity);
+            for (int slot : slots) {
+                putInt(slot);
+            }
+            return position;
+        }
+
+        private void reserve(int length) {
+            if (buffer.remaining() < length) {
+                final ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+                        buffer.position() + length));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        ByteBuffer finish() {
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static void write(Path indexFile, ByteBuffer buffer) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        // 複数のプロセスが同じ索引を更新しても壊れないよう、一時ファイルに書いてから置き換える
+        final Path temporaryFile = Files.createTempFile(indexFile.getParent(),
+                indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                final ByteBuffer content = buffer.duplicate();
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+            }
+            Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.WildcardType;
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedTypeDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFactory;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * フィールドとメソッドの型が同じか判定する.
+ */
+public class TypeMatcher {
+
+    private static final Logger LOG = Logger.getLogger(TypeMatcher.class.getName());
+
+    private final TypeSolver typeSolver;
+
+    /**
+     * 型を文字列として比較するインスタンスを構築する.
+     */
+    public TypeMatcher() {
+        this(null);
+    }
+
+    /**
+     * 文字列として一致しない型を、完全修飾名に解決して比較するインスタンスを構築する. 例えば
+     * {@code List<String>} と {@code java.util.List<String>} は同じ型と判定する.
+     *
+     * @param typeSolver 型を解決する {@link TypeSolver}. 複数スレッドで共有するため
+     * {@link CachingTypeSolver} を想定している.
+     */
+    public TypeMatcher(TypeSolver typeSolver) {
+        this.typeSolver = typeSolver;
+    }
+
+    /**
+     * 引数の型が同じか判定する. 型を解決できない場合は、異なる型とみなす.
+     *
+     * @param type1 型
+     * @param type2 型
+     * @return 同じ型であれば {@code true}, それ以外は {@code false}.
+     */
+    public boolean matches(Type type1, Type type2) {
+        if (type1.asString().equals(type2.asString())) {
+            return true;
+        }
+        if (typeSolver == null) {
+            return false;
+        }
+        try {
+            return resolve(type1).equals(resolve(type2));
+        } catch (UnsolvedSymbolException | UnsupportedOperationException | IllegalArgumentException ex) {
+            LOG.log(Level.FINE, "Cannot resolve ''{0}'' or ''{1}'': {2}",
+                    new Object[] {type1, type2, ex.getMessage()});
+            return false;
+        }
+    }
+
+    /**
+     * 型引数を含めて、型を完全修飾名の文字列に変換する.
+     */
+    private String resolve(Type type) {
+        if (type.isArrayType()) {
+            return resolve(type.asArrayType().getComponentType()) + "[]";
+        }
+        if (type.isWildcardType()) {
+            final WildcardType wildcard = type.asWildcardType();
+            if (wildcard.getExtendedType().isPresent()) {
+                return "? extends " + resolve(wildcard.getExtendedType().get());
+            }
+            if (wildcard.getSuperType().isPresent()) {
+                return "? super " + resolve(wildcard.getSuperType().get());
+            }
+            return "?";
+        }
+        if (!type.isClassOrInterfaceType()) {
+            // プリミティブ型など
+            return type.asString();
+        }
+        final ClassOrInterfaceType classType = type.asClassOrInterfaceType();
+        final String name = classType.getNameWithScope();
+        SymbolReference<ResolvedTypeDeclaration> reference
+                = JavaParserFactory.getContext(classType, typeSolver).solveType(name);
+        if (!reference.isSolved()) {
+            throw new UnsolvedSymbolException(name);
+        }
+        final String qualifiedName = reference.getCorrespondingDeclaration().getQualifiedName();
+        return classType.getTypeArguments()
+                .map(arguments -> arguments.stream()
+                        .map(this::resolve)
+                        .collect(Collectors.joining(",", qualifiedName + "<", ">")))
+                .orElse(qualifiedName);
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import java.lang.annotation.Annotation;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 型宣言が直接持つフィールドの要約. フィールドごとに番号を割り当て、属性をビット集合で保持する.
+ * フィールド単位の処理で付与したアノテーションを記録し、クラス単位の処理では構文木を走査せずに
+ * 全ての非 static フィールドにアノテーションが付与されているか判定する.
+ */
+class TypeSummary {
+
+    /**
+     * 型の単純名.
+     */
+    @Getter
+    private final String className;
+    /**
+     * 型の完全修飾名.
+     */
+    @Getter
+    private final String fqcn;
+    private final Map<FieldDeclaration, Integer> slots = new IdentityHashMap<>();
+    private final BitSet staticFields = new BitSet();
+    private final BitSet multipleVariables = new BitSet();
+    private final BitSet getterMarkers = new BitSet();
+    private final BitSet setterMarkers = new BitSet();
+
+    /**
+     * 型宣言のフィールドを要約する. フィールドに付与済みの属性のないアノテーションも記録する.
+     *
+     * @param type 型宣言
+     */
+    TypeSummary(TypeDeclaration<?> type) {
+        className = type.getNameAsString();
+        fqcn = type.getFullyQualifiedName().orElse(className);
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (!member.isFieldDeclaration()) {
+                continue;
+            }
+            final FieldDeclaration field = member.asFieldDeclaration();
+            final int slot = slots.size();
+            slots.put(field, slot);
+            staticFields.set(slot, field.isStatic());
+            multipleVariables.set(slot, field.getVariables().size() > 1);
+            getterMarkers.set(slot, hasMarker(field, Getter.class));
+            setterMarkers.set(slot, hasMarker(field, Setter.class));
+        }
+    }
+
+    private static boolean hasMarker(FieldDeclaration field, Class<? extends Annotation> annotationClass) {
+        return field.getAnnotationByClass(annotationClass)
+                .filter(MarkerAnnotationExpr.class::isInstance)
+                .isPresent();
+    }
+
+    private BitSet markers(Class<? extends Annotation> annotationClass) {
+        if (Getter.class.equals(annotationClass)) {
+            return getterMarkers;
+        }
+        if (Setter.class.equals(annotationClass)) {
+            return setterMarkers;
+        }
+        throw new IllegalArgumentException("Unsupported annotation: " + annotationClass);
+    }
+
+    /**
+     * 複数の変数を宣言したフィールドか判定する.
+     *
+     * @param field 要約した型宣言のフィールド
+     * @return 複数の変数を宣言していれば {@code true}, それ以外は {@code false}.
+     */
+    boolean hasMultipleVariables(FieldDeclaration field) {
+        final Integer slot = slots.get(field);
+        return slot != null ? multipleVariables.get(slot) : field.getVariables().size() > 1;
+    }
+
+    /**
+     * フィールドに属性のないアノテーションを付与したことを記録する.
+     *
+     * @param field 要約した型宣言のフィールド
+     * @param annotationClass 付与したアノテーション
+     */
+    void markAnnotated(FieldDeclaration field, Class<? extends Annotation> annotationClass) {
+        final Integer slot = slots.get(field);
+        if (slot != null) {
+            markers(annotationClass).set(slot);
+        }
+    }
+
+    /**
+     * 全ての非 static フィールドに、属性のないアノテーションが付与されているか判定する.
+     *
+     * @param annotationClass アノテーション
+     * @return 非 static フィールドが 1 つ以上あり、全てにアノテーションが付与されていれば
+     * {@code true}, それ以外は {@code false}.
+     */
+    boolean isAnnotatedOnAllInstanceFields(Class<? extends Annotation> annotationClass) {
+        final BitSet missing = new BitSet(slots.size());
+        missing.set(0, slots.size());
+        missing.andNot(staticFields);
+        if (missing.isEmpty()) {
+            return false;
+        }
+        missing.andNot(markers(annotationClass));
+        return missing.isEmpty();
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 変更前後のソースコードを比較し、{@code git apply} で適用できる unified diff 形式で出力する.
+ * Lombok アノテーションの適用による変更は局所的なため、差分の計算には変更量に比例する
+ * Myers のアルゴリズムを用いる.
+ */
+class UnifiedDiff {
+
+    /**
+     * 変更箇所の前後に出力する行数.
+     */
+    private static final int CONTEXT = 3;
+
+    private final List<String> original;
+    private final List<String> revised;
+    private final boolean[] deleted;
+    private final boolean[] inserted;
+
+    private UnifiedDiff(String original, String revised) {
+        this.original = lines(original);
+        this.revised = lines(revised);
+        this.deleted = new boolean[this.original.size()];
+        this.inserted = new boolean[this.revised.size()];
+    }
+
+    /**
+     * 変更前後のソースコードの差分を出力する.
+     *
+     * @param out 出力先
+     * @param path パッチに記録するファイルのパス. 区切り文字は {@code /} とする.
+     * @param original 変更前のソースコード
+     * @param revised 変更後のソースコード
+     * @return 差分を出力した場合は {@code true}, 差分がなければ {@code false}.
+     * @throws IOException 出力に失敗した場合.
+     */
+    static boolean write(Appendable out, String path, String original, String revised)
+            throws IOException {
+        final UnifiedDiff diff = new UnifiedDiff(original, revised);
+        diff.compare();
+        final List<Line> lines = diff.merge();
+        boolean changed = false;
+        for (int begin = 0; begin < lines.size(); begin++) {
+            if (lines.get(begin).prefix == ' ') {
+                continue;
+            }
+            if (!changed) {
+                out.append("diff --git a/").append(path).append(" b/").append(path).append('\n')
+                        .append("--- a/").append(path).append('\n')
+                        .append("+++ b/").append(path).append('\n');
+                changed = true;
+            }
+            // 変更箇所の間隔が前後の行数の 2 倍以下であれば、同じ hunk にまとめる
+            int end = begin;
+            for (int i = begin, unchanged = 0; i < lines.size() && unchanged <= 2 * CONTEXT; i++) {
+                if (lines.get(i).prefix == ' ') {
+                    unchanged++;
+                } else {
+                    unchanged = 0;
+                    end = i + 1;
+                }
+            }
+            final int from = Math.max(0, begin - CONTEXT);
+            final int to = Math.min(lines.size(), end + CONTEXT);
+            writeHunk(out, lines.subList(from, to));
+            begin = to - 1;
+        }
+        return changed;
+    }
+
+    private static void writeHunk(Appendable out, List<Line> hunk) throws IOException {
+        final Line first = hunk.get(0);
+        int originalCount = 0;
+        int revisedCount = 0;
+        for (Line line : hunk) {
+            if (line.prefix != '+') {
+                originalCount++;
+            }
+            if (line.prefix != '-') {
+                revisedCount++;
+            }
+        }
+        // 行数が 0 の場合、開始行は直前の行番号とする
+        out.append("@@ -").append(range(first.originalNumber, originalCount))
+                .append(" +").append(range(first.revisedNumber, revisedCount))
+                .append(" @@\n");
+        for (Line line : hunk) {
+            out.append(line.prefix).append(line.text);
+            if (!line.text.endsWith("\n")) {
+                out.append("\n\\ No newline at end of file\n");
+            }
+        }
+    }
+
+    private static String range(int number, int count) {
+        return (count == 0 ? number - 1 : number) + "," + count;
+    }
+
+    /**
+     * 改行文字を含めて、行単位に分割する.
+     */
+    private static List<String> lines(String code) {
+        final List<String> lines = new ArrayList<>();
+        int begin = 0;
+        for (int end = code.indexOf('\n'); end >= 0; end = code.indexOf('\n', begin)) {
+            lines.add(code.substring(begin, end + 1));
+            begin = end + 1;
+        }
+        if (begin < code.length()) {
+            lines.add(code.substring(begin));
+        }
+        return lines;
+    }
+
+    /**
+     * 最短の編集スクリプトを求め、削除した行と追加した行を記録する.
+     */
+    private void compare() {
+        final int n = original.size();
+        final int m = revised.size();
+        final int offset = n + m + 1;
+        final int[] v = new int[2 * offset + 1];
+        // 編集距離 d ごとに、d - 1 までの到達位置 (対角線 -(d-1) ～ d-1) を記録する
+        final List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= n + m; d++) {
+            trace.add(d == 0 ? new int[0] : Arrays.copyOfRange(v, offset - d + 1, offset + d));
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && v[offset + k - 1] < v[offset + k + 1]
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && original.get(x).equals(revised.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (k == n - m && x >= n) {
+                    backtrack(trace, n, m);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void backtrack(List<int[]> trace, int x, int y) {
+        for (int d = trace.size() - 1; d > 0; d--) {
+            final int[] previous = trace.get(d);
+            final int k = x - y;
+            final int previousK = k == -d || k != d
+                    && previous[k - 1 + d - 1] < previous[k + 1 + d - 1] ? k + 1 : k - 1;
+            final int previousX = previous[previousK + d - 1];
+            final int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+            }
+            if (x == previousX) {
+                inserted[previousY] = true;
+            } else {
+                deleted[previousX] = true;
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+
+    /**
+     * 削除した行、追加した行、共通の行を元の順序で並べる.
+     */
+    private List<Line> merge() {
+        final List<Line> lines = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < original.size() || j < revised.size()) {
+            if (i < original.size() && deleted[i]) {
+                lines.add(new Line('-', original.get(i), i + 1, j + 1));
+                i++;
+            } else if (j < revised.size() && inserted[j]) {
+                lines.add(new Line('+', revised.get(j), i + 1, j + 1));
+                j++;
+            } else {
+                lines.add(new Line(' ', original.get(i), i + 1, j + 1));
+                i++;
+                j++;
+            }
+        }
+        return lines;
+    }
+
+    @RequiredArgsConstructor
+    private static class Line {
+
+        final char prefix;
+        final String text;
+        final int originalNumber;
+        final int revisedNumber;
+    }
+}
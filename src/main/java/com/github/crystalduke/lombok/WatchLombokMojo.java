@@ -0,0 +1,213 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * 全てのソースファイルに Lombok アノテーションを適用した後、ソースディレクトリを監視し、
+ * 保存されたソースファイルに Lombok アノテーションを適用し続ける. 終了するには Ctrl+C で中断する.
+ */
+@Mojo(name = "watch", requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class WatchLombokMojo extends ApplyLombokMojo {
+
+    private static final Logger LOG = Logger.getLogger(WatchLombokMojo.class.getName());
+
+    /**
+     * 最後の変更を検知してから処理を始めるまでの待ち時間 (ミリ秒).
+     * エディタが 1 回の保存で複数回書き込む場合に、まとめて処理する.
+     */
+    @Parameter(defaultValue = "50", property = "lombokize.debounce")
+    private long debounce;
+    /**
+     * 最近処理したソースファイルの内容を保持する件数. 保持している内容から変更がなければ
+     * (このゴール自身の書き込みを含む) パースしない.
+     */
+    @Parameter(defaultValue = "256", property = "lombokize.watchCacheSize")
+    private int watchCacheSize;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private RecentContents recentContents;
+
+    /**
+     * 最近処理したソースファイルの内容. 件数が上限を超えると、最も長く参照していないものから捨てる.
+     */
+    static class RecentContents extends LinkedHashMap<Path, String> {
+
+        private final int capacity;
+
+        RecentContents(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, String> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (diff) {
+            throw new MojoExecutionException("The watch goal rewrites files in place and cannot write a patch");
+        }
+        if (outputDirectory != null) {
+            throw new MojoExecutionException("The watch goal rewrites files in place and cannot write to "
+                    + outputDirectory);
+        }
+        if (maxDuration > 0) {
+            throw new MojoExecutionException("The watch goal runs until interrupted and has no max duration");
+        }
+        if (fork) {
+            throw new MojoExecutionException("The watch goal keeps its state in this JVM and cannot fork");
+        }
+        recentContents = new RecentContents(watchCacheSize);
+        super.execute();
+    }
+
+    @Override
+    boolean resolvesDependencies() {
+        return true;
+    }
+
+    @Override
+    void afterProcessing(Path rootPath) throws IOException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            register(watchService, rootPath);
+            LOG.log(Level.INFO, "Watching {0} directories under {1}",
+                    new Object[] {directories.size(), rootPath});
+            while (true) {
+                final Set<Path> changedFiles = awaitChanges(watchService);
+                if (!changedFiles.isEmpty()) {
+                    processChanges(rootPath, changedFiles);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            LOG.fine("Watch service closed");
+        } finally {
+            directories.clear();
+        }
+    }
+
+    /**
+     * 変更を検知するまで待ち、最後の変更から {@link #debounce} ミリ秒以内に続いた変更をまとめて返す.
+     *
+     * @param watchService 監視対象を登録したサービス
+     * @return 変更されたソースファイル.
+     */
+    Set<Path> awaitChanges(WatchService watchService) throws IOException, InterruptedException {
+        final Set<Path> changedFiles = new TreeSet<>();
+        WatchKey key = watchService.take();
+        do {
+            collect(watchService, key, changedFiles);
+            key = watchService.poll(debounce, TimeUnit.MILLISECONDS);
+        } while (key != null);
+        return changedFiles;
+    }
+
+    /**
+     * {@link Lombokizer#collectSourceFiles(Path)} が列挙の対象とするディレクトリを監視対象に登録する.
+     */
+    void register(WatchService watchService, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+                if (!dir.equals(directory) && !Lombokizer.isSensibleDirectoryToEnter(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                directories.put(dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 監視イベントから変更されたソースファイルを抽出する. 作成されたディレクトリは監視対象に加える.
+     */
+    private void collect(WatchService watchService, WatchKey key, Set<Path> changedFiles)
+            throws IOException {
+        final Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LOG.log(Level.WARNING, "Some events are lost in {0}", directory);
+                continue;
+            }
+            final Path path = directory.resolve((Path) event.context());
+            if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                        && Lombokizer.isSensibleDirectoryToEnter(path)) {
+                    register(watchService, path);
+                    Lombokizer.collectSourceFiles(path).forEach(changedFiles::add);
+                }
+            } else if (path.toString().endsWith(".java")) {
+                changedFiles.add(path);
+            } else if (path.endsWith("lombok.config")) {
+                // 配下のソースファイルの判定が変わるため、設定を読み直す
+                lombokConfigResolver.clear();
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void processChanges(Path rootPath, Set<Path> changedFiles) throws IOException {
+        final long startTime = System.nanoTime();
+        final Map<Path, String> contents = new LinkedHashMap<>();
+        for (Path path : changedFiles) {
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+            final String code = read(path);
+            if (code.equals(recentContents.get(path))) {
+                // このゴールが書き込んだか、内容を変えずに保存された
+                continue;
+            }
+            contents.put(path, code);
+        }
+        if (contents.isEmpty()) {
+            return;
+        }
+        if (typeHierarchy != null) {
+            updateTypeHierarchy(rootPath, Lombokizer.collectSourceFiles(rootPath));
+        }
+        int numOfChanged = 0;
+        for (Map.Entry<Path, String> entry : contents.entrySet()) {
+            final Path path = entry.getKey();
+            process(rootPath.relativize(path), path, entry.getValue());
+            final String code = read(path);
+            if (!code.equals(entry.getValue())) {
+                numOfChanged++;
+            }
+            recentContents.put(path, code);
+        }
+        LOG.log(Level.INFO, "Processed {0,number,#} saved files in {1,number,#} ms: {2,number,#} changed",
+                new Object[] {contents.size(), (System.nanoTime() - startTime) / 1_000_000, numOfChanged});
+    }
+}
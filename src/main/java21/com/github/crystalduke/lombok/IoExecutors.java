@@ -0,0 +1,27 @@
+package com.github.crystalduke.lombok;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ソースファイルの読み書きを実行する {@link ExecutorService} を生成する.
+ * <p>
+ * このクラスは Java 21 以降の実装であり、読み書きで待つ間にプラットフォームスレッドを占有しないよう
+ * 仮想スレッドで実行する. multi-release JAR の {@code META-INF/versions/21} に格納する.
+ * </p>
+ */
+final class IoExecutors {
+
+    private IoExecutors() {
+    }
+
+    /**
+     * 1 タスクごとに仮想スレッドを生成する {@link ExecutorService} を返す.
+     *
+     * @param prefix スレッド名の接頭辞
+     * @return 仮想スレッドで実行する {@link ExecutorService}.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory());
+    }
+}
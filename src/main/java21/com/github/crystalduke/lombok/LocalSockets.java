@@ -0,0 +1,66 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * デーモンが待ち受ける Unix ドメインソケットを開く.
+ * <p>
+ * このクラスは Java 21 以降の実装であり、multi-release JAR の {@code META-INF/versions/21} に格納する.
+ * </p>
+ */
+final class LocalSockets {
+
+    private LocalSockets() {
+    }
+
+    /**
+     * Unix ドメインソケットで待ち受ける {@link ServerSocketChannel} を開く.
+     * 前回のデーモンが残したソケットファイルは削除する. 通常のファイルは削除しない.
+     * <p>
+     * POSIX のパーミッションを使えるファイルシステムでは、所有者だけが接続できるパーミッション (0600) で作成する.
+     * パーミッションを変更するまでの間に他のユーザーが接続しないよう、所有者だけが入れる一時ディレクトリで
+     * 作成してから、指定したパスに移動する.
+     * </p>
+     *
+     * @param path ソケットファイルのパス
+     * @return 待ち受けを始めた {@link ServerSocketChannel}.
+     * @throws IOException ソケットを開けない場合.
+     */
+    static ServerSocketChannel openUnix(Path path) throws IOException {
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)
+                && Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            Files.delete(path);
+        }
+        final Path directory = path.toAbsolutePath().getParent();
+        final ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        if (!Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            server.bind(UnixDomainSocketAddress.of(path));
+            return server;
+        }
+        final Path privateDirectory = Files.createTempDirectory(directory, ".lombokize",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        final Path temporary = privateDirectory.resolve("socket");
+        try {
+            server.bind(UnixDomainSocketAddress.of(temporary));
+            Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-------"));
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            server.close();
+            Files.deleteIfExists(temporary);
+            throw ex;
+        } finally {
+            Files.deleteIfExists(privateDirectory);
+        }
+        return server;
+    }
+}
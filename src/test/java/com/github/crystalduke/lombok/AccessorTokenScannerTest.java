@@ -0,0 +1,87 @@
+package com.github.crystalduke.lombok;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+import static com.github.crystalduke.lombok.AccessorTokenScanner.Verdict.NEEDS_AST;
+import static com.github.crystalduke.lombok.AccessorTokenScanner.Verdict.NO_CANDIDATES;
+import static org.junit.Assert.*;
+
+/**
+ * {@link AccessorTokenScanner} が、コメントや文字列リテラルに惑わされずにアクセサの候補を判定することを確認する.
+ */
+public class AccessorTokenScannerTest {
+
+    private static String bean(String... members) {
+        return "package p;\n\npublic class Bean {\n" + String.join("\n", members) + "\n}\n";
+    }
+
+    @Test
+    public void noCandidates() {
+        assertEquals(NO_CANDIDATES, AccessorTokenScanner.scan("package p;\n\npublic class Empty {}\n"));
+        assertEquals(NO_CANDIDATES, AccessorTokenScanner.scan(bean("private int x;")));
+        // 名前がフィールドと一致しない
+        assertEquals(NO_CANDIDATES, AccessorTokenScanner.scan(bean("private int x;",
+                "public int getY() { return x; }",
+                "public void setY(int y) { x = y; }")));
+        // 本体がアクセサの形でない
+        assertEquals(NO_CANDIDATES, AccessorTokenScanner.scan(bean("private int x;",
+                "public int getX() { return x + 1; }",
+                "public void setX(int x) { this.x += x; }")));
+        // 似た名前のアノテーション
+        assertEquals(NO_CANDIDATES, AccessorTokenScanner.scan(bean("@Getters private int x;",
+                "@interface Getter {}")));
+    }
+
+    @Test
+    public void needsAst() {
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("private int x;",
+                "public int getX() { return x; }")));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("private boolean active;",
+                "public boolean isActive() { return this.active; }")));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("private int x;",
+                "public void setX(int x) { this.x = x; }")));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("private int x;",
+                "public Bean setX(int x) { this.x = x; return this; }")));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("@Getter private int x;")));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("@lombok.Setter private int x;")));
+    }
+
+    /**
+     * コメント, Javadoc, 文字列リテラルの中のアノテーションやアクセサは候補としない.
+     */
+    @Test
+    public void ignoresCommentsAndLiterals() {
+        for (String member : Arrays.asList(
+                "// @Getter",
+                "/* @lombok.Setter */",
+                "/** {@code @Getter} を付与しない. */",
+                "/* public int getX() { return x; } */",
+                "// public void setX(int x) { this.x = x; }",
+                "private String s = \"@Getter\";",
+                "private String t = \"public int getX() { return x; }\";",
+                "private char c = '@';")) {
+            assertEquals(member, NO_CANDIDATES, AccessorTokenScanner.scan(bean("private int x;", member)));
+        }
+    }
+
+    /**
+     * 字句解析できない場合は、構文木による処理でエラーを報告させる.
+     */
+    @Test
+    public void lexicalErrorNeedsAst() {
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("private String s = \"unterminated;")));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(bean("private int x; #")));
+    }
+
+    /**
+     * {@code lombok.config} の接頭辞を除いた名前でアクセサを判定する.
+     */
+    @Test
+    public void lombokConfig() {
+        final String code = bean("private int fValue;", "public int getValue() { return fValue; }");
+        assertEquals(NO_CANDIDATES, AccessorTokenScanner.scan(code));
+        assertEquals(NEEDS_AST, AccessorTokenScanner.scan(code,
+                LombokConfig.DEFAULT.apply(Arrays.asList("lombok.accessors.prefix += f"))));
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * 主要な処理が 1 回あたりに確保するメモリの上限を確認する. 確保したバイト数はスレッドごとの
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} で計測する.
+ * <p>
+ * JIT コンパイルやクラスの初期化による確保を除くため、計測の前に同じ入力で繰り返し実行し、
+ * 計測した回のうち最小の値を上限と比較する. 上限を超えた場合は、確保を増やした変更を見直すか、
+ * 意図した増加であれば理由を添えて上限を更新する.
+ * </p>
+ */
+public class AllocationBudgetTest {
+
+    private static final int MEASURE = 10;
+    private static final int NUM_OF_FIELDS = 20;
+    /**
+     * {@link CompilationUnitLombokizer#apply} がファイル 1 つに確保するメモリの上限.
+     * JDK 8, 17, 21 で約 13.4 から 15.0 MB.
+     */
+    private static final long BYTES_PER_FILE = 18_000_000;
+    /**
+     * {@link FieldLombokizer#apply} がフィールド 1 つに確保するメモリの上限. JDK 8, 17, 21 で約 85 から 90 KB.
+     */
+    private static final long BYTES_PER_FIELD = 110_000;
+    /**
+     * {@link TokenUtil#asString} が 1 文字あたりに確保するメモリの上限. JDK 8 で約 15.3, JDK 17, 21 で約 11.7 バイト.
+     */
+    private static final long BYTES_PER_CHAR = 20;
+    private static final String SOURCE = source(NUM_OF_FIELDS);
+
+    private final Logger logger = Logger.getLogger(CompilationUnitLombokizer.class.getPackage().getName());
+    private com.sun.management.ThreadMXBean threads;
+    private Level logLevel;
+
+    @Before
+    public void setUp() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocation counters are not available",
+                bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("Allocation counters are not available",
+                threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        // 繰り返し実行するため、適用結果のログは出力しない
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.WARNING);
+    }
+
+    @After
+    public void tearDown() {
+        if (threads != null) {
+            logger.setLevel(logLevel);
+        }
+    }
+
+    /**
+     * getter と setter を持つフィールドを並べたクラスのソースコードを返す.
+     */
+    private static String source(int numOfFields) {
+        final StringBuilder source = new StringBuilder("package p;\n\nimport java.util.List;\n\n")
+                .append("public class Fixture {\n");
+        for (int i = 0; i < numOfFields; i++) {
+            source.append("    private ").append(type(i)).append(" field").append(i).append(";\n");
+        }
+        for (int i = 0; i < numOfFields; i++) {
+            final String type = type(i);
+            final String name = "field" + i;
+            final String property = "Field" + i;
+            source.append("\n    public ").append(type).append(type.equals("boolean") ? " is" : " get")
+                    .append(property).append("() {\n        return ").append(name).append(";\n    }\n");
+            source.append("\n    public void set").append(property).append("(").append(type).append(" ")
+                    .append(name).append(") {\n        this.").append(name).append(" = ").append(name)
+                    .append(";\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static String type(int i) {
+        switch (i % 4) {
+            case 0:
+                return "int";
+            case 1:
+                return "String";
+            case 2:
+                return "boolean";
+            default:
+                return "List<String>";
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static CompilationUnit parse() {
+        return new JavaParser().parse(SOURCE).getResult().get();
+    }
+
+    /**
+     * ファイル 1 つに Lombok アノテーションを適用する間に確保するメモリ. パースは計測に含めない.
+     */
+    @Test
+    public void compilationUnitLombokizer() {
+        final CompilationUnitLombokizer lombokizer = new CompilationUnitLombokizer();
+        final int warmUp = 20;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < warmUp + MEASURE; i++) {
+            final CompilationUnit cu = parse();
+            final long before = allocatedBytes();
+            lombokizer.apply(cu);
+            final long bytes = allocatedBytes() - before;
+            assertEquals(NUM_OF_FIELDS, lombokizer.getNumOfFields());
+            if (i >= warmUp) {
+                min = Math.min(min, bytes);
+            }
+        }
+        assertTrue(String.format("Allocated %,d bytes per file (%,d per field) over the budget of %,d",
+                min, min / NUM_OF_FIELDS, BYTES_PER_FILE), min <= BYTES_PER_FILE);
+    }
+
+    /**
+     * フィールド 1 つに {@link lombok.Getter} を適用する間に確保するメモリ.
+     */
+    @Test
+    public void fieldLombokizer() {
+        final FieldLombokizer getter = FieldLombokizer.forGetter();
+        final int warmUp = 50;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < warmUp + MEASURE; i++) {
+            final CompilationUnit cu = parse();
+            PhantomNodeCache.acquire();
+            try {
+                LexicalPreservingPrinter.setup(cu);
+                final List<FieldDeclaration> fields = cu.findAll(FieldDeclaration.class);
+                final long before = allocatedBytes();
+                int applied = 0;
+                for (FieldDeclaration field : fields) {
+                    if (getter.apply(field)) {
+                        applied++;
+                    }
+                }
+                final long bytes = allocatedBytes() - before;
+                assertEquals(NUM_OF_FIELDS, applied);
+                if (i >= warmUp) {
+                    min = Math.min(min, bytes);
+                }
+            } finally {
+                PhantomNodeCache.release();
+            }
+        }
+        final long perField = min / NUM_OF_FIELDS;
+        assertTrue(String.format("Allocated %,d bytes per field over the budget of %,d", perField, BYTES_PER_FIELD),
+                perField <= BYTES_PER_FIELD);
+    }
+
+    /**
+     * 構文木をトークン列から文字列にする間に確保するメモリ.
+     */
+    @Test
+    public void tokenUtilAsString() {
+        final CompilationUnit cu = parse();
+        final int warmUp = 100;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < warmUp + MEASURE; i++) {
+            final long before = allocatedBytes();
+            final String text = TokenUtil.asString(cu);
+            final long bytes = allocatedBytes() - before;
+            assertEquals(SOURCE, text);
+            if (i >= warmUp) {
+                min = Math.min(min, bytes);
+            }
+        }
+        final long budget = BYTES_PER_CHAR * SOURCE.length();
+        assertTrue(String.format("Allocated %,d bytes for %,d chars over the budget of %,d",
+                min, SOURCE.length(), budget), min <= budget);
+    }
+}
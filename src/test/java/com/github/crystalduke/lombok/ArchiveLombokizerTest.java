@@ -0,0 +1,122 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ArchiveLombokizer} が、変換したエントリだけを圧縮し直し、それ以外のエントリを圧縮されたまま
+ * 複製することを確認する.
+ */
+public class ArchiveLombokizerTest {
+
+    private static final String BEAN = "package p;\n\npublic class Bean {\n\n"
+            + "    private int value;\n\n"
+            + "    public int getValue() {\n        return value;\n    }\n}\n";
+    private static final String PLAIN = "package p;\n\npublic class Plain {\n}\n";
+    private static final long TIME = 1_500_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rewritesOnlyChangedEntries() throws IOException {
+        final Path source = folder.getRoot().toPath().resolve("sources.jar");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(source)) {
+            // 既定と異なる圧縮レベルで圧縮し、圧縮し直していないことを確認できるようにする
+            out.setLevel(Deflater.BEST_SPEED);
+            put(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n", ZipEntry.STORED);
+            put(out, "p/Bean.java", BEAN, ZipEntry.DEFLATED);
+            put(out, "p/Plain.java", PLAIN, ZipEntry.DEFLATED);
+            put(out, "p/notes.txt", "private int value;\n", ZipEntry.DEFLATED);
+        }
+        final Path target = folder.getRoot().toPath().resolve("out/sources.jar");
+        final ArchiveLombokizer lombokizer = new ArchiveLombokizer(
+                Lombokizer.builder().encoding(StandardCharsets.UTF_8).build(), StandardCharsets.UTF_8);
+        lombokizer.lombokize(source, target);
+        assertEquals(2, lombokizer.getNumOfSources());
+        assertEquals(1, lombokizer.getNumOfChanged());
+        assertEquals(3, lombokizer.getNumOfCopied());
+
+        try (ZipFile original = ZipFile.builder().setPath(source).get();
+                ZipFile revised = ZipFile.builder().setPath(target).get()) {
+            assertEquals(names(original), names(revised));
+            for (String name : new String[] {"META-INF/MANIFEST.MF", "p/Plain.java", "p/notes.txt"}) {
+                final ZipArchiveEntry before = original.getEntry(name);
+                final ZipArchiveEntry after = revised.getEntry(name);
+                assertEquals(name, before.getMethod(), after.getMethod());
+                assertEquals(name, before.getCrc(), after.getCrc());
+                assertEquals(name, before.getCompressedSize(), after.getCompressedSize());
+                assertArrayEquals(name, raw(original, before), raw(revised, after));
+            }
+
+            final ZipArchiveEntry before = original.getEntry("p/Bean.java");
+            final ZipArchiveEntry after = revised.getEntry("p/Bean.java");
+            assertEquals(ZipEntry.DEFLATED, after.getMethod());
+            assertNotEquals(before.getCrc(), after.getCrc());
+            assertEquals(before.getTime(), after.getTime());
+            assertEquals("bean", after.getComment());
+            assertEquals(0100644, after.getUnixMode());
+            final String code = content(revised, after);
+            assertTrue(code, code.contains("@Getter"));
+            assertFalse(code, code.contains("getValue()"));
+        }
+    }
+
+    private static void put(ZipArchiveOutputStream out, String name, String content, int method)
+            throws IOException {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(method);
+        entry.setTime(TIME);
+        entry.setUnixMode(0100644);
+        if (name.equals("p/Bean.java")) {
+            entry.setComment("bean");
+        }
+        if (method == ZipEntry.STORED) {
+            final CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setSize(bytes.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putArchiveEntry(entry);
+        out.write(bytes);
+        out.closeArchiveEntry();
+    }
+
+    private static List<String> names(ZipFile zip) {
+        final List<String> names = new ArrayList<>();
+        for (ZipArchiveEntry entry : Collections.list(zip.getEntriesInPhysicalOrder())) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    private static byte[] raw(ZipFile zip, ZipArchiveEntry entry) throws IOException {
+        try (InputStream in = zip.getRawInputStream(entry)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static String content(ZipFile zip, ZipArchiveEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+}
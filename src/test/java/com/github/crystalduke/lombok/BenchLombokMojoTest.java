@@ -0,0 +1,70 @@
+package com.github.crystalduke.lombok;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BenchLombokMojo} が、計測のためにファイルを書き込まないことを確認する.
+ */
+public class BenchLombokMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 型階層の索引とサイズによるシャードの割り当てを有効にしても、ソースファイル、索引、割り当てを書き込まない.
+     */
+    @Test
+    public void writesNothing() throws Exception {
+        final Path root = folder.newFolder("src").toPath();
+        final List<Path> sources = new ArrayList<>();
+        final List<String> contents = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final String content = "package p;\n\npublic class Bean" + i + " {\n\n"
+                    + "    private int value;\n\n"
+                    + "    public int getValue() {\n        return value;\n    }\n}\n";
+            final Path file = root.resolve("p/Bean" + i + ".java");
+            Files.createDirectories(file.getParent());
+            sources.add(Files.write(file, content.getBytes(StandardCharsets.UTF_8)));
+            contents.add(content);
+        }
+        final File target = folder.newFolder("target");
+        final File indexFile = new File(target, "lombokize/type-hierarchy.idx");
+        final File reportDirectory = new File(target, "lombokize-reports");
+
+        final BenchLombokMojo mojo = new BenchLombokMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "sourceDirectory", root.toFile());
+        ReflectionUtils.setVariableValueInObject(mojo, "encoding", "UTF-8");
+        ReflectionUtils.setVariableValueInObject(mojo, "hierarchyAware", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "indexFile", indexFile);
+        ReflectionUtils.setVariableValueInObject(mojo, "shardBySize", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "shardCount", 2);
+        ReflectionUtils.setVariableValueInObject(mojo, "reportDirectory", reportDirectory);
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 1);
+        ReflectionUtils.setVariableValueInObject(mojo, "heapBudget", 50);
+        ReflectionUtils.setVariableValueInObject(mojo, "warmup", 1);
+        ReflectionUtils.setVariableValueInObject(mojo, "iterations", 2);
+        ReflectionUtils.setVariableValueInObject(mojo, "slowest", 1);
+        mojo.execute();
+
+        for (int i = 0; i < sources.size(); i++) {
+            assertEquals(contents.get(i), new String(Files.readAllBytes(sources.get(i)), StandardCharsets.UTF_8));
+        }
+        assertFalse(indexFile.exists());
+        assertFalse(reportDirectory.exists());
+        final String[] written = target.list();
+        assertNotNull(written);
+        assertEquals(0, written.length);
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static com.github.crystalduke.lombok.BodyTemplate.assigns;
+import static com.github.crystalduke.lombok.BodyTemplate.evaluates;
+import static com.github.crystalduke.lombok.BodyTemplate.field;
+import static com.github.crystalduke.lombok.BodyTemplate.parameter;
+import static com.github.crystalduke.lombok.BodyTemplate.returns;
+import static org.junit.Assert.*;
+
+/**
+ * {@link BodyTemplate} の指紋と照合が、文の数や種類の違いを見分けることを確認する.
+ */
+public class BodyTemplateTest {
+
+    private static final String CLASS_NAME = "Bean";
+
+    private static CompilationUnit parse(String... methods) {
+        return StaticJavaParser.parse("class " + CLASS_NAME + " {\n    private int x;\n"
+                + String.join("\n", methods) + "\n}\n");
+    }
+
+    private static VariableDeclarator variable(CompilationUnit cu) {
+        return cu.getClassByName(CLASS_NAME).get().getFieldByName("x").get().getVariable(0);
+    }
+
+    private static MethodDeclaration method(CompilationUnit cu, int index) {
+        return cu.getClassByName(CLASS_NAME).get().getMethods().get(index);
+    }
+
+    private static String repeat(String statement, int count) {
+        return String.join(" ", Collections.nCopies(count, statement));
+    }
+
+    /**
+     * 指紋には先頭の 15 文だけを記録し、それ以降の文の数は照合で比較する.
+     */
+    @Test
+    public void manyStatements() {
+        final CompilationUnit cu = parse(
+                "void set15(int x) { " + repeat("this.x = x;", 15) + " }",
+                "void set16(int x) { " + repeat("this.x = x;", 16) + " }",
+                "void set17(int x) { " + repeat("this.x = x;", 17) + " }",
+                "void other(int x) { " + repeat("this.x = x;", 14) + " return; " + repeat("this.x = x;", 2) + " }");
+        final long fingerprint15 = BodyTemplate.fingerprint(method(cu, 0).getBody().get());
+        final long fingerprint16 = BodyTemplate.fingerprint(method(cu, 1).getBody().get());
+        assertEquals(fingerprint15, fingerprint16);
+        assertEquals(fingerprint16, BodyTemplate.fingerprint(method(cu, 2).getBody().get()));
+        assertNotEquals(fingerprint16, BodyTemplate.fingerprint(method(cu, 3).getBody().get()));
+
+        final BodyTemplate.Element[] statements = new BodyTemplate.Element[16];
+        Arrays.fill(statements, evaluates(assigns(field(), parameter(0))));
+        final BodyTemplate template = BodyTemplate.of(statements);
+        final GeneratedMethodPredicate predicate = new GeneratedSetterPredicate(variable(cu));
+        assertFalse(template.matches(method(cu, 0), predicate));
+        assertTrue(template.matches(method(cu, 1), predicate));
+        assertFalse(template.matches(method(cu, 2), predicate));
+        assertFalse(template.matches(method(cu, 3), predicate));
+    }
+
+    /**
+     * 複合代入演算子は、指紋が一致しても代入とみなさない.
+     */
+    @Test
+    public void compoundAssignment() {
+        final CompilationUnit cu = parse(
+                "void setX(int x) { this.x = x; }",
+                "void addX(int x) { this.x += x; }",
+                "void orX(int x) { x |= x; }");
+        final BodyTemplate template = BodyTemplate.of(evaluates(assigns(field(), parameter(0))));
+        final GeneratedMethodPredicate predicate = new GeneratedSetterPredicate(variable(cu));
+        assertEquals(BodyTemplate.fingerprint(method(cu, 0).getBody().get()),
+                BodyTemplate.fingerprint(method(cu, 1).getBody().get()));
+        assertTrue(template.matches(method(cu, 0), predicate));
+        assertFalse(template.matches(method(cu, 1), predicate));
+        assertFalse(template.matches(method(cu, 2), predicate));
+    }
+
+    /**
+     * 値を返さない {@code return;} と {@code return x;} は、指紋で区別する.
+     */
+    @Test
+    public void returnWithoutValue() {
+        final CompilationUnit cu = parse(
+                "int getX() { return x; }",
+                "void getX() { return; }",
+                "abstract int getY();");
+        final BodyTemplate template = BodyTemplate.of(returns(field()));
+        final GeneratedMethodPredicate predicate = new GeneratedGetterPredicate(variable(cu));
+        assertNotEquals(BodyTemplate.fingerprint(method(cu, 0).getBody().get()),
+                BodyTemplate.fingerprint(method(cu, 1).getBody().get()));
+        assertTrue(template.matches(method(cu, 0), predicate));
+        assertFalse(template.matches(method(cu, 1), predicate));
+        // 本体がない
+        assertFalse(template.matches(method(cu, 2), predicate));
+    }
+
+    /**
+     * 引数の数を超える位置の引数には一致しない.
+     */
+    @Test
+    public void parameterOutOfRange() {
+        final CompilationUnit cu = parse(
+                "void setX(int x) { this.x = x; }",
+                "void setX() { this.x = x; }");
+        final GeneratedMethodPredicate predicate = new GeneratedSetterPredicate(variable(cu));
+        assertTrue(BodyTemplate.of(evaluates(assigns(field(), parameter(0)))).matches(method(cu, 0), predicate));
+        assertFalse(BodyTemplate.of(evaluates(assigns(field(), parameter(1)))).matches(method(cu, 0), predicate));
+        assertFalse(BodyTemplate.of(evaluates(assigns(field(), parameter(0)))).matches(method(cu, 1), predicate));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expressionIsNotStatement() {
+        BodyTemplate.of(returns(field()), field());
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CachingTypeSolver} が、クラスパスに含まれるディレクトリの型を解決することを確認する.
+ */
+public class CachingTypeSolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * マルチモジュールのビルドで、同じリアクターの他のモジュールのクラスを解決する.
+     */
+    @Test
+    public void solvesTypesInClassDirectories() throws IOException {
+        final Path sources = folder.newFolder("sibling-src").toPath();
+        final Path classes = folder.newFolder("sibling-classes").toPath();
+        final Path file = sources.resolve("sibling/Base.java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "package sibling; public class Base { public static class Nested {} }"
+                .getBytes(StandardCharsets.UTF_8));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("No Java compiler", compiler);
+        assertEquals(0, compiler.run(null, null, null,
+                "-proc:none", "-d", classes.toString(), file.toString()));
+
+        try (CachingTypeSolver solver = CachingTypeSolver.of(Collections.singletonList(classes.toString()),
+                Collections.emptyList(), new ParserConfiguration())) {
+            final SymbolReference<ResolvedReferenceTypeDeclaration> reference = solver.tryToSolveType("sibling.Base");
+            assertTrue(reference.isSolved());
+            assertEquals("sibling.Base", reference.getCorrespondingDeclaration().getQualifiedName());
+            assertTrue(solver.tryToSolveType("sibling.Base.Nested").isSolved());
+            assertTrue(solver.tryToSolveType("java.lang.String").isSolved());
+            assertFalse(solver.tryToSolveType("sibling.Missing").isSolved());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.crystalduke.lombok;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * TCP で待ち受ける {@link Daemon} が、トークンを送らない接続を拒否することを確認する.
+ */
+public class DaemonTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String token = Daemon.newToken();
+    private final Daemon daemon = new Daemon(Lombokizer.builder().encoding(StandardCharsets.UTF_8).build(),
+            null, StandardCharsets.UTF_8, 0);
+    private ExecutorService executor;
+    private ServerSocketChannel server;
+    private Future<?> serving;
+
+    @Before
+    public void setUp() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        executor = Executors.newSingleThreadExecutor();
+        serving = executor.submit(() -> {
+            daemon.serve(server, token);
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        daemon.stop();
+        serving.get(10, TimeUnit.SECONDS);
+        executor.shutdownNow();
+        assertFalse(server.isOpen());
+    }
+
+    @Test
+    public void rejectsRequestsWithoutToken() throws IOException {
+        final Path file = folder.newFile("Secret.java").toPath();
+        Files.write(file, "class Secret {}\n".getBytes(StandardCharsets.UTF_8));
+        try (Socket socket = connect()) {
+            final BufferedReader in = reader(socket);
+            send(socket, "FILE " + file);
+            assertEquals("ERROR Authentication required", in.readLine());
+            assertNull(in.readLine());
+        }
+        try (Socket socket = connect()) {
+            final BufferedReader in = reader(socket);
+            send(socket, "AUTH " + Daemon.newToken());
+            assertEquals("ERROR Authentication required", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    public void acceptsRequestsWithToken() throws IOException {
+        final Path file = folder.newFile("Bean.java").toPath();
+        Files.write(file, "class Bean {}\n".getBytes(StandardCharsets.UTF_8));
+        try (Socket socket = connect()) {
+            final BufferedReader in = reader(socket);
+            send(socket, "AUTH " + token);
+            assertEquals("OK", in.readLine());
+            send(socket, "FILE " + file);
+            assertTrue(in.readLine().startsWith("UNCHANGED "));
+            send(socket, "RELOAD");
+            assertEquals("OK", in.readLine());
+        }
+    }
+
+    /**
+     * 本文のバイト数が不正な場合は、本文を要求として読まないよう接続を閉じる. 他の接続は処理を続ける.
+     */
+    @Test
+    public void malformedLengthClosesConnection() throws IOException {
+        for (String length : new String[] {"-1", "2147483647", "abc", String.valueOf(Daemon.MAX_CODE_LENGTH + 1)}) {
+            try (Socket socket = connect()) {
+                final BufferedReader in = reader(socket);
+                send(socket, "AUTH " + token);
+                assertEquals("OK", in.readLine());
+                send(socket, "CODE " + length + "\nSHUTDOWN");
+                assertEquals("ERROR Illegal length: " + length, in.readLine());
+                assertNull(in.readLine());
+            }
+        }
+        try (Socket socket = connect()) {
+            final BufferedReader in = reader(socket);
+            send(socket, "AUTH " + token);
+            assertEquals("OK", in.readLine());
+            final String code = "class A {}\n";
+            send(socket, "CODE " + code.length() + "\n" + code + "RELOAD");
+            assertTrue(in.readLine().startsWith("UNCHANGED "));
+            assertEquals("OK", in.readLine());
+        }
+    }
+
+    /**
+     * 要求の処理に失敗しても、接続を維持する.
+     */
+    @Test
+    public void failedRequestKeepsConnection() throws IOException {
+        try (Socket socket = connect()) {
+            final BufferedReader in = reader(socket);
+            send(socket, "AUTH " + token);
+            assertEquals("OK", in.readLine());
+            send(socket, "FILE " + folder.getRoot());
+            assertTrue(in.readLine().startsWith("ERROR "));
+            send(socket, "FILE \0");
+            assertTrue(in.readLine().startsWith("ERROR "));
+            send(socket, "RELOAD");
+            assertEquals("OK", in.readLine());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        final Socket socket = new Socket();
+        socket.connect(server.getLocalAddress(), 10_000);
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static void send(Socket socket, String line) throws IOException {
+        final OutputStream out = socket.getOutputStream();
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
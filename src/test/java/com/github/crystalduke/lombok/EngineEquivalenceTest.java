@@ -0,0 +1,416 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.GeneratedJavaParserTokenManager;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.SimpleCharStream;
+import com.github.javaparser.StringProvider;
+import com.github.javaparser.Token;
+import com.github.javaparser.TokenMgrException;
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.testing.MojoRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.github.javaparser.ParserConfiguration.LanguageLevel.*;
+import static org.junit.Assert.*;
+
+/**
+ * 最適化したエンジンの出力が、従来の処理 (パースした {@link CompilationUnit} に
+ * {@link CompilationUnitLombokizer} を適用し、{@link TokenUtil#asString(com.github.javaparser.ast.Node)}
+ * で文字列にする) の出力とバイト単位で一致することを確認する.
+ * <p>
+ * 比較するエンジンは、{@link Lombokizer} を 1 ファイルずつ呼び出すものと、トークン列の判定
+ * ({@code prefilter}) を有効にして並列ストリームで処理するものである. 入力は、リポジトリ内の
+ * ソースコードと、{@link SourceGenerator} で生成したソースコードとする. また、{@code apply} ゴールを既定の設定で
+ * 実行した出力も比較する. 一致しない場合は、最初に異なるトークンの位置と前後の行を報告する.
+ * </p>
+ * 次のシステムプロパティで入力を変更できる.
+ * <ul>
+ * <li>{@code lombokize.equivalence.count}: 生成するソースの数 (既定値 150).</li>
+ * <li>{@code lombokize.equivalence.seed}: 生成に使う最初の乱数の種 (既定値 1).</li>
+ * <li>{@code lombokize.equivalence.corpus}: 追加で比較するソースディレクトリ. パス区切り文字で複数指定できる.</li>
+ * </ul>
+ */
+public class EngineEquivalenceTest {
+
+    private static final int COUNT = Integer.getInteger("lombokize.equivalence.count", 150);
+    private static final long SEED = Long.getLong("lombokize.equivalence.seed", 1);
+    private static final String CORPUS = System.getProperty("lombokize.equivalence.corpus", "");
+    /**
+     * 報告する不一致の数の上限.
+     */
+    private static final int MAX_REPORTS = 5;
+    /**
+     * 不一致を報告する際に表示する前後の行数.
+     */
+    private static final int CONTEXT_LINES = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    @Rule
+    public MojoRule rule = new MojoRule() {
+        @Override
+        protected void before() throws Throwable {
+        }
+
+        @Override
+        protected void after() {
+        }
+    };
+
+    private final Logger logger = Logger.getLogger(CompilationUnitLombokizer.class.getPackage().getName());
+    private Level logLevel;
+
+    @Before
+    public void setUp() {
+        // ファイルごとの適用結果と、複数の変数を宣言したフィールドの警告は出力しない
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.SEVERE);
+    }
+
+    @After
+    public void tearDown() {
+        logger.setLevel(logLevel);
+    }
+
+    /**
+     * 生成した JDK 8 用のソースコードで比較する.
+     */
+    @Test
+    public void generatedJdk8() throws IOException {
+        assertEquivalent(JAVA_8, generate(SEED));
+    }
+
+    /**
+     * 生成した JDK 7 用のソースコードで比較する. {@code onX} の形式が JDK 8 と異なる.
+     */
+    @Test
+    public void generatedJdk7() throws IOException {
+        assertEquivalent(JAVA_7, generate(SEED + COUNT));
+    }
+
+    /**
+     * リポジトリ内のソースコードと、システムプロパティで指定したディレクトリのソースコードで比較する.
+     */
+    @Test
+    public void corpus() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        final List<String> roots = new ArrayList<>();
+        roots.add("src/main/cds/training/corpus");
+        roots.add("src/main/java");
+        for (String root : CORPUS.split(File.pathSeparator)) {
+            if (!root.isEmpty()) {
+                roots.add(root);
+            }
+        }
+        for (String root : roots) {
+            final Path path = Paths.get(root);
+            if (Files.isDirectory(path)) {
+                files.addAll(Lombokizer.collectSourceFiles(path));
+            }
+        }
+        assertFalse("No source files in " + roots, files.isEmpty());
+        assertEquivalent(JAVA_8, files);
+    }
+
+    /**
+     * {@code apply} ゴールを、文字コードと言語レベル ({@code maven.compiler.source}) 以外は既定の設定で実行し、
+     * 書き換えたソースファイルを比較する. 入力は生成したソースコードと、リポジトリ内のソースコードとする.
+     */
+    @Test
+    public void mojoDefaults() throws Exception {
+        final Path basedir = folder.newFolder("project").toPath();
+        final Path sourceRoot = basedir.resolve("src/main/java");
+        final List<Path> files = new ArrayList<>();
+        for (Path file : generate(SEED)) {
+            files.add(copy(file, sourceRoot.resolve(file.getFileName().toString())));
+        }
+        final Path corpus = Paths.get("src/main/java");
+        for (Path file : Lombokizer.collectSourceFiles(corpus)) {
+            files.add(copy(file, sourceRoot.resolve(corpus.relativize(file).toString())));
+        }
+        Files.write(basedir.resolve("pom.xml"), Arrays.asList(
+                "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+                "    <modelVersion>4.0.0</modelVersion>",
+                "    <groupId>com.github.crystalduke</groupId>",
+                "    <artifactId>lombokize-maven-plugin-test</artifactId>",
+                "    <version>1.0.0-SNAPSHOT</version>",
+                "    <properties>",
+                "        <maven.compiler.source>1.8</maven.compiler.source>",
+                "    </properties>",
+                "    <build>",
+                "        <plugins>",
+                "            <plugin>",
+                "                <groupId>com.github.crystalduke</groupId>",
+                "                <artifactId>lombokize-maven-plugin</artifactId>",
+                "                <version>1.0.0-SNAPSHOT</version>",
+                "                <configuration>",
+                "                    <encoding>UTF-8</encoding>",
+                "                </configuration>",
+                "            </plugin>",
+                "        </plugins>",
+                "    </build>",
+                "</project>"), StandardCharsets.UTF_8);
+        final Map<Path, String> expected = legacy(JAVA_8, files);
+
+        final ApplyLombokMojo mojo = (ApplyLombokMojo) rule.lookupConfiguredMojo(basedir.toFile(), "apply");
+        // ファイルごとの適用結果は出力しない
+        mojo.logLevel = Level.WARNING;
+        mojo.execute();
+        final Map<Path, String> output = new LinkedHashMap<>();
+        for (Path file : files) {
+            output.put(file, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        assertSameOutputs(expected, Collections.singletonMap("mojo defaults, " + JAVA_8, output));
+    }
+
+    private static Path copy(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return Files.copy(source, target);
+    }
+
+    /**
+     * 乱数の種を 1 ずつ変えてソースコードを生成し、一時ディレクトリに書き込む.
+     * ファイル名に乱数の種を含めるため、不一致を報告されたソースは {@link SourceGenerator#generate} で再現できる.
+     */
+    private List<Path> generate(long seed) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        final Path root = folder.newFolder().toPath();
+        for (int i = 0; i < COUNT; i++) {
+            final String name = "Seed" + (seed + i);
+            final Path file = root.resolve(name + ".java");
+            Files.write(file, SourceGenerator.generate(seed + i, name).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static void assertEquivalent(ParserConfiguration.LanguageLevel level, List<Path> files)
+            throws IOException {
+        final Map<Path, String> expected = legacy(level, files);
+        final Lombokizer sequential = Lombokizer.builder()
+                .languageLevel(level)
+                .encoding(StandardCharsets.UTF_8)
+                .build();
+        final Lombokizer parallel = Lombokizer.builder()
+                .languageLevel(level)
+                .encoding(StandardCharsets.UTF_8)
+                .prefilter(true)
+                .build();
+        final Map<String, Map<Path, LombokizeResult>> results = new LinkedHashMap<>();
+        final Map<Path, LombokizeResult> sequentialResults = new LinkedHashMap<>();
+        for (Path file : files) {
+            sequentialResults.put(file, sequential.lombokize(file));
+        }
+        results.put("sequential", sequentialResults);
+        results.put("prefilter+parallel", parallel.lombokizeAll(files.parallelStream())
+                .collect(Collectors.toMap(result -> Paths.get(result.getName()), Function.identity())));
+        final Map<String, Map<Path, String>> outputs = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Path, LombokizeResult>> engine : results.entrySet()) {
+            final Map<Path, String> output = new LinkedHashMap<>();
+            for (Map.Entry<Path, LombokizeResult> entry : engine.getValue().entrySet()) {
+                final LombokizeResult result = entry.getValue();
+                output.put(entry.getKey(), result.isChanged() ? result.getRevisedCode() : result.getOriginalCode());
+            }
+            outputs.put(engine.getKey() + ", " + level, output);
+        }
+        assertSameOutputs(expected, outputs);
+    }
+
+    /**
+     * 従来の処理でソースファイルごとの出力を求める. 変更するソースがなければ比較の意味がないため失敗とする.
+     */
+    private static Map<Path, String> legacy(ParserConfiguration.LanguageLevel level, List<Path> files)
+            throws IOException {
+        final Map<Path, String> expected = new LinkedHashMap<>();
+        int numOfChanged = 0;
+        for (Path file : files) {
+            final String code = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            final String revised = legacy(level, code);
+            expected.put(file, revised);
+            if (!revised.equals(code)) {
+                numOfChanged++;
+            }
+        }
+        assertTrue("No source files are changed by the legacy path", numOfChanged > 0);
+        return expected;
+    }
+
+    /**
+     * エンジンごとの出力が従来の処理の出力と一致することを確認し、一致しない場合は最初の数件を報告する.
+     *
+     * @param expected 従来の処理の出力
+     * @param outputs エンジンの名前ごとの出力
+     */
+    private static void assertSameOutputs(Map<Path, String> expected, Map<String, Map<Path, String>> outputs) {
+        final List<String> reports = new ArrayList<>();
+        int numOfDivergent = 0;
+        for (Map.Entry<String, Map<Path, String>> engine : outputs.entrySet()) {
+            for (Map.Entry<Path, String> entry : expected.entrySet()) {
+                final String actual = engine.getValue().get(entry.getKey());
+                if (!entry.getValue().equals(actual)) {
+                    if (++numOfDivergent <= MAX_REPORTS) {
+                        reports.add(String.format("%s [%s]: %s", entry.getKey(), engine.getKey(),
+                                firstDivergence(entry.getValue(), actual)));
+                    }
+                }
+            }
+        }
+        if (numOfDivergent > 0) {
+            fail(String.format("%d of %d outputs differ from the legacy path:%n%s",
+                    numOfDivergent, expected.size() * outputs.size(), String.join(String.format("%n"), reports)));
+        }
+    }
+
+    /**
+     * 従来の処理で Lombok アノテーションを適用する. パースに失敗した場合と、変更しなかった場合は元のソースコードを返す.
+     */
+    private static String legacy(ParserConfiguration.LanguageLevel level, String code) {
+        final ParseResult<CompilationUnit> result = new JavaParser(legacyConfiguration(level)).parse(code);
+        if (!result.isSuccessful()) {
+            return code;
+        }
+        final CompilationUnit original = result.getResult().get();
+        final CompilationUnitLombokizer lombokizer = new CompilationUnitLombokizer(level == JAVA_7);
+        // 従来の処理は、アノテーションを適用した後も StaticJavaParser に設定した同じ設定でパースし直していた
+        lombokizer.setParser(new JavaParser(legacyConfiguration(level)));
+        final CompilationUnit cu = lombokizer.apply(original);
+        return cu == original ? code : TokenUtil.asString(cu);
+    }
+
+    /**
+     * 従来の処理のパーサーの設定を返す. 従来の {@code ApplyLombokMojo} は、既定の {@link ParserConfiguration} に
+     * 文字コード、字句の保存、言語レベルを設定し、{@code StaticJavaParser} にも同じ設定を用いていた.
+     * {@link ParserConfiguration} はパースごとに検出した改行コードを書き換えるため、パーサーごとに生成する.
+     */
+    private static ParserConfiguration legacyConfiguration(ParserConfiguration.LanguageLevel level) {
+        return new ParserConfiguration()
+                .setCharacterEncoding(StandardCharsets.UTF_8)
+                .setLexicalPreservationEnabled(true)
+                .setLanguageLevel(level);
+    }
+
+    /**
+     * 最初に異なるトークンの位置と、前後の行を返す. 空白、改行、コメントもトークンとして比較する.
+     *
+     * @param expected 期待するソースコード
+     * @param actual 比較するソースコード
+     * @return 不一致の説明.
+     */
+    static String firstDivergence(String expected, String actual) {
+        if (actual == null) {
+            return "no output";
+        }
+        final List<Token> expectedTokens;
+        final List<Token> actualTokens;
+        try {
+            expectedTokens = tokenize(expected);
+            actualTokens = tokenize(actual);
+        } catch (TokenMgrException ex) {
+            // 字句解析できない場合は文字単位で比較する
+            int offset = 0;
+            while (offset < expected.length() && offset < actual.length()
+                    && expected.charAt(offset) == actual.charAt(offset)) {
+                offset++;
+            }
+            final int line = expected.substring(0, offset).split("\n", -1).length;
+            return String.format("first divergent character at line %d (%s)%n%s", line, ex.getMessage(),
+                    context(expected, actual, line, line));
+        }
+        int index = 0;
+        while (index < expectedTokens.size() && index < actualTokens.size()
+                && same(expectedTokens.get(index), actualTokens.get(index))) {
+            index++;
+        }
+        final Token expectedToken = index < expectedTokens.size() ? expectedTokens.get(index) : null;
+        final Token actualToken = index < actualTokens.size() ? actualTokens.get(index) : null;
+        final int expectedLine = expectedToken != null ? expectedToken.beginLine : lineCount(expected);
+        final int actualLine = actualToken != null ? actualToken.beginLine : lineCount(actual);
+        return String.format("first divergent token #%d at line %d, column %d: expected %s but was %s%n%s",
+                index, expectedLine, expectedToken != null ? expectedToken.beginColumn : 0,
+                describe(expectedToken), describe(actualToken),
+                context(expected, actual, expectedLine, actualLine));
+    }
+
+    /**
+     * 空白、改行、コメントを含めて字句解析する. 構文木を構築しないため、パースできないソースコードも比較できる.
+     */
+    private static List<Token> tokenize(String code) {
+        final GeneratedJavaParserTokenManager tokenManager = new GeneratedJavaParserTokenManager(
+                new SimpleCharStream(new StringProvider(code)));
+        final List<Token> tokens = new ArrayList<>();
+        for (Token token = tokenManager.getNextToken();; token = tokenManager.getNextToken()) {
+            // 空白とコメントは specialToken として逆順につながっている
+            final Deque<Token> specialTokens = new ArrayDeque<>();
+            for (Token special = token.specialToken; special != null; special = special.specialToken) {
+                specialTokens.push(special);
+            }
+            tokens.addAll(specialTokens);
+            if (token.kind == 0) {
+                return tokens;
+            }
+            tokens.add(token);
+        }
+    }
+
+    private static boolean same(Token expected, Token actual) {
+        return expected.kind == actual.kind && expected.image.equals(actual.image);
+    }
+
+    private static String describe(Token token) {
+        return token == null
+                ? "end of source"
+                : JavaToken.Kind.valueOf(token.kind) + " \"" + escape(token.image) + "\"";
+    }
+
+    private static String escape(String text) {
+        return text.replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t");
+    }
+
+    private static int lineCount(String code) {
+        return code.split("\r\n|\r|\n", -1).length;
+    }
+
+    /**
+     * 不一致の前後の行を、期待する行に {@code -}, 比較する行に {@code +} を付けて並べる.
+     */
+    private static String context(String expected, String actual, int expectedLine, int actualLine) {
+        final StringBuilder context = new StringBuilder();
+        appendLines(context, "- ", expected, expectedLine);
+        appendLines(context, "+ ", actual, actualLine);
+        return context.toString();
+    }
+
+    private static void appendLines(StringBuilder context, String prefix, String code, int line) {
+        // 改行コードの違いも見えるように、改行の直前で区切って行末の \r を表示する
+        final String[] lines = code.split("(?<=\n)", -1);
+        for (int i = Math.max(line - CONTEXT_LINES, 1); i <= Math.min(line + CONTEXT_LINES, lines.length); i++) {
+            context.append(prefix).append(String.format("%5d ", i)).append(escape(lines[i - 1]))
+                    .append(String.format("%n"));
+        }
+    }
+}
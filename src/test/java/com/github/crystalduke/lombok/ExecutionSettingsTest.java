@@ -0,0 +1,91 @@
+package com.github.crystalduke.lombok;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ExecutionSettings} が、子プロセスに渡す全ての設定を失わずに変換することを確認する.
+ */
+public class ExecutionSettingsTest {
+
+    /**
+     * 全ての設定に既定値と異なる値を設定し、ゴールから {@link Properties} を経由して別のゴールに写す.
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        final ApplyLombokMojo mojo = new ApplyLombokMojo();
+        int seed = 1;
+        for (Field field : ExecutionSettings.fields()) {
+            ReflectionUtils.setVariableValueInObject(mojo, field.getName(), sample(field.getType(), seed++));
+        }
+        final ExecutionSettings settings = ExecutionSettings.of(mojo);
+        final ExecutionSettings restored = ExecutionSettings.fromProperties(reload(settings.toProperties()));
+        assertEquals(settings, restored);
+
+        final ApplyLombokMojo forked = new ApplyLombokMojo();
+        restored.applyTo(forked);
+        for (Field field : ExecutionSettings.fields()) {
+            assertEquals(field.getName(), ReflectionUtils.getValueIncludingSuperclasses(field.getName(), mojo),
+                    ReflectionUtils.getValueIncludingSuperclasses(field.getName(), forked));
+        }
+        assertFalse(forked.fork);
+    }
+
+    /**
+     * {@code null} の設定は保存せず、空のリストは空のまま読み込む.
+     */
+    @Test
+    public void nullAndEmptyValues() throws Exception {
+        final ApplyLombokMojo mojo = new ApplyLombokMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "classpathElements", Collections.emptyList());
+        final Properties properties = ExecutionSettings.of(mojo).toProperties();
+        assertFalse(properties.containsKey("encoding"));
+        assertFalse(properties.containsKey("compileSourceRoots"));
+        final ExecutionSettings restored = ExecutionSettings.fromProperties(reload(properties));
+        assertEquals(ExecutionSettings.of(mojo), restored);
+        final ApplyLombokMojo forked = new ApplyLombokMojo();
+        restored.applyTo(forked);
+        assertEquals(Collections.emptyList(),
+                ReflectionUtils.getValueIncludingSuperclasses("classpathElements", forked));
+        assertNull(ReflectionUtils.getValueIncludingSuperclasses("encoding", forked));
+    }
+
+    private static Object sample(Class<?> type, int seed) {
+        if (type == String.class) {
+            return "value" + seed;
+        } else if (type == File.class) {
+            return new File("dir" + seed, "file" + seed).getAbsoluteFile();
+        } else if (type == boolean.class) {
+            return true;
+        } else if (type == int.class) {
+            return seed;
+        } else if (type == long.class) {
+            return (long) seed << 32;
+        } else if (type == List.class) {
+            return Arrays.asList(new File("a" + seed).getAbsolutePath(), new File("b" + seed).getAbsolutePath());
+        }
+        throw new AssertionError("Unsupported type: " + type);
+    }
+
+    /**
+     * 子プロセスと同じく、ファイルに保存して読み込み直す.
+     */
+    private static Properties reload(Properties properties) throws IOException {
+        final StringWriter writer = new StringWriter();
+        properties.store(writer, null);
+        final Properties reloaded = new Properties();
+        reloaded.load(new StringReader(writer.toString()));
+        return reloaded;
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.crystalduke.lombok;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link HeapBudget} が、要求した順に上限を超えないように割り当てることを確認する.
+ */
+public class HeapBudgetTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 後から来た小さな要求は、待っている大きな要求を追い越さない.
+     */
+    @Test
+    public void admitsInOrder() throws Exception {
+        final HeapBudget budget = new HeapBudget(100);
+        final long first = budget.acquire(60);
+        final Future<Long> large = acquire(budget, 50, 1);
+        final Future<Long> small = acquire(budget, 10, 2);
+        assertPending(small);
+        assertPending(large);
+
+        budget.release(first);
+        assertEquals(50L, (long) large.get(10, TimeUnit.SECONDS));
+        assertEquals(10L, (long) small.get(10, TimeUnit.SECONDS));
+        assertEquals(60L, budget.getUsed());
+    }
+
+    /**
+     * 上限を超える要求は、他の割り当てがなくなるまで待ち、上限だけを割り当てる.
+     */
+    @Test
+    public void clampsToLimit() throws Exception {
+        final HeapBudget budget = new HeapBudget(100);
+        assertEquals(0L, budget.acquire(-1));
+        final long first = budget.acquire(1);
+        final Future<Long> huge = acquire(budget, 1_000, 1);
+        assertPending(huge);
+
+        budget.release(first);
+        final long granted = huge.get(10, TimeUnit.SECONDS);
+        assertEquals(100L, granted);
+        budget.release(granted);
+        assertEquals(0L, budget.getUsed());
+    }
+
+    /**
+     * 待っている間に割り込まれた要求は割り当てずに待ち行列から外れ、後の要求を妨げない.
+     */
+    @Test
+    public void interruptedWaiterLeavesQueue() throws Exception {
+        final HeapBudget budget = new HeapBudget(100);
+        final long first = budget.acquire(100);
+        final Future<Long> interrupted = acquire(budget, 50, 1);
+        final Future<Long> next = acquire(budget, 50, 2);
+        assertPending(next);
+
+        interrupted.cancel(true);
+        awaitWaiters(budget, 1);
+        budget.release(first);
+        assertEquals(50L, (long) next.get(10, TimeUnit.SECONDS));
+        assertEquals(50L, budget.getUsed());
+        assertEquals(0, budget.getNumOfWaiters());
+    }
+
+    /**
+     * 別のスレッドから割り当てを要求し、待ち行列に加わるまで待つ.
+     *
+     * @param waiters 要求が加わった後に待っているスレッドの数
+     */
+    private Future<Long> acquire(HeapBudget budget, long bytes, int waiters) throws InterruptedException {
+        final Future<Long> future = executor.submit(() -> budget.acquire(bytes));
+        awaitWaiters(budget, waiters);
+        return future;
+    }
+
+    private static void awaitWaiters(HeapBudget budget, int waiters) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (budget.getNumOfWaiters() != waiters) {
+            assertTrue("Waiters: " + budget.getNumOfWaiters(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertPending(Future<Long> future) throws InterruptedException, ExecutionException {
+        try {
+            fail("Granted " + future.get(100, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException ex) {
+            // 待っている
+        }
+    }
+}
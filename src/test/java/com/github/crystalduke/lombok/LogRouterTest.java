@@ -0,0 +1,102 @@
+package com.github.crystalduke.lombok;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@code mvn -T} で複数のゴールを並行して実行する場合に、ログが各ゴールに振り分けられ、
+ * 最後のゴールの終了後にロガーの設定が元に戻ることを確認する.
+ */
+public class LogRouterTest {
+
+    private static final int NUM_OF_GOALS = 4;
+    private static final int NUM_OF_MESSAGES = 200;
+
+    private final Logger logger = Logger.getLogger(LogRouter.class.getPackage().getName());
+
+    /**
+     * ログを記録する Handler.
+     */
+    private static class Recorder extends Handler {
+
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(LogRecord record) {
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void routesConcurrentGoals() throws Exception {
+        final Level level = logger.getLevel();
+        final boolean useParentHandlers = logger.getUseParentHandlers();
+        final int numOfHandlers = logger.getHandlers().length;
+        final CyclicBarrier attached = new CyclicBarrier(NUM_OF_GOALS);
+        final ExecutorService goals = Executors.newFixedThreadPool(NUM_OF_GOALS);
+        try {
+            final List<Future<Recorder>> results = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < NUM_OF_GOALS; i++) {
+                final String goal = "goal" + i;
+                results.add(goals.submit(() -> {
+                    final Recorder recorder = new Recorder();
+                    LogRouter.attach(recorder);
+                    try {
+                        // 全てのゴールが登録した状態でログを出力する
+                        attached.await(10, TimeUnit.SECONDS);
+                        final ExecutorService workers = Executors.newFixedThreadPool(2,
+                                LogRouter.inheriting(Executors.defaultThreadFactory()));
+                        try {
+                            for (int j = 0; j < NUM_OF_MESSAGES; j++) {
+                                final String message = goal + " " + j;
+                                if (j % 2 == 0) {
+                                    logger.info(message);
+                                } else {
+                                    workers.submit(() -> logger.info(message)).get();
+                                }
+                            }
+                        } finally {
+                            workers.shutdownNow();
+                        }
+                        attached.await(10, TimeUnit.SECONDS);
+                    } finally {
+                        LogRouter.detach(recorder);
+                    }
+                    return recorder;
+                }));
+            }
+            for (int i = 0; i < NUM_OF_GOALS; i++) {
+                final List<String> messages = results.get(i).get(30, TimeUnit.SECONDS).messages;
+                assertEquals(NUM_OF_MESSAGES, messages.size());
+                for (String message : messages) {
+                    assertTrue(message, message.startsWith("goal" + i + " "));
+                }
+            }
+        } finally {
+            goals.shutdownNow();
+        }
+        assertEquals(level, logger.getLevel());
+        assertEquals(useParentHandlers, logger.getUseParentHandlers());
+        assertEquals(numOfHandlers, logger.getHandlers().length);
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LombokConfig} によるアクセサの名前と、{@link LombokConfigResolver} による
+ * {@code lombok.config} の探索を確認する.
+ */
+public class LombokConfigTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static LombokConfig config(String... lines) {
+        return LombokConfig.DEFAULT.apply(Arrays.asList(lines));
+    }
+
+    @Test
+    public void defaults() {
+        final LombokConfig config = LombokConfig.DEFAULT;
+        assertEquals("getName", config.getterName("name", false));
+        assertEquals("isActive", config.getterName("active", true));
+        assertEquals("isActive", config.getterName("isActive", true));
+        assertEquals("setActive", config.setterName("isActive", true));
+        assertFalse(config.isFluent());
+        assertFalse(config.isChain());
+        assertSame(config, config.apply(Arrays.asList("# comment", "", "lombok.log.fieldName = logger")));
+    }
+
+    @Test
+    public void prefix() {
+        final LombokConfig config = config("lombok.accessors.prefix += f", "lombok.accessors.prefix += _");
+        assertEquals("getName", config.getterName("fName", false));
+        assertEquals("setName", config.setterName("_name", false));
+        // 英字で終わる接頭辞の直後が英小文字の場合は一致しない
+        assertNull(config.getterName("foo", false));
+        assertNull(config.getterName("name", false));
+        assertNull(config.getterName("f", false));
+
+        assertEquals("getFName", config.apply(Collections.singletonList("clear lombok.accessors.prefix"))
+                .getterName("fName", false));
+        assertNull(config.apply(Collections.singletonList("lombok.accessors.prefix -= _"))
+                .getterName("_name", false));
+        assertEquals("getMName", config.apply(Collections.singletonList("lombok.accessors.prefix = m"))
+                .getterName("mMName", false));
+    }
+
+    @Test
+    public void fluentAndChain() {
+        final LombokConfig fluent = config("lombok.accessors.fluent = true");
+        assertTrue(fluent.isFluent());
+        // chain は省略時に fluent と同じ
+        assertTrue(fluent.isChain());
+        assertEquals("name", fluent.getterName("name", false));
+        assertEquals("active", fluent.setterName("active", true));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("isactive", "active")),
+                fluent.getterNames("isActive", true));
+
+        final LombokConfig chain = config("lombok.accessors.chain = true");
+        assertFalse(chain.isFluent());
+        assertTrue(chain.isChain());
+        assertEquals("setName", chain.setterName("name", false));
+        assertFalse(config("lombok.accessors.fluent = true", "lombok.accessors.chain = false").isChain());
+    }
+
+    @Test
+    public void noIsPrefix() {
+        final LombokConfig config = config("lombok.getter.noIsPrefix = true");
+        assertEquals("getActive", config.getterName("active", true));
+        assertEquals(Collections.singleton("getactive"), config.getterNames("active", true));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("getactive", "isactive")),
+                LombokConfig.DEFAULT.getterNames("active", true));
+    }
+
+    /**
+     * 親ディレクトリの設定に子ディレクトリの設定を適用し、{@code config.stopBubbling} で探索を止める.
+     */
+    @Test
+    public void resolverWalksUpToStopBubbling() throws IOException {
+        final Path root = folder.getRoot().toPath();
+        write(root.resolve("lombok.config"), "lombok.accessors.fluent = true");
+        write(root.resolve("project/lombok.config"), "config.stopBubbling = true",
+                "lombok.accessors.prefix += f");
+        write(root.resolve("project/src/main/java/p/lombok.config"), "lombok.accessors.chain = true");
+        Files.createDirectories(root.resolve("project/src/main/java/q"));
+        Files.createDirectories(root.resolve("other"));
+
+        final LombokConfigResolver resolver = new LombokConfigResolver();
+        final LombokConfig p = resolver.forFile(root.resolve("project/src/main/java/p/A.java"));
+        assertFalse(p.isFluent());
+        assertTrue(p.isChain());
+        assertEquals("getName", p.getterName("fName", false));
+        final LombokConfig q = resolver.forFile(root.resolve("project/src/main/java/q/B.java"));
+        assertFalse(q.isChain());
+        assertEquals("getName", q.getterName("fName", false));
+        final LombokConfig other = resolver.forFile(root.resolve("other/C.java"));
+        assertTrue(other.isFluent());
+        assertEquals("fName", other.getterName("fName", false));
+
+        // キャッシュを破棄するまでは変更を読み込まない
+        write(root.resolve("project/src/main/java/q/lombok.config"), "lombok.accessors.chain = true");
+        assertSame(q, resolver.forFile(root.resolve("project/src/main/java/q/B.java")));
+        resolver.clear();
+        assertTrue(resolver.forFile(root.resolve("project/src/main/java/q/B.java")).isChain());
+    }
+
+    private static void write(Path file, String... lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
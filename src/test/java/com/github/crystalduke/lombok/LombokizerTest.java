@@ -0,0 +1,75 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.utils.SourceRoot;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link Lombokizer} のソースファイルの列挙を確認する.
+ */
+public class LombokizerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * {@link SourceRoot} が入らないディレクトリのソースファイルは列挙しない.
+     */
+    @Test
+    public void collectSourceFilesLikeSourceRoot() throws IOException {
+        final Path root = folder.newFolder("src").toPath();
+        final List<Path> expected = Arrays.asList(
+                write(root, "main/java/com/example/Bean.java"),
+                write(root, "main/java/com/example/$internal/Impl.java"),
+                write(root, "Top.java"));
+        write(root, "main/java/com/example/readme.txt");
+        write(root, ".git/Hidden.java");
+        write(root, "main/generated-sources/Generated.java");
+        write(root, "test/resources/project-to-test/Sample.java");
+        write(root, "main/java/1st/Digit.java");
+
+        final List<Path> files = Lombokizer.collectSourceFiles(root);
+        final List<Path> sorted = new ArrayList<>(expected);
+        Collections.sort(sorted);
+        assertEquals(sorted, files);
+
+        final List<Path> parsed = new ArrayList<>();
+        final ParserConfiguration config = new ParserConfiguration();
+        new SourceRoot(root, config).parse("", config, (localPath, absolutePath, result) -> {
+            parsed.add(absolutePath);
+            return SourceRoot.Callback.Result.DONT_SAVE;
+        });
+        Collections.sort(parsed);
+        assertEquals(files, parsed);
+    }
+
+    /**
+     * 引数のディレクトリは、名前が Java の識別子でなくても列挙の対象とする.
+     */
+    @Test
+    public void collectSourceFilesFromAnyRoot() throws IOException {
+        final Path root = folder.newFolder("project-to-test").toPath();
+        final Path file = write(root, "com/example/Bean.java");
+        write(root, "generated-sources/Generated.java");
+        assertEquals(Collections.singletonList(file), Lombokizer.collectSourceFiles(root));
+    }
+
+    private static Path write(Path root, String path) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, "class A {}\n".getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link OutputTree} の出力と、前回の出力を再利用する判定を確認する.
+ */
+public class OutputTreeTest {
+
+    private static final String SETTINGS = "prefilter=false";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private Path output;
+    private Path changed;
+    private Path unchanged;
+    private List<Path> sourceFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("src").toPath();
+        output = folder.getRoot().toPath().resolve("out");
+        changed = write(root.resolve("p/Changed.java"), "class Changed {}\n", -60_000);
+        unchanged = write(root.resolve("p/Unchanged.java"), "class Unchanged {}\n", -60_000);
+        sourceFiles = Arrays.asList(changed, unchanged);
+    }
+
+    /**
+     * 変更したファイルは書き込み、変更しなかったファイルはソースファイルにリンクする.
+     * 書き込みはリンクを通してソースファイルを書き換えない.
+     */
+    @Test
+    public void writesAndLinks() throws IOException {
+        final OutputTree tree = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        assertEquals(sourceFiles, tree.outdated(sourceFiles));
+        tree.write(changed, "class Changed { int x; }\n");
+        tree.link(unchanged);
+        tree.commit();
+        assertEquals(1, tree.getNumOfWritten());
+        assertEquals(1, tree.getNumOfLinked());
+        assertEquals("class Changed { int x; }\n", read(output.resolve("p/Changed.java")));
+        assertTrue(Files.isSameFile(unchanged, output.resolve("p/Unchanged.java")));
+
+        // リンクを書き込みで置き換えても、ソースファイルは変わらない
+        final OutputTree next = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        next.write(unchanged, "class Unchanged { int y; }\n");
+        assertEquals("class Unchanged {}\n", read(unchanged));
+        assertFalse(Files.isSameFile(unchanged, output.resolve("p/Unchanged.java")));
+    }
+
+    /**
+     * ハードリンクを作成できない場合は、更新時刻を引き継いで複製する.
+     */
+    @Test
+    public void copiesWithoutLinks() throws Exception {
+        final OutputTree tree = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        ReflectionUtils.setVariableValueInObject(tree, "linkSupported", false);
+        tree.write(changed, "class Changed { int x; }\n");
+        tree.link(unchanged);
+        tree.commit();
+        assertEquals(1, tree.getNumOfCopied());
+        final Path copy = output.resolve("p/Unchanged.java");
+        assertFalse(Files.isSameFile(unchanged, copy));
+        assertEquals(Files.getLastModifiedTime(unchanged), Files.getLastModifiedTime(copy));
+        assertEquals(Collections.emptyList(),
+                new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS).outdated(sourceFiles));
+    }
+
+    /**
+     * 全てのファイルを出力した後は、更新したソースファイルだけを処理し直す.
+     */
+    @Test
+    public void repeatedRunIsNoOp() throws IOException {
+        final OutputTree tree = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        tree.write(changed, "class Changed { int x; }\n");
+        tree.link(unchanged);
+        tree.commit();
+
+        final OutputTree next = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        assertEquals(Collections.emptyList(), next.outdated(sourceFiles));
+        assertEquals(0, next.deleteStale(sourceFiles));
+
+        write(unchanged, "class Unchanged { int y; }\n", 0);
+        write(changed, "class Changed { int y; }\n", 0);
+        assertEquals(sourceFiles, new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS)
+                .outdated(sourceFiles));
+    }
+
+    /**
+     * 設定が変わった場合と、前回の処理を終えていない場合は、全てのソースファイルを処理し直す.
+     */
+    @Test
+    public void reprocessesAllOnOtherSettings() throws IOException {
+        final OutputTree tree = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        tree.write(changed, "class Changed { int x; }\n");
+        tree.link(unchanged);
+        tree.commit();
+
+        final OutputTree other = new OutputTree(root, output, StandardCharsets.UTF_8, "prefilter=true");
+        assertEquals(sourceFiles, other.outdated(sourceFiles));
+        // 設定を変えた処理を打ち切った後は、元の設定でも処理し直す
+        assertEquals(sourceFiles, new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS)
+                .outdated(sourceFiles));
+    }
+
+    /**
+     * ソースファイルがなくなった出力を削除する.
+     */
+    @Test
+    public void deletesStaleFiles() throws IOException {
+        final OutputTree tree = new OutputTree(root, output, StandardCharsets.UTF_8, SETTINGS);
+        tree.link(changed);
+        tree.link(unchanged);
+        write(output.resolve("q/Gone.java"), "class Gone {}\n", 0);
+        write(output.resolve("q/notes.txt"), "notes\n", 0);
+        assertEquals(2, tree.deleteStale(Collections.singletonList(changed)));
+        assertTrue(Files.exists(output.resolve("p/Changed.java")));
+        assertFalse(Files.exists(output.resolve("p/Unchanged.java")));
+        assertFalse(Files.exists(output.resolve("q/Gone.java")));
+        assertTrue(Files.exists(output.resolve("q/notes.txt")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverlappingDirectory() {
+        new OutputTree(root, root.resolve("out"), StandardCharsets.UTF_8, SETTINGS);
+    }
+
+    /**
+     * 更新時刻を現在から指定したミリ秒ずらしてファイルを書き込む.
+     */
+    private static Path write(Path file, String content, long offset) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + offset));
+        return file;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import com.github.javaparser.printer.lexicalpreservation.PhantomNodeLogic;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PhantomNodeCache} が、構文木を操作するスレッドがなくなった時点でキャッシュを解放することを確認する.
+ */
+public class PhantomNodeCacheTest {
+
+    /**
+     * 他のスレッドが操作している間は解放せず、最後のスレッドが操作を終えた時点で解放する.
+     */
+    @Test
+    public void cleansUpWhenLastHolderReleases() throws Exception {
+        final ExecutorService other = Executors.newSingleThreadExecutor();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            final Future<?> holder = other.submit(() -> {
+                PhantomNodeCache.acquire();
+                try {
+                    acquired.countDown();
+                    done.await(10, TimeUnit.SECONDS);
+                } finally {
+                    PhantomNodeCache.release();
+                }
+                return null;
+            });
+            assertTrue(acquired.await(10, TimeUnit.SECONDS));
+
+            PhantomNodeCache.acquire();
+            PhantomNodeCache.acquire();
+            try {
+                print("class A { int x; }");
+            } finally {
+                PhantomNodeCache.release();
+            }
+            // 入れ子の内側では解放しない
+            assertFalse(cache().isEmpty());
+            PhantomNodeCache.release();
+            // 他のスレッドが操作している
+            assertFalse(cache().isEmpty());
+
+            done.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            assertTrue(cache().isEmpty());
+        } finally {
+            done.countDown();
+            other.shutdownNow();
+        }
+    }
+
+    private static void print(String code) {
+        final CompilationUnit cu = new JavaParser(new ParserConfiguration().setLexicalPreservationEnabled(true))
+                .parse(code).getResult().get();
+        LexicalPreservingPrinter.print(cu);
+    }
+
+    private static Map<?, ?> cache() throws IllegalAccessException {
+        return (Map<?, ?>) ReflectionUtils.getValueIncludingSuperclasses("isPhantomNodeCache",
+                new PhantomNodeLogic());
+    }
+}
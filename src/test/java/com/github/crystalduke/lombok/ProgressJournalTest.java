@@ -0,0 +1,144 @@
+package com.github.crystalduke.lombok;
+
+import com.github.crystalduke.lombok.LombokizeResult.Status;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ProgressJournal} による再開と、ジャーナルを破棄する条件を確認する.
+ */
+public class ProgressJournalTest {
+
+    private static final String SETTINGS = "languageLevel=JAVA_8";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private Path journalFile;
+    private Path a;
+    private Path b;
+    private Path c;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("src").toPath();
+        journalFile = folder.getRoot().toPath().resolve("target/lombokize/" + ProgressJournal.fileName(0, 1));
+        a = write("p/A.java", "class A {}");
+        b = write("p/B.java", "class B {}");
+        c = write("q/C.java", "class C {}");
+    }
+
+    /**
+     * 記録した時点から内容が変わっていないファイルだけを処理対象から除く.
+     */
+    @Test
+    public void pendingSkipsUnchangedFiles() throws IOException {
+        try (ProgressJournal journal = open(SETTINGS)) {
+            assertEquals(Arrays.asList(a, b, c), journal.pending(Arrays.asList(a, b, c)));
+            journal.record(a, Status.UNCHANGED, "class A {}");
+            // 書き換えた後の内容を記録する
+            journal.record(b, Status.CHANGED, "@Data class B {}");
+        }
+        try (ProgressJournal journal = open(SETTINGS)) {
+            assertEquals(2, journal.size());
+            assertEquals(Arrays.asList(b, c), journal.pending(Arrays.asList(a, b, c)));
+        }
+        write("p/B.java", "@Data class B {}");
+        write("p/A.java", "class A { int x; }");
+        try (ProgressJournal journal = open(SETTINGS)) {
+            assertEquals(Arrays.asList(a, c), journal.pending(Arrays.asList(a, b, c)));
+        }
+    }
+
+    /**
+     * 強制終了で途中まで書き込まれた行は読み飛ばす.
+     */
+    @Test
+    public void ignoresTruncatedLine() throws IOException {
+        try (ProgressJournal journal = open(SETTINGS)) {
+            journal.record(a, Status.UNCHANGED, "class A {}");
+        }
+        Files.write(journalFile, "UNCHANGED\t0123".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (ProgressJournal journal = open(SETTINGS)) {
+            assertEquals(1, journal.size());
+            assertEquals(Arrays.asList(b), journal.pending(Arrays.asList(a, b)));
+        }
+    }
+
+    /**
+     * 設定が異なる実行では、以前の記録を破棄する.
+     */
+    @Test
+    public void discardsOtherSettings() throws IOException {
+        try (ProgressJournal journal = open(SETTINGS)) {
+            journal.record(a, Status.UNCHANGED, "class A {}");
+        }
+        try (ProgressJournal journal = open("languageLevel=JAVA_7")) {
+            assertEquals(0, journal.size());
+            assertEquals(Arrays.asList(a, b), journal.pending(Arrays.asList(a, b)));
+            journal.record(b, Status.UNCHANGED, "class B {}");
+        }
+        try (ProgressJournal journal = open("languageLevel=JAVA_7")) {
+            assertEquals(Arrays.asList(a), journal.pending(Arrays.asList(a, b)));
+        }
+        // 設定を記録していないジャーナルも破棄する
+        Files.write(journalFile, Arrays.asList("# lombokize journal",
+                Files.readAllLines(journalFile, StandardCharsets.UTF_8).get(1)), StandardCharsets.UTF_8);
+        try (ProgressJournal journal = open("languageLevel=JAVA_7")) {
+            assertEquals(0, journal.size());
+        }
+    }
+
+    /**
+     * 全てのファイルを処理し終えたジャーナルは削除し、次の実行は最初から記録する.
+     */
+    @Test
+    public void completeDeletesJournal() throws IOException {
+        final ProgressJournal journal = open(SETTINGS);
+        journal.record(a, Status.UNCHANGED, "class A {}");
+        journal.complete();
+        assertFalse(Files.exists(journalFile));
+        try (ProgressJournal next = open(SETTINGS)) {
+            assertEquals(Collections.singletonList(a), next.pending(Collections.singletonList(a)));
+        }
+    }
+
+    /**
+     * 出力ディレクトリへの書き込みは再開できない. 出力ディレクトリは常に古い出力だけを処理し直す.
+     */
+    @Test(expected = MojoExecutionException.class)
+    public void resumeRejectsOutputDirectory() throws Exception {
+        final ApplyLombokMojo mojo = new ApplyLombokMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "sourceDirectory", root.toFile());
+        ReflectionUtils.setVariableValueInObject(mojo, "shardCount", 1);
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 1);
+        ReflectionUtils.setVariableValueInObject(mojo, "heapBudget", 50);
+        mojo.outputDirectory = folder.newFolder("out");
+        mojo.resume = true;
+        mojo.execute();
+    }
+
+    private ProgressJournal open(String settings) throws IOException {
+        return ProgressJournal.open(journalFile, root, StandardCharsets.UTF_8, settings);
+    }
+
+    private Path write(String path, String content) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
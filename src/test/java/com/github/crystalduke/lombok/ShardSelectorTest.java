@@ -0,0 +1,153 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ShardSelector} の割り当てを確認する.
+ */
+public class ShardSelectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private List<Path> sourceFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("src").toPath();
+        sourceFiles = new ArrayList<>();
+        // サイズの大きい順に 100, 60, 50, 10 バイト
+        sourceFiles.add(write("p/A.java", 10));
+        sourceFiles.add(write("p/B.java", 50));
+        sourceFiles.add(write("p/C.java", 60));
+        sourceFiles.add(write("q/D.java", 100));
+    }
+
+    /**
+     * 32 ビットの FNV-1a の既知の値と一致する.
+     */
+    @Test
+    public void fnv1a() {
+        assertEquals(0x811c9dc5, ShardSelector.hash(""));
+        assertEquals(0xe40c292c, ShardSelector.hash("a"));
+        assertEquals(0xbf9cf968, ShardSelector.hash("foobar"));
+    }
+
+    /**
+     * パスのハッシュ値による割り当ては、全てのファイルを重複なく分割し、入力の順序を保つ.
+     */
+    @Test
+    public void hashPartitionsAllFiles() throws IOException {
+        final int count = 3;
+        final List<Path> all = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            final List<Path> selected = ShardSelector.select(root, sourceFiles, index, count, null);
+            for (Path file : selected) {
+                assertEquals(index,
+                        Integer.remainderUnsigned(ShardSelector.hash(ShardSelector.toKey(root, file)), count));
+            }
+            final List<Path> sorted = new ArrayList<>(selected);
+            sorted.sort(Comparator.comparingInt(sourceFiles::indexOf));
+            assertEquals(sorted, selected);
+            all.addAll(selected);
+        }
+        Collections.sort(all);
+        assertEquals(sourceFiles, all);
+        assertEquals(sourceFiles, ShardSelector.select(root, sourceFiles, 0, 1, null));
+    }
+
+    /**
+     * 大きいファイルから順に、割り当て済みのサイズが最も小さいシャードに割り当てる.
+     * 保存した割り当ては、ファイルのサイズが変わっても再利用する.
+     */
+    @Test
+    public void planBalancesSizes() throws IOException {
+        final Path planFile = folder.getRoot().toPath().resolve("target/" + ShardSelector.planFileName(2));
+        // 保存しない場合も同じ割り当てとする
+        assertEquals(Arrays.asList(sourceFiles.get(0), sourceFiles.get(3)),
+                ShardSelector.select(root, sourceFiles, 0, 2, true, null));
+        assertFalse(Files.exists(planFile.getParent()));
+        assertEquals(Arrays.asList(sourceFiles.get(0), sourceFiles.get(3)),
+                ShardSelector.select(root, sourceFiles, 0, 2, planFile));
+        assertEquals(Arrays.asList(sourceFiles.get(1), sourceFiles.get(2)),
+                ShardSelector.select(root, sourceFiles, 1, 2, planFile));
+        assertTrue(Files.isRegularFile(planFile));
+
+        // 他のシャードが書き換えてサイズが変わっても、割り当ては変えない
+        write("p/A.java", 1000);
+        assertEquals(Arrays.asList(sourceFiles.get(1), sourceFiles.get(2)),
+                ShardSelector.select(root, sourceFiles, 1, 2, planFile));
+
+        // 対象のファイルが変われば作り直す
+        final List<Path> files = new ArrayList<>(sourceFiles);
+        files.add(write("q/E.java", 5));
+        final Set<Path> all = new HashSet<>(ShardSelector.select(root, files, 0, 2, planFile));
+        all.addAll(ShardSelector.select(root, files, 1, 2, planFile));
+        assertEquals(new HashSet<>(files), all);
+    }
+
+    /**
+     * 同じ JVM の複数のゴールが同時に同じ割り当てのファイルを使っても、ロックが重複しない.
+     */
+    @Test
+    public void concurrentGoalsShareThePlan() throws Exception {
+        final int count = 4;
+        final Path planFile = folder.getRoot().toPath().resolve("target/" + ShardSelector.planFileName(count));
+        final CyclicBarrier start = new CyclicBarrier(count);
+        final ExecutorService goals = Executors.newFixedThreadPool(count);
+        try {
+            final List<Future<List<Path>>> results = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                results.add(goals.submit((Callable<List<Path>>) () -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    final List<Path> selected = new ArrayList<>();
+                    for (int j = 0; j < 20; j++) {
+                        selected.clear();
+                        selected.addAll(ShardSelector.select(root, sourceFiles, index, count, planFile));
+                    }
+                    return selected;
+                }));
+            }
+            final List<Path> all = new ArrayList<>();
+            for (Future<List<Path>> result : results) {
+                final List<Path> selected = result.get(30, TimeUnit.SECONDS);
+                // 4 つのファイルを 4 つのシャードに割り当てる
+                assertEquals(1, selected.size());
+                all.addAll(selected);
+            }
+            Collections.sort(all);
+            assertEquals(sourceFiles, all);
+        } finally {
+            goals.shutdownNow();
+        }
+    }
+
+    private Path write(String path, int size) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[size]);
+    }
+}
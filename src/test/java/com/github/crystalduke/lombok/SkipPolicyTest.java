@@ -0,0 +1,102 @@
+package com.github.crystalduke.lombok;
+
+import java.nio.file.Paths;
+import org.junit.Test;
+
+import static com.github.crystalduke.lombok.LombokizeResult.SkipReason.*;
+import static org.junit.Assert.*;
+
+/**
+ * {@link SkipPolicy} が省略するソースを確認する.
+ */
+public class SkipPolicyTest {
+
+    private static final SkipPolicy BOTH = new SkipPolicy(true, true);
+    private static final SkipPolicy GENERATED_ONLY = new SkipPolicy(true, false);
+    private static final SkipPolicy LOMBOKIZED_ONLY = new SkipPolicy(false, true);
+
+    @Test
+    public void none() {
+        assertNull(SkipPolicy.NONE.test(Paths.get("target/generated-sources/A.java"),
+                "// Generated by hand\npackage p;\n@lombok.Data class A {}"));
+    }
+
+    @Test
+    public void generatedDirectory() {
+        assertEquals(GENERATED, GENERATED_ONLY.test(Paths.get("target/generated-sources/p/A.java"), "class A {}"));
+        assertEquals(GENERATED, GENERATED_ONLY.test(Paths.get("target/generated-test-sources/A.java"), "class A {}"));
+        assertNull(GENERATED_ONLY.test(Paths.get("src/main/java/generated/A.java"), "class A {}"));
+        assertNull(LOMBOKIZED_ONLY.test(Paths.get("target/generated-sources/A.java"), "class A {}"));
+    }
+
+    /**
+     * {@code package} または {@code import} より前のコメントだけを判定する.
+     */
+    @Test
+    public void headerComment() {
+        assertEquals(GENERATED, GENERATED_ONLY.test(null,
+                "/*\n * Generated by the protocol buffer compiler.\n */\npackage p;\nclass A {}"));
+        assertEquals(GENERATED, GENERATED_ONLY.test(null, "// @generated\nimport java.util.List;\nclass A {}"));
+        assertEquals(GENERATED, GENERATED_ONLY.test(null, "// Copyright\n// GENERATED BY tool\npackage p;"));
+        // 型の Javadoc は判定に含めない
+        assertNull(GENERATED_ONLY.test(null,
+                "package p;\n/**\n * Instances are generated by the factory.\n */\nclass A {}"));
+        assertNull(GENERATED_ONLY.test(null, "/** Generated by the factory. */\nclass A {}"));
+        assertNull(GENERATED_ONLY.test(null, "package p;\nclass A {\n    // Generated by hand\n    int x;\n}"));
+        assertNull(GENERATED_ONLY.test(null, "// regenerated byte code\npackage p;\nclass A {}"));
+    }
+
+    @Test
+    public void generatedAnnotation() {
+        assertEquals(GENERATED, GENERATED_ONLY.test(null,
+                "package p;\n@javax.annotation.Generated(\"tool\")\npublic class A {}"));
+        assertEquals(GENERATED, GENERATED_ONLY.test(null,
+                "package p;\nclass A {\n    @Generated(value = \"tool\") static class B {}\n}"));
+        assertNull(GENERATED_ONLY.test(null, "package p;\nclass A {\n    @Generated int x;\n}"));
+    }
+
+    /**
+     * 全ての型がアクセサをクラス単位のアノテーションで生成するソースだけを省略する.
+     */
+    @Test
+    public void lombokized() {
+        assertEquals(LOMBOKIZED, LOMBOKIZED_ONLY.test(null, "package p;\n@Data class A { int x; }"));
+        assertEquals(LOMBOKIZED, LOMBOKIZED_ONLY.test(null,
+                "package p;\n@lombok.Value public final class A { int x; }"));
+        assertEquals(LOMBOKIZED, LOMBOKIZED_ONLY.test(null,
+                "package p;\n@Getter @Setter(AccessLevel.PACKAGE) class A { int x; }"));
+        assertEquals(LOMBOKIZED, LOMBOKIZED_ONLY.test(null,
+                "@Data class A {\n    @Value static class B { int y; }\n    void f() { run(() -> {}); }\n}\n"
+                + "@Data class C { String s = A.class.getName(); }"));
+        assertNull(LOMBOKIZED_ONLY.test(null, "package p;\nclass A {}"));
+        assertNull(LOMBOKIZED_ONLY.test(null, "package p;\n@Getter class A { int x; }"));
+        assertNull(LOMBOKIZED_ONLY.test(null, "package p;\n@Setter class A { int x; }"));
+        assertNull(LOMBOKIZED_ONLY.test(null, "package p;\n@Data class A {}\nclass B {}"));
+        // アノテーションの引数は判定に含めない
+        assertNull(LOMBOKIZED_ONLY.test(null, "package p;\n@SuppressWarnings(Data) class A {}"));
+    }
+
+    /**
+     * 入れ子の型、ローカルクラス、匿名クラスも判定に含める.
+     */
+    @Test
+    public void lombokizedNestedTypes() {
+        assertNull(LOMBOKIZED_ONLY.test(null, "@Data class A {\n    static class B { int y; }\n}"));
+        assertNull(LOMBOKIZED_ONLY.test(null, "@Data class A {\n    @Getter enum E { X; int y; }\n}"));
+        assertNull(LOMBOKIZED_ONLY.test(null,
+                "@Data class A {\n    void f() {\n        @Getter class L { int y; }\n    }\n}"));
+        assertNull(LOMBOKIZED_ONLY.test(null,
+                "@Data class A {\n    Object o = new Object() {\n        int y;\n    };\n}"));
+        assertNull(LOMBOKIZED_ONLY.test(null,
+                "@Data class A {\n    void f() { run(new Runnable() { int y; public void run() {} }); }\n}"));
+        assertEquals(LOMBOKIZED, LOMBOKIZED_ONLY.test(null,
+                "@Data class A {\n    void f() { if (x.equals(new B())) { int y; } }\n}"));
+        assertEquals(LOMBOKIZED, LOMBOKIZED_ONLY.test(null,
+                "@Data class A {\n    int[] a = new int[] {1, 2};\n}"));
+    }
+
+    @Test
+    public void invalidTokens() {
+        assertNull(BOTH.test(null, "@Data class A { char c = '\\u00'; }"));
+    }
+}
@@ -0,0 +1,316 @@
+package com.github.crystalduke.lombok;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 差分テスト用に、Lombok アノテーションを適用する候補を含むソースコードを乱数で生成する.
+ * 同じ乱数の種からは同じソースコードを生成する.
+ * <p>
+ * 改行コード (LF, CRLF)、変わった位置のコメント、{@code onMethod} や {@code onParam} になる
+ * アノテーション、アクセスレベル、入れ子の型と匿名クラス、既に付与されたアノテーション、
+ * アクセサではないメソッドなどを組み合わせる.
+ * </p>
+ */
+final class SourceGenerator {
+
+    private static final String[][] TYPES = {
+        {"int", "0"}, {"long", "0L"}, {"boolean", "false"}, {"String", "null"},
+        {"List<String>", "null"}, {"java.util.Map<String, Integer>", "null"}, {"byte[]", "null"},
+        {"double", "0.0"}, {"Integer", "null"}
+    };
+    private static final String[] ACCESS = {"public ", "public ", "public ", "protected ", "", "private "};
+    private static final String[] METHOD_ANNOTATIONS = {
+        "@Deprecated", "@SuppressWarnings(\"unchecked\")", "@java.lang.Deprecated"
+    };
+    private static final String[] ODD_COMMENTS = {
+        "/* a */", "/** b */", "/*\n     * c\n     */"
+    };
+
+    private final SplittableRandom random;
+    private final String name;
+    private final boolean crlf;
+    private final StringBuilder out = new StringBuilder();
+    private int counter;
+
+    private SourceGenerator(long seed, String name) {
+        // java.util.Random は連続した種で最初の値が偏るため、種を攪拌する SplittableRandom を使う
+        this.random = new SplittableRandom(seed);
+        this.name = name;
+        this.crlf = random.nextBoolean();
+    }
+
+    /**
+     * ソースコードを生成する.
+     *
+     * @param seed 乱数の種
+     * @param name トップレベルのクラスの名前
+     * @return 生成したソースコード.
+     */
+    static String generate(long seed, String name) {
+        return new SourceGenerator(seed, name).generate();
+    }
+
+    private String generate() {
+        if (random.nextInt(4) != 0) {
+            out.append("package gen;\n\n");
+        }
+        switch (random.nextInt(5)) {
+            case 0:
+                // import 文がない
+                break;
+            case 1:
+                out.append("import java.util.List; // trailing comment\n");
+                break;
+            case 2:
+                out.append("import java.util.List;\nimport lombok.Getter;\n");
+                break;
+            case 3:
+                out.append("import java.util.*;\n/* after imports */\n");
+                break;
+            default:
+                out.append("import java.util.List;\nimport java.util.Map;\n");
+        }
+        out.append('\n');
+        if (random.nextBoolean()) {
+            out.append("/**\n * ").append(name).append(".\n */\n");
+        }
+        type("", "class " + name, 0);
+        final String code = out.toString();
+        return crlf ? code.replace("\n", "\r\n") : code;
+    }
+
+    /**
+     * 型宣言を出力する.
+     *
+     * @param indent インデント
+     * @param header {@code class X} などの宣言
+     * @param depth 入れ子の深さ
+     */
+    private void type(String indent, String header, int depth) {
+        out.append(indent).append(random.nextInt(5) == 0 ? "final " : "public ").append(header).append(" {\n");
+        final String member = indent + "    ";
+        if (random.nextInt(6) == 0) {
+            out.append(member).append("private static final long serialVersionUID = 1L;\n");
+        }
+        final List<String[]> fields = new ArrayList<>();
+        final int numOfFields = 1 + random.nextInt(6);
+        for (int i = 0; i < numOfFields; i++) {
+            fields.add(field(member));
+        }
+        for (String[] field : fields) {
+            if (random.nextInt(5) == 0) {
+                other(member);
+            }
+            accessors(member, field);
+        }
+        if (depth < 2 && random.nextInt(3) == 0) {
+            out.append('\n');
+            type(member, (random.nextBoolean() ? "static " : "") + "class Nested" + (++counter), depth + 1);
+        }
+        if (depth < 2 && random.nextInt(4) == 0) {
+            anonymous(member);
+        }
+        if (depth == 0 && random.nextInt(6) == 0) {
+            out.append('\n').append(member).append("enum Kind").append(++counter).append(" {\n")
+                    .append(member).append("    A, B;\n\n")
+                    .append(member).append("    private int code;\n\n")
+                    .append(member).append("    public int getCode() {\n")
+                    .append(member).append("        return code;\n")
+                    .append(member).append("    }\n")
+                    .append(member).append("}\n");
+        }
+        out.append(indent).append('}').append(random.nextInt(8) == 0 ? " // end\n" : "\n");
+    }
+
+    /**
+     * フィールド宣言を出力する.
+     *
+     * @return 型, 名前, 修飾子の配列.
+     */
+    private String[] field(String indent) {
+        final String[] type = TYPES[random.nextInt(TYPES.length)];
+        final String fieldName = "boolean".equals(type[0]) && random.nextBoolean()
+                ? "isFlag" + (++counter)
+                : "value" + (++counter);
+        String modifiers = "private ";
+        switch (random.nextInt(10)) {
+            case 0:
+                modifiers = "private final ";
+                break;
+            case 1:
+                modifiers = "protected ";
+                break;
+            case 2:
+                modifiers = "";
+                break;
+            case 3:
+                modifiers = "private static ";
+                break;
+            default:
+                break;
+        }
+        out.append(indent);
+        switch (random.nextInt(12)) {
+            case 0:
+                out.append("@Deprecated\n").append(indent);
+                break;
+            case 1:
+                out.append("@Getter ");
+                break;
+            case 2:
+                out.append(ODD_COMMENTS[0]).append(' ');
+                break;
+            default:
+                break;
+        }
+        out.append(modifiers);
+        if (!modifiers.isEmpty() && random.nextInt(10) == 0) {
+            out.append("/* type */ ");
+        }
+        out.append(type[0]).append(' ').append(fieldName);
+        if (random.nextInt(15) == 0) {
+            // 1 つの宣言に複数の変数
+            out.append(", other").append(++counter);
+        } else if (modifiers.contains("final") || random.nextInt(6) == 0) {
+            out.append(" = ").append(type[1]);
+        }
+        out.append(';');
+        if (random.nextInt(6) == 0) {
+            out.append(" // ").append(fieldName);
+        }
+        out.append('\n');
+        return new String[]{type[0], fieldName, modifiers};
+    }
+
+    /**
+     * フィールドのアクセサを出力する. 生成されるアクセサと一致しない場合もある.
+     */
+    private void accessors(String indent, String[] field) {
+        final String type = field[0];
+        final String fieldName = field[1];
+        final boolean isStatic = field[2].contains("static");
+        final String property = "boolean".equals(type) && fieldName.startsWith("is")
+                ? fieldName.substring(2)
+                : Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        if (random.nextInt(5) != 0) {
+            final String getter = ("boolean".equals(type) ? "is" : "get") + property;
+            out.append('\n');
+            comment(indent);
+            annotations(indent);
+            out.append(indent).append(access()).append(isStatic ? "static " : "")
+                    .append(type).append(' ').append(getter).append("()");
+            out.append(random.nextInt(10) == 0 ? " /* odd */ {\n" : " {\n");
+            final String self = isStatic || random.nextBoolean() ? "" : "this.";
+            switch (random.nextInt(12)) {
+                case 0:
+                    out.append(indent).append("    return /* odd */ ").append(self).append(fieldName).append(";\n");
+                    break;
+                case 1:
+                    out.append(indent).append("    // comment in body\n")
+                            .append(indent).append("    return ").append(self).append(fieldName).append(";\n");
+                    break;
+                case 2:
+                    // アクセサではない本体
+                    out.append(indent).append("    return ").append(fieldName).append(" == ")
+                            .append(defaultValue(type)).append(" ? ").append(defaultValue(type))
+                            .append(" : ").append(fieldName).append(";\n");
+                    break;
+                default:
+                    out.append(indent).append("    return ").append(self).append(fieldName).append(";\n");
+            }
+            out.append(indent).append('}').append(random.nextInt(10) == 0 ? " // getter\n" : "\n");
+        }
+        // static フィールドの setter は this で参照できないため出力しない
+        if (!field[2].contains("final") && !isStatic && random.nextInt(4) != 0) {
+            out.append('\n');
+            comment(indent);
+            annotations(indent);
+            final String parameter = random.nextInt(8) == 0 ? "@SuppressWarnings(\"x\") " : "";
+            out.append(indent).append(access()).append("void set")
+                    .append(property).append('(').append(parameter)
+                    .append(random.nextInt(12) == 0 ? "final " : "")
+                    .append(type).append(' ').append(fieldName).append(") {\n");
+            if (random.nextInt(10) == 0) {
+                out.append(indent).append("    this.").append(fieldName).append(" = ").append(fieldName)
+                        .append("; /* odd */\n");
+            } else {
+                out.append(indent).append("    this.").append(fieldName).append(" = ").append(fieldName)
+                        .append(";\n");
+            }
+            out.append(indent).append("}\n");
+        }
+    }
+
+    private static String defaultValue(String type) {
+        for (String[] candidate : TYPES) {
+            if (candidate[0].equals(type)) {
+                return candidate[1];
+            }
+        }
+        return "null";
+    }
+
+    private String access() {
+        return ACCESS[random.nextInt(ACCESS.length)];
+    }
+
+    private void comment(String indent) {
+        switch (random.nextInt(8)) {
+            case 0:
+                out.append(indent).append("/**\n").append(indent).append(" * Accessor.\n")
+                        .append(indent).append(" */\n");
+                break;
+            case 1:
+                out.append(indent).append("// accessor\n");
+                break;
+            case 2:
+                out.append(indent).append(ODD_COMMENTS[1 + random.nextInt(2)]).append('\n');
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * {@code onMethod} になるアノテーションを出力する.
+     */
+    private void annotations(String indent) {
+        final int count = random.nextInt(10) == 0 ? 1 + random.nextInt(2) : 0;
+        for (int i = 0; i < count; i++) {
+            out.append(indent).append(METHOD_ANNOTATIONS[random.nextInt(METHOD_ANNOTATIONS.length)]);
+            out.append(random.nextBoolean() ? "\n" : " ");
+        }
+        if (count > 0 && out.charAt(out.length() - 1) == ' ') {
+            out.append('\n');
+        }
+    }
+
+    /**
+     * アクセサではないメソッドを出力する.
+     */
+    private void other(String indent) {
+        out.append('\n').append(indent).append("public String describe").append(++counter).append("() {\n")
+                .append(indent).append("    return \"").append(name).append("\";\n")
+                .append(indent).append("}\n");
+    }
+
+    /**
+     * フィールドとアクセサを持つ匿名クラスを出力する.
+     */
+    private void anonymous(String indent) {
+        final int id = ++counter;
+        out.append('\n').append(indent).append("private final Runnable task").append(id)
+                .append(" = new Runnable() {\n")
+                .append(indent).append("    private int count;\n\n")
+                .append(indent).append("    public int getCount() {\n")
+                .append(indent).append("        return count;\n")
+                .append(indent).append("    }\n\n")
+                .append(indent).append("    @Override\n")
+                .append(indent).append("    public void run() {\n")
+                .append(indent).append("        count++;\n")
+                .append(indent).append("    }\n")
+                .append(indent).append("};\n");
+    }
+}
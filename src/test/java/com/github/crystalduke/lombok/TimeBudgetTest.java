@@ -0,0 +1,127 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.Provider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TimeBudget} による打ち切りと、打ち切ったファイル以外の処理を続けることを確認する.
+ */
+public class TimeBudgetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 打ち切った後は、全ての確認箇所で打ち切った段階を報告する.
+     */
+    @Test
+    public void abandonStopsAtNextCheck() throws IOException {
+        final TimeBudget budget = TimeBudget.unlimited();
+        budget.enter(LombokizeResult.Phase.SCAN);
+        budget.enter(LombokizeResult.Phase.PARSE);
+        budget.check();
+        final char[] buffer = new char[4];
+        final Provider provider = budget.provider("class A {}");
+        assertEquals(4, provider.read(buffer, 0, buffer.length));
+        budget.abandon();
+        try {
+            provider.read(buffer, 0, buffer.length);
+            fail();
+        } catch (TimeBudget.ExceededException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().endsWith("in phase PARSE"));
+        }
+        try {
+            budget.enter(LombokizeResult.Phase.PRINT);
+            fail();
+        } catch (TimeBudget.ExceededException ex) {
+            assertEquals(LombokizeResult.Phase.PARSE, budget.getPhase());
+        }
+    }
+
+    /**
+     * 監視スレッドは、取り消したタスクを待ち行列に残さない.
+     */
+    @Test
+    public void watchdogRemovesCancelledTasks() {
+        final ScheduledThreadPoolExecutor watchdog = ApplyLombokMojo.newWatchdog();
+        try {
+            final ScheduledFuture<?> timer = watchdog.schedule(() -> { }, 1, TimeUnit.HOURS);
+            assertEquals(1, watchdog.getQueue().size());
+            timer.cancel(false);
+            assertTrue(watchdog.getQueue().isEmpty());
+        } finally {
+            watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * パースの途中で時間を超えたファイルは書き換えずに打ち切り、他のファイルは書き換える.
+     */
+    @Test
+    public void abandonedParseLeavesRestOfBatch() throws Exception {
+        final Path root = folder.newFolder("src").toPath();
+        final StringBuilder huge = new StringBuilder("package p;\n\npublic class Huge {\n");
+        for (int i = 0; i < 400_000; i++) {
+            huge.append("    private int f").append(i).append(";\n");
+        }
+        huge.append("}\n");
+        final Path hugeFile = write(root.resolve("p/Huge.java"), huge.toString());
+        final List<Path> beans = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            beans.add(write(root.resolve("p/Bean" + i + ".java"), "package p;\n\npublic class Bean" + i + " {\n\n"
+                    + "    private int value;\n\n"
+                    + "    public int getValue() {\n        return value;\n    }\n}\n"));
+        }
+        final Map<Path, LombokizeResult> results = new ConcurrentHashMap<>();
+        final ApplyLombokMojo mojo = new ApplyLombokMojo() {
+            @Override
+            void completed(Path localPath, LombokizeResult result, long[] phaseNanos, long allocatedBytes) {
+                results.put(localPath, result);
+            }
+        };
+        ReflectionUtils.setVariableValueInObject(mojo, "sourceDirectory", root.toFile());
+        ReflectionUtils.setVariableValueInObject(mojo, "encoding", "UTF-8");
+        ReflectionUtils.setVariableValueInObject(mojo, "shardCount", 1);
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 2);
+        ReflectionUtils.setVariableValueInObject(mojo, "heapBudget", 50);
+        mojo.timeBudget = 1000;
+        mojo.logLevel = Level.WARNING;
+        mojo.execute();
+
+        final LombokizeResult abandoned = results.get(root.relativize(hugeFile));
+        assertEquals(LombokizeResult.Status.ABANDONED, abandoned.getStatus());
+        assertEquals(LombokizeResult.Phase.PARSE, abandoned.getAbandonedPhase());
+        assertEquals(huge.toString(), read(hugeFile));
+        for (Path bean : beans) {
+            assertEquals(bean.toString(), LombokizeResult.Status.CHANGED,
+                    results.get(root.relativize(bean)).getStatus());
+            assertTrue(read(bean).contains("@Getter"));
+        }
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TypeHierarchyIndex} のオーバーライドの判定と、索引ファイルの再利用を確認する.
+ */
+public class TypeHierarchyIndexTest {
+
+    private static final String BASE = "package p; public class Base { String getName() { return null; } }";
+    private static final String CHILD = "package p; public class Child extends Base {\n"
+            + "    String name; int id;\n"
+            + "    String getName() { return name; }\n"
+            + "    int getId() { return id; }\n"
+            + "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private Path indexFile;
+    private List<Path> sourceFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("src").toPath();
+        indexFile = folder.getRoot().toPath().resolve("target/type-hierarchy.idx");
+        sourceFiles = Arrays.asList(write("p/Base.java", BASE), write("p/Child.java", CHILD));
+    }
+
+    @Test
+    public void overridingAccessors() throws IOException {
+        final TypeHierarchyIndex index = update();
+        assertTrue(index.isOverriding(method(CHILD, "getName")));
+        assertFalse(index.isOverriding(method(CHILD, "getId")));
+        // サブタイプでオーバーライドされている
+        assertTrue(index.isOverriding(method(BASE, "getName")));
+        assertTrue(Files.isRegularFile(indexFile));
+    }
+
+    /**
+     * 更新されたソースファイルだけを再抽出し、索引ファイルから読み込んだ結果と合わせる.
+     */
+    @Test
+    public void reusesUnchangedEntries() throws IOException {
+        update();
+        final String base = "package p; public class Base { String getTitle() { return null; } }";
+        final Path file = write("p/Base.java", base);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        final TypeHierarchyIndex index = update();
+        assertFalse(index.isOverriding(method(CHILD, "getName")));
+        assertFalse(index.isOverriding(method(base, "getTitle")));
+    }
+
+    /**
+     * 更新されたソースファイルがなければ、索引ファイルを書き換えずにそのまま参照する.
+     */
+    @Test
+    public void readsUnchangedIndexFile() throws IOException {
+        update();
+        final FileTime written = FileTime.fromMillis(Files.getLastModifiedTime(indexFile).toMillis() - 10_000);
+        Files.setLastModifiedTime(indexFile, written);
+        final TypeHierarchyIndex index = update();
+        assertEquals(written, Files.getLastModifiedTime(indexFile));
+        assertTrue(index.isOverriding(method(CHILD, "getName")));
+        assertFalse(index.isOverriding(method(CHILD, "getId")));
+
+        // ソースファイルが減った場合は書き換える
+        sourceFiles = sourceFiles.subList(1, 2);
+        assertFalse(update().isOverriding(method(CHILD, "getName")));
+        assertNotEquals(written, Files.getLastModifiedTime(indexFile));
+    }
+
+    /**
+     * 多数の型を、名前が衝突するハッシュ表から引く.
+     */
+    @Test
+    public void manyTypes() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            files.add(write("q/T" + i + ".java", "package q; public class T" + i
+                    + (i > 0 ? " extends T" + (i - 1) : "") + " { int get" + i + "() { return 0; } }"));
+        }
+        sourceFiles = files;
+        update();
+        final TypeHierarchyIndex index = update();
+        // 深い階層の先頭で宣言したメソッドをオーバーライドしている
+        assertTrue(index.isOverriding(method("package q; class T299 extends T298 { int get0() { return 1; } }",
+                "get0")));
+        // 末尾のサブタイプでオーバーライドされている
+        assertTrue(index.isOverriding(method("package q; class T0 { int get299() { return 1; } }", "get299")));
+        assertFalse(index.isOverriding(method("package q; class T299 extends T298 { int getX() { return 1; } }",
+                "getX")));
+    }
+
+    /**
+     * 壊れた索引ファイルは無視して、全てのソースファイルから抽出する.
+     */
+    @Test
+    public void ignoresBrokenIndexFile() throws IOException {
+        update();
+        final byte[] bytes = Files.readAllBytes(indexFile);
+        Files.write(indexFile, Arrays.copyOf(bytes, bytes.length / 2));
+        assertTrue(update().isOverriding(method(CHILD, "getName")));
+        assertArrayEquals(bytes, Files.readAllBytes(indexFile));
+    }
+
+    private TypeHierarchyIndex update() throws IOException {
+        return TypeHierarchyIndex.update(indexFile, root, sourceFiles, ParserConfiguration::new);
+    }
+
+    private Path write(String path, String code) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, code.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static MethodDeclaration method(String code, String name) {
+        return new JavaParser().parse(code).getResult().get()
+                .findFirst(MethodDeclaration.class, method -> method.getNameAsString().equals(name)).get();
+    }
+}
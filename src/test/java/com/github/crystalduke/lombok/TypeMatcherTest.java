@@ -0,0 +1,61 @@
+package com.github.crystalduke.lombok;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.type.Type;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TypeMatcher} が、書き方の異なる同じ型を完全修飾名に解決して比較することを確認する.
+ */
+public class TypeMatcherTest {
+
+    private static final String CODE = "import java.util.List;\n"
+            + "class A {\n"
+            + "    List<String> a;\n"
+            + "    java.util.List<String> b;\n"
+            + "    java.util.List<Integer> c;\n"
+            + "    java.awt.List d;\n"
+            + "}\n";
+
+    /**
+     * インポートした型と完全修飾名の型は、型引数が同じ場合だけ同じ型と判定する.
+     */
+    @Test
+    public void matchesQualifiedName() throws IOException {
+        final CompilationUnit cu = parse();
+        try (CachingTypeSolver solver = CachingTypeSolver.of(Collections.emptyList(), Collections.emptyList(),
+                new ParserConfiguration())) {
+            final TypeMatcher matcher = new TypeMatcher(solver);
+            assertTrue(matcher.matches(type(cu, "a"), type(cu, "b")));
+            assertTrue(matcher.matches(type(cu, "b"), type(cu, "a")));
+            assertFalse(matcher.matches(type(cu, "a"), type(cu, "c")));
+            assertFalse(matcher.matches(type(cu, "a"), type(cu, "d")));
+        }
+    }
+
+    /**
+     * {@link com.github.javaparser.symbolsolver.model.resolution.TypeSolver} を指定しない場合は、
+     * 文字列として比較する.
+     */
+    @Test
+    public void comparesAsStringWithoutSolver() {
+        final CompilationUnit cu = parse();
+        final TypeMatcher matcher = new TypeMatcher();
+        assertFalse(matcher.matches(type(cu, "a"), type(cu, "b")));
+        assertTrue(matcher.matches(type(cu, "b"), type(cu, "b")));
+    }
+
+    private static CompilationUnit parse() {
+        return new JavaParser().parse(CODE).getResult().get();
+    }
+
+    private static Type type(CompilationUnit cu, String name) {
+        return cu.getClassByName("A").get().getFieldByName(name).get().getElementType();
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link UnifiedDiff} の出力が {@code git apply} で適用できる形式になることを確認する.
+ */
+public class UnifiedDiffTest {
+
+    private static final String HEADER = "diff --git a/A.java b/A.java\n"
+            + "--- a/A.java\n"
+            + "+++ b/A.java\n";
+
+    @Test
+    public void noChanges() throws IOException {
+        assertNull(diff("", ""));
+        assertNull(diff("a\nb\n", "a\nb\n"));
+        assertNull(diff("a\nb", "a\nb"));
+    }
+
+    @Test
+    public void emptyInput() throws IOException {
+        assertEquals(HEADER + "@@ -0,0 +1,2 @@\n+a\n+b\n", diff("", "a\nb\n"));
+        assertEquals(HEADER + "@@ -1,2 +0,0 @@\n-a\n-b\n", diff("a\nb\n", ""));
+    }
+
+    @Test
+    public void noTrailingNewline() throws IOException {
+        assertEquals(HEADER + "@@ -1,2 +1,2 @@\n"
+                + " a\n"
+                + "-b\n\\ No newline at end of file\n"
+                + "+c\n\\ No newline at end of file\n",
+                diff("a\nb", "a\nc"));
+        // 改行の有無だけが異なる最後の行
+        assertEquals(HEADER + "@@ -1,2 +1,2 @@\n"
+                + " a\n"
+                + "-b\n\\ No newline at end of file\n"
+                + "+b\n",
+                diff("a\nb", "a\nb\n"));
+    }
+
+    @Test
+    public void contextLines() throws IOException {
+        assertEquals(HEADER + "@@ -7,7 +7,8 @@\n"
+                + " 7\n 8\n 9\n"
+                + "-10\n+ten\n+ten'\n"
+                + " 11\n 12\n 13\n",
+                diff(numbers(1, 20), numbers(1, 9) + "ten\nten'\n" + numbers(11, 20)));
+        // ファイルの先頭では前の行が足りない
+        assertEquals(HEADER + "@@ -1,4 +1,3 @@\n"
+                + "-1\n"
+                + " 2\n 3\n 4\n",
+                diff(numbers(1, 20), numbers(2, 20)));
+    }
+
+    /**
+     * 変更箇所の間隔が前後の行数の 2 倍 (6 行) 以下であれば、同じ hunk にまとめる.
+     */
+    @Test
+    public void adjacentHunksMerge() throws IOException {
+        final String original = numbers(1, 20);
+        assertEquals(HEADER + "@@ -2,14 +2,14 @@\n"
+                + " 2\n 3\n 4\n-5\n+five\n"
+                + " 6\n 7\n 8\n 9\n 10\n 11\n"
+                + "-12\n+twelve\n 13\n 14\n 15\n",
+                diff(original, numbers(1, 4) + "five\n" + numbers(6, 11) + "twelve\n" + numbers(13, 20)));
+        assertEquals(HEADER + "@@ -2,7 +2,7 @@\n"
+                + " 2\n 3\n 4\n-5\n+five\n 6\n 7\n 8\n"
+                + "@@ -10,7 +10,7 @@\n"
+                + " 10\n 11\n 12\n-13\n+thirteen\n 14\n 15\n 16\n",
+                diff(original, numbers(1, 4) + "five\n" + numbers(6, 12) + "thirteen\n" + numbers(14, 20)));
+    }
+
+    /**
+     * @return 差分. 差分がない場合は {@code null}.
+     */
+    private static String diff(String original, String revised) throws IOException {
+        final StringBuilder out = new StringBuilder();
+        return UnifiedDiff.write(out, "A.java", original, revised) ? out.toString() : null;
+    }
+
+    /**
+     * {@code from} から {@code to} までの数を 1 行ずつ並べる.
+     */
+    private static String numbers(int from, int to) {
+        final StringBuilder lines = new StringBuilder();
+        for (int i = from; i <= to; i++) {
+            lines.append(i).append('\n');
+        }
+        return lines.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.crystalduke.lombok;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WatchLombokMojo} が保存をまとめて検知することと、最近処理した内容の保持を確認する.
+ */
+public class WatchLombokMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 待ち時間の間に続いた保存は、まとめて 1 回で処理する.
+     */
+    @Test
+    public void debounceBatchesSaves() throws Exception {
+        final Path root = folder.newFolder("src").toPath();
+        final Path pkg = Files.createDirectories(root.resolve("com/example"));
+        final WatchLombokMojo mojo = new WatchLombokMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "debounce", 500L);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            mojo.register(watchService, root);
+            final Future<Set<Path>> changes = executor.submit(() -> mojo.awaitChanges(watchService));
+            final Path first = write(pkg.resolve("First.java"));
+            final Path second = write(pkg.resolve("Second.java"));
+            write(pkg.resolve("notes.txt"));
+            assertEquals(new HashSet<>(Arrays.asList(first, second)), changes.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 隠しディレクトリと、名前が Java の識別子でないディレクトリは監視しない.
+     */
+    @Test
+    public void registerSkipsDirectoriesLikeSourceRoot() throws Exception {
+        final Path root = folder.newFolder("src").toPath();
+        Files.createDirectories(root.resolve("com/example"));
+        Files.createDirectories(root.resolve(".git/objects"));
+        Files.createDirectories(root.resolve("generated-sources/p"));
+        final WatchLombokMojo mojo = new WatchLombokMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "debounce", 50L);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            mojo.register(watchService, root);
+            final Future<Set<Path>> changes = executor.submit(() -> mojo.awaitChanges(watchService));
+            write(root.resolve("generated-sources/p/Generated.java"));
+            write(root.resolve(".git/objects/Hidden.java"));
+            final Path file = write(root.resolve("com/example/Bean.java"));
+            assertEquals(new HashSet<>(Arrays.asList(file)), changes.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 件数が上限を超えると、最も長く参照していない内容から捨てる.
+     */
+    @Test
+    public void recentContentsEvictsLeastRecentlyUsed() {
+        final WatchLombokMojo.RecentContents contents = new WatchLombokMojo.RecentContents(2);
+        final Path a = folder.getRoot().toPath().resolve("A.java");
+        final Path b = folder.getRoot().toPath().resolve("B.java");
+        final Path c = folder.getRoot().toPath().resolve("C.java");
+        contents.put(a, "a");
+        contents.put(b, "b");
+        assertEquals("a", contents.get(a));
+        contents.put(c, "c");
+        assertEquals(2, contents.size());
+        assertEquals("a", contents.get(a));
+        assertNull(contents.get(b));
+        assertEquals("c", contents.get(c));
+    }
+
+    private static Path write(Path file) throws IOException {
+        return Files.write(file, "class A {}\n".getBytes(StandardCharsets.UTF_8));
+    }
+}